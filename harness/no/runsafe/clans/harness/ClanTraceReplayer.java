@@ -0,0 +1,315 @@
+package no.runsafe.clans.harness;
+
+import no.runsafe.clans.Clan;
+import no.runsafe.clans.ClanRelations;
+import no.runsafe.clans.ClanRival;
+import no.runsafe.clans.RivalryMatrix;
+import no.runsafe.clans.database.ClanChangeRepository;
+import no.runsafe.clans.database.ClanInviteRepository;
+import no.runsafe.clans.database.ClanMailRepository;
+import no.runsafe.clans.database.ClanMemberRepository;
+import no.runsafe.clans.database.ClanMemberStatsRepository;
+import no.runsafe.clans.database.ClanRelationRepository;
+import no.runsafe.clans.database.ClanRepository;
+import no.runsafe.clans.database.ClanRivalryRepository;
+import no.runsafe.clans.database.ClanStatistic;
+import no.runsafe.clans.database.IReadSource;
+import no.runsafe.clans.database.StatementExecutor;
+import no.runsafe.clans.events.ClanEventOverflow;
+import no.runsafe.clans.events.ClanEventRecord;
+import no.runsafe.clans.events.ClanEventSubscription;
+import no.runsafe.clans.events.ClanEventType;
+import no.runsafe.clans.events.IClanEventSubscriber;
+import no.runsafe.clans.handlers.ClanChatHistory;
+import no.runsafe.clans.handlers.ClanEventBus;
+import no.runsafe.clans.handlers.ClanHandler;
+import no.runsafe.clans.handlers.ClanMailbox;
+import no.runsafe.clans.handlers.RivalryHandler;
+import no.runsafe.clans.monitors.CombatResolver;
+import no.runsafe.clans.monitors.CombatTrackingNode;
+import no.runsafe.clans.storage.ClanTraceReader;
+import no.runsafe.framework.api.IConfiguration;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.IServer;
+import no.runsafe.framework.api.database.IDatabase;
+import no.runsafe.framework.api.log.IConsole;
+import no.runsafe.framework.api.player.IPlayer;
+import no.runsafe.nchat.channel.IChannelManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Plays a recorded trace back through the real ClanHandler, RivalryHandler and CombatResolver, with stand-ins for the server and database.
+// The same trace always ends in the same state, so the hash shows whether a change altered behaviour and the timings show what it cost.
+// Not part of the plugin, run it from the harness build: java -cp harness:RunsafeClans.jar:framework.jar no.runsafe.clans.harness.ClanTraceReplayer <trace>
+public class ClanTraceReplayer
+{
+	public static void main(String[] arguments) throws IOException
+	{
+		if (arguments.length != 1)
+		{
+			System.err.println("Usage: ClanTraceReplayer <trace file>");
+			System.exit(1);
+		}
+		System.out.println(new ClanTraceReplayer().replay(new File(arguments[0])));
+	}
+
+	public ClanTraceReplayer()
+	{
+		IConsole console = StandIns.create(IConsole.class);
+		IServer server = StandIns.create(IServer.class);
+		IScheduler scheduler = StandIns.create(IScheduler.class);
+		IDatabase database = StandIns.create(IDatabase.class);
+		StatementExecutor statements = new StatementExecutor(database, StandIns.create(IReadSource.class));
+		ClanEventBus eventBus = new ClanEventBus(console);
+		ClanRivalryRepository rivalryRepository = new ClanRivalryRepository(database, statements);
+		RivalryMatrix rivalries = new RivalryMatrix();
+
+		clanHandler = new ClanHandler(
+			console, server, scheduler,
+			new ClanRepository(database, statements),
+			new ClanMemberRepository(database, statements),
+			new ClanInviteRepository(database, statements),
+			new ClanChangeRepository(database, statements),
+			new ClanMemberStatsRepository(database, statements),
+			new ClanRelationRepository(database, statements),
+			new ClanRelations(),
+			rivalryRepository,
+			rivalries,
+			eventBus,
+			new ClanMailbox(server, scheduler, new ClanMailRepository(database, statements)),
+			new ClanChatHistory(scheduler),
+			StandIns.create(IChannelManager.class)
+		);
+		rivalryHandler = new RivalryHandler(scheduler, clanHandler, rivalryRepository, rivalries);
+		rivalryHandler.OnConfigurationChanged(StandIns.create(IConfiguration.class)); // Starts an empty rivalry matrix.
+		resolver = new CombatResolver(clanHandler, rivalryHandler, eventBus);
+
+		// The bus is never given threads here, deliver() hands the events over after each record instead.
+		events = eventBus.subscribe(new IClanEventSubscriber()
+		{
+			@Override
+			public String getSubscriberName()
+			{
+				return "Trace replayer";
+			}
+
+			@Override
+			public void OnClanEvent(ClanEventRecord event)
+			{
+				if (event.getType() == ClanEventType.BACKSTABBER)
+					backstabs++;
+				else if (event.getType() == ClanEventType.MUTINY)
+					mutinies++;
+			}
+		}, 1024, ClanEventOverflow.DROP_NEWEST);
+	}
+
+	public String replay(File file) throws IOException
+	{
+		long[] latencies = new long[1024];
+		int events = 0;
+		long started = System.nanoTime();
+		ClanTraceReader reader = new ClanTraceReader(file);
+		try
+		{
+			int type;
+			while ((type = reader.next()) != ClanTraceReader.END)
+			{
+				long before = System.nanoTime();
+				apply(type, reader.getTime(), reader.getFirst(), reader.getSecond());
+				deliver();
+				if (type == ClanTraceReader.CLAN || type == ClanTraceReader.MEMBER)
+					continue; // The starting rosters are setup, not workload.
+
+				if (events == latencies.length)
+					latencies = Arrays.copyOf(latencies, events * 2);
+				latencies[events++] = System.nanoTime() - before;
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		long elapsed = System.nanoTime() - started;
+
+		Arrays.sort(latencies, 0, events);
+		return String.format(
+			"Replayed %d events in %d ms (%.0f events/s), latency p50 %.1f us, p99 %.1f us, max %.1f us, state %016x",
+			events,
+			elapsed / 1000000,
+			events * 1000000000.0 / Math.max(elapsed, 1),
+			percentile(latencies, events, 50) / 1000.0,
+			percentile(latencies, events, 99) / 1000.0,
+			(events > 0 ? latencies[events - 1] : 0) / 1000.0,
+			getStateHash()
+		);
+	}
+
+	private void apply(int type, int time, String first, String second)
+	{
+		switch (type)
+		{
+			case ClanTraceReader.CLAN:
+				clanHandler.createClan(first, second);
+				break;
+
+			case ClanTraceReader.MEMBER:
+				joinClan(second, first);
+				break;
+
+			case ClanTraceReader.CLAN_JOIN:
+				joinClan(first, second);
+				break;
+
+			case ClanTraceReader.CLAN_LEAVE:
+			case ClanTraceReader.CLAN_KICK:
+				// The kicker isn't recorded, and either way the member is gone.
+				clanHandler.removeClanMember(StandIns.create(IPlayer.class, first));
+				break;
+
+			case ClanTraceReader.JOIN:
+				online.add(first);
+				break;
+
+			case ClanTraceReader.QUIT:
+				online.remove(first);
+				break;
+
+			case ClanTraceReader.DAMAGE:
+				registerHit(first, second, time);
+				break;
+
+			case ClanTraceReader.DEATH:
+				expireTracking(first, time);
+				resolver.resolveDeath(first, track.get(first));
+				break;
+		}
+	}
+
+	private void joinClan(String playerName, String clanID)
+	{
+		if (!clanHandler.clanExists(clanID))
+			clanHandler.createClan(clanID, playerName); // Created after recording started, whoever joins first founded it.
+
+		// Only happens if the leave was dropped while recording, don't let it keep the member out.
+		if (clanHandler.playerIsInClan(playerName))
+			clanHandler.removeClanMember(StandIns.create(IPlayer.class, playerName));
+
+		clanHandler.addClanMember(clanID, playerName);
+	}
+
+	// CombatMonitor keeps its own tracking, here the ten second timer is run off the recorded clock instead.
+	private void registerHit(String victimName, String attackerName, int time)
+	{
+		expireTracking(victimName, time);
+		CombatTrackingNode node = track.get(victimName);
+		if (node == null)
+		{
+			node = new CombatTrackingNode();
+			track.put(victimName, node);
+		}
+		node.setAttacker(attackerName);
+		lastHit.put(victimName, time);
+	}
+
+	private void deliver()
+	{
+		if (events.claim())
+			events.run();
+	}
+
+	private void expireTracking(String playerName, int time)
+	{
+		Integer hit = lastHit.get(playerName);
+		if (hit != null && time - hit >= TRACKING_TIME)
+		{
+			track.remove(playerName);
+			lastHit.remove(playerName);
+		}
+	}
+
+	private long getStateHash()
+	{
+		// FNV-1a over everything the replay can change, visited in sorted order so map layout doesn't matter.
+		long hash = 0xcbf29ce484222325L;
+		List<String> clanIDs = new ArrayList<String>(clanHandler.getClans().keySet());
+		Collections.sort(clanIDs);
+		for (String clanID : clanIDs)
+		{
+			Clan clan = clanHandler.getClan(clanID);
+			hash = mix(hash, clanID);
+			hash = mix(hash, clan.getClanKills());
+			hash = mix(hash, clan.getClanDeaths());
+			List<String> members = new ArrayList<String>(clan.getMembers());
+			Collections.sort(members);
+			for (String member : members)
+			{
+				hash = mix(hash, member);
+				for (ClanStatistic statistic : ClanStatistic.values())
+					hash = mix(hash, clan.getMemberStatistic(member, statistic));
+			}
+
+			List<ClanRival> rivals = rivalryHandler.getRivals(clanID, Integer.MAX_VALUE);
+			Collections.sort(rivals, new Comparator<ClanRival>()
+			{
+				@Override
+				public int compare(ClanRival one, ClanRival two)
+				{
+					return one.getClanID().compareTo(two.getClanID());
+				}
+			});
+			for (ClanRival rival : rivals)
+			{
+				hash = mix(hash, rival.getClanID());
+				hash = mix(hash, rival.getKills());
+				hash = mix(hash, rival.getDeaths());
+			}
+		}
+
+		hash = mix(hash, online.size());
+		hash = mix(hash, backstabs);
+		return mix(hash, mutinies);
+	}
+
+	private static long mix(long hash, String value)
+	{
+		for (int i = 0; i < value.length(); i++)
+			hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+		return (hash ^ 0xff) * 0x100000001b3L; // Separator, so "ab"+"c" and "a"+"bc" differ.
+	}
+
+	private static long mix(long hash, int value)
+	{
+		for (int shift = 0; shift < 32; shift += 8)
+			hash = (hash ^ ((value >>> shift) & 0xff)) * 0x100000001b3L;
+		return hash;
+	}
+
+	private static long percentile(long[] sorted, int count, int percentile)
+	{
+		if (count == 0)
+			return 0;
+		return sorted[Math.min(count - 1, (int) ((long) count * percentile / 100))];
+	}
+
+	private static final int TRACKING_TIME = 10000;
+	private final ClanHandler clanHandler;
+	private final RivalryHandler rivalryHandler;
+	private final CombatResolver resolver;
+	private final ClanEventSubscription events;
+	private final Set<String> online = new HashSet<String>(0);
+	private final Map<String, CombatTrackingNode> track = new HashMap<String, CombatTrackingNode>(0);
+	private final Map<String, Integer> lastHit = new HashMap<String, Integer>(0);
+	private int backstabs;
+	private int mutinies;
+}
@@ -0,0 +1,105 @@
+package no.runsafe.clans.harness;
+
+import no.runsafe.clans.database.ClanMailRepository;
+import no.runsafe.clans.database.ClanRepository;
+import no.runsafe.clans.database.ClanRivalryRepository;
+import no.runsafe.clans.database.IReadSource;
+import no.runsafe.clans.database.StatementExecutor;
+import no.runsafe.framework.api.database.IDatabase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Runs the repositories against a stand-in primary and replica, and checks which of the two answered each read.
+// java -cp harness:RunsafeClans.jar:framework.jar no.runsafe.clans.harness.ReadRoutingCheck
+public class ReadRoutingCheck
+{
+	public static void main(String[] arguments)
+	{
+		ReadRoutingCheck check = new ReadRoutingCheck();
+		check.run();
+		System.out.println(check.failures == 0 ? "Read routing ok." : check.failures + " read routing checks failed.");
+		System.exit(check.failures == 0 ? 0 : 1);
+	}
+
+	public ReadRoutingCheck()
+	{
+		final IDatabase replica = StandIns.database(replicaLog);
+		IDatabase primary = StandIns.database(primaryLog);
+		StatementExecutor statements = new StatementExecutor(primary, new IReadSource()
+		{
+			@Override
+			public IDatabase getReadDatabase()
+			{
+				return replica;
+			}
+		});
+		Map<String, Object> config = new HashMap<String, Object>(1);
+		config.put("database.readYourWrites", 60);
+		statements.OnConfigurationChanged(StandIns.configuration(config));
+
+		clanRepository = new ClanRepository(primary, statements);
+		mailRepository = new ClanMailRepository(primary, statements);
+		rivalryRepository = new ClanRivalryRepository(primary, statements);
+	}
+
+	public void run()
+	{
+		clanRepository.getClans();
+		expect("Bulk load before any write", REPLICA);
+
+		List<Object[]> mail = new ArrayList<Object[]>(1);
+		mail.add(new Object[]{"alice", "INVITE", "ABC", "You have been invited to ABC."});
+		mailRepository.addMail(mail);
+		clear();
+
+		mailRepository.getMail(Collections.singletonList("alice"));
+		expect("Mail for a player just written to", PRIMARY);
+
+		mailRepository.getMail(Collections.singletonList("bob"));
+		expect("Mail for a player nobody wrote to", REPLICA);
+
+		mailRepository.getMail(Arrays.asList("bob", "alice"));
+		expect("Mail for both", PRIMARY);
+
+		clanRepository.getClans();
+		expect("Bulk load after a write naming a player", REPLICA);
+
+		rivalryRepository.purgeDisbandedClans();
+		clear();
+
+		clanRepository.getClans();
+		expect("Bulk load after a write naming nobody", PRIMARY);
+
+		mailRepository.getMail(Collections.singletonList("bob"));
+		expect("Mail for a player nobody wrote to, after a write naming nobody", REPLICA);
+	}
+
+	private void expect(String read, String expected)
+	{
+		String answered = primaryLog.isEmpty() ? (replicaLog.isEmpty() ? "nobody" : REPLICA) : (replicaLog.isEmpty() ? PRIMARY : "both");
+		if (!answered.equals(expected))
+			failures++;
+		System.out.println(String.format("%-70s %-8s %s", read, answered, answered.equals(expected) ? "ok" : "expected " + expected));
+		clear();
+	}
+
+	private void clear()
+	{
+		primaryLog.clear();
+		replicaLog.clear();
+	}
+
+	private static final String PRIMARY = "primary";
+	private static final String REPLICA = "replica";
+	private final List<String> primaryLog = new ArrayList<String>(0);
+	private final List<String> replicaLog = new ArrayList<String>(0);
+	private final ClanRepository clanRepository;
+	private final ClanMailRepository mailRepository;
+	private final ClanRivalryRepository rivalryRepository;
+	private int failures;
+}
@@ -0,0 +1,248 @@
+package no.runsafe.clans.harness;
+
+import no.runsafe.clans.ClanRelations;
+import no.runsafe.clans.RivalryMatrix;
+import no.runsafe.clans.database.ClanChange;
+import no.runsafe.clans.database.ClanChangeRepository;
+import no.runsafe.clans.database.ClanChangeType;
+import no.runsafe.clans.database.ClanInviteRepository;
+import no.runsafe.clans.database.ClanMailRepository;
+import no.runsafe.clans.database.ClanMemberRepository;
+import no.runsafe.clans.database.ClanMemberStatsRepository;
+import no.runsafe.clans.database.ClanRelation;
+import no.runsafe.clans.database.ClanRelationRepository;
+import no.runsafe.clans.database.ClanRepository;
+import no.runsafe.clans.database.ClanRivalryRepository;
+import no.runsafe.clans.database.IReadSource;
+import no.runsafe.clans.database.StatementExecutor;
+import no.runsafe.clans.handlers.ClanChatHistory;
+import no.runsafe.clans.handlers.ClanEventBus;
+import no.runsafe.clans.handlers.ClanHandler;
+import no.runsafe.clans.handlers.ClanMailbox;
+import no.runsafe.clans.handlers.ClanSyncHandler;
+import no.runsafe.clans.handlers.RelationHandler;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.IServer;
+import no.runsafe.framework.api.database.IDatabase;
+import no.runsafe.framework.api.log.IConsole;
+import no.runsafe.nchat.channel.IChannelManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// Two servers sharing one change log and relation table, checking that a relation set on one reaches the other's cache.
+// java -cp harness:RunsafeClans.jar:framework.jar no.runsafe.clans.harness.RelationSyncCheck
+public class RelationSyncCheck
+{
+	public static void main(String[] arguments) throws IOException
+	{
+		RelationSyncCheck check = new RelationSyncCheck();
+		check.run();
+		System.out.println(check.failures == 0 ? "Relation sync ok." : check.failures + " relation sync checks failed.");
+		System.exit(check.failures == 0 ? 0 : 1);
+	}
+
+	public RelationSyncCheck() throws IOException
+	{
+		first = new Node("first");
+		second = new Node("second");
+	}
+
+	public void run()
+	{
+		first.relations.setRelation("ABC", "XYZ", ClanRelation.ALLY);
+		expect("Own change is skipped", first.sync.poll(), 0);
+		expect("Alliance offer reaches the other server", second.sync.poll(), 1);
+		expect("Offer is cached there", second.relations.getRelation("ABC", "XYZ"), ClanRelation.ALLY);
+		expect("Not allied until both declare", second.relations.isAllied("ABC", "XYZ"), false);
+
+		second.relations.setRelation("XYZ", "ABC", ClanRelation.ALLY);
+		first.sync.poll();
+		expect("Accepted alliance reaches the offering server", first.relations.isAllied("ABC", "XYZ"), true);
+
+		// Both changes are read after the second was stored, so the stale ENEMY must never stick.
+		first.relations.setRelation("ABC", "XYZ", ClanRelation.ENEMY);
+		first.relations.setRelation("ABC", "XYZ", ClanRelation.NEUTRAL);
+		expect("Both changes are applied", second.sync.poll(), 2);
+		expect("The latest relation wins", second.relations.getRelation("ABC", "XYZ"), ClanRelation.NEUTRAL);
+		expect("The other side's declaration is kept", second.relations.getRelation("XYZ", "ABC"), ClanRelation.ALLY);
+	}
+
+	private void expect(String check, Object answered, Object expected)
+	{
+		if (!answered.equals(expected))
+			failures++;
+		System.out.println(String.format("%-70s %-8s %s", check, answered, answered.equals(expected) ? "ok" : "expected " + expected));
+	}
+
+	// Everything a server needs to record and apply relation changes, on its own stand-ins apart from the shared tables.
+	private class Node
+	{
+		Node(String name) throws IOException
+		{
+			IConsole console = StandIns.create(IConsole.class, name);
+			IServer server = StandIns.create(IServer.class);
+			IScheduler scheduler = StandIns.scheduler();
+			IDatabase database = StandIns.create(IDatabase.class);
+			StatementExecutor statements = new StatementExecutor(database, StandIns.create(IReadSource.class));
+			ClanRelationRepository relationRepository = new SharedRelations(database, statements, storedRelations);
+			ClanRelations cachedRelations = new ClanRelations();
+			ClanChangeRepository changeRepository = new SharedChanges(database, statements, changeLog);
+
+			ClanHandler clanHandler = new ClanHandler(
+				console, server, scheduler,
+				new ClanRepository(database, statements),
+				new ClanMemberRepository(database, statements),
+				new ClanInviteRepository(database, statements),
+				changeRepository,
+				new ClanMemberStatsRepository(database, statements),
+				relationRepository,
+				cachedRelations,
+				new ClanRivalryRepository(database, statements),
+				new RivalryMatrix(),
+				new ClanEventBus(console),
+				new ClanMailbox(server, scheduler, new ClanMailRepository(database, statements)),
+				new ClanChatHistory(scheduler),
+				StandIns.create(IChannelManager.class)
+			);
+			relations = new RelationHandler(clanHandler, relationRepository, cachedRelations);
+			sync = new ClanSyncHandler(console, scheduler, clanHandler, changeRepository);
+
+			File journal = File.createTempFile("clans-" + name, ".journal");
+			journal.deleteOnExit();
+			Map<String, Object> config = new HashMap<String, Object>(8);
+			config.put("chatTag", "[%s]");
+			config.put("sync.enabled", true);
+			config.put("sync.gapTimeout", 60);
+			config.put("snapshot.path", new File(journal.getParentFile(), "clans-" + name + ".missing").getPath());
+			config.put("journal.path", journal.getPath());
+			config.put("journal.size", 4);
+			config.put("journal.maxSize", 4);
+			clanHandler.OnConfigurationChanged(StandIns.configuration(config));
+			relations.OnConfigurationChanged(StandIns.configuration(config));
+			sync.OnConfigurationChanged(StandIns.configuration(config));
+		}
+
+		final RelationHandler relations;
+		final ClanSyncHandler sync;
+	}
+
+	// The clan_changes table, one list for both servers.
+	private static class SharedChanges extends ClanChangeRepository
+	{
+		SharedChanges(IDatabase database, StatementExecutor statements, List<ClanChange> log)
+		{
+			super(database, statements);
+			this.log = log;
+		}
+
+		@Override
+		public void recordChange(ClanChangeType type, String clanID, String playerName)
+		{
+			log.add(new ClanChange(log.size() + 1, getNodeID(), type, clanID, playerName));
+		}
+
+		@Override
+		public void recordChanges(ClanChangeType type, String clanID, List<String> playerNames)
+		{
+			for (String playerName : playerNames)
+				recordChange(type, clanID, playerName);
+		}
+
+		@Override
+		public List<ClanChange> getChangesSince(long changeID, int limit)
+		{
+			int from = (int) Math.min(changeID, log.size());
+			return new ArrayList<ClanChange>(log.subList(from, Math.min(from + limit, log.size())));
+		}
+
+		@Override
+		public List<ClanChange> getChanges(Collection<Long> changeIDs)
+		{
+			List<ClanChange> changes = new ArrayList<ClanChange>(changeIDs.size());
+			for (ClanChange change : log)
+				if (changeIDs.contains(change.getId()))
+					changes.add(change);
+			return changes;
+		}
+
+		@Override
+		public long getLatestChangeID()
+		{
+			return log.size();
+		}
+
+		@Override
+		public void purgeChanges(int retentionHours)
+		{
+		}
+
+		private final List<ClanChange> log;
+	}
+
+	// The clan_relations table, one map for both servers.
+	private static class SharedRelations extends ClanRelationRepository
+	{
+		SharedRelations(IDatabase database, StatementExecutor statements, Map<String, ClanRelation> stored)
+		{
+			super(database, statements);
+			this.stored = stored;
+		}
+
+		@Override
+		public ClanRelations getRelations()
+		{
+			ClanRelations relations = new ClanRelations();
+			for (Map.Entry<String, ClanRelation> relation : stored.entrySet())
+				relations.set(relation.getKey().substring(0, 3), relation.getKey().substring(4), relation.getValue());
+			return relations;
+		}
+
+		@Override
+		public ClanRelation getRelation(String clanID, String targetID)
+		{
+			ClanRelation relation = stored.get(clanID + ">" + targetID);
+			return relation == null ? ClanRelation.NEUTRAL : relation;
+		}
+
+		@Override
+		public void setRelation(String clanID, String targetID, ClanRelation relation)
+		{
+			if (relation == ClanRelation.NEUTRAL)
+				stored.remove(clanID + ">" + targetID);
+			else
+				stored.put(clanID + ">" + targetID, relation);
+		}
+
+		@Override
+		public void removeRelations(String clanID)
+		{
+			Iterator<String> pairs = stored.keySet().iterator();
+			while (pairs.hasNext())
+			{
+				String pair = pairs.next();
+				if (pair.startsWith(clanID + ">") || pair.endsWith(">" + clanID))
+					pairs.remove();
+			}
+		}
+
+		@Override
+		public void purgeDisbandedClans()
+		{
+		}
+
+		private final Map<String, ClanRelation> stored;
+	}
+
+	private final List<ClanChange> changeLog = new ArrayList<ClanChange>(0);
+	private final Map<String, ClanRelation> storedRelations = new HashMap<String, ClanRelation>(0);
+	private final Node first;
+	private final Node second;
+	private int failures;
+}
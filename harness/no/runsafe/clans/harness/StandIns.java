@@ -0,0 +1,104 @@
+package no.runsafe.clans.harness;
+
+import no.runsafe.framework.api.IConfiguration;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.database.IDatabase;
+import no.runsafe.framework.api.database.IRow;
+import no.runsafe.framework.api.database.ISet;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// Framework interfaces answered with empty results, so the handlers run without a server or database behind them.
+public final class StandIns
+{
+	private StandIns()
+	{
+	}
+
+	// Players and anything else with a name answer getName with it, everything else gets an empty answer.
+	// Writes report one changed row, so every change is taken as applied.
+	public static <T> T create(Class<T> type, String name)
+	{
+		return create(type, name, null, null, false);
+	}
+
+	public static <T> T create(Class<T> type)
+	{
+		return create(type, null, null, null, false);
+	}
+
+	// Config values come from the map, anything missing gets an empty answer.
+	public static IConfiguration configuration(Map<String, Object> values)
+	{
+		return create(IConfiguration.class, null, values, null, false);
+	}
+
+	// Every query sent to the database is added to the log, so a check can see which one answered.
+	public static IDatabase database(List<String> log)
+	{
+		return create(IDatabase.class, null, null, log, false);
+	}
+
+	// One-off tasks run straight away on the calling thread, repeating tasks never run.
+	public static IScheduler scheduler()
+	{
+		return create(IScheduler.class, null, null, null, true);
+	}
+
+	private static <T> T create(final Class<T> type, final String name, final Map<String, Object> values, final List<String> log, final boolean runTasks)
+	{
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new InvocationHandler()
+		{
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] arguments)
+			{
+				String call = method.getName();
+				Class<?> result = method.getReturnType();
+				if (call.equals("equals"))
+					return proxy == arguments[0];
+				if (call.equals("hashCode"))
+					return System.identityHashCode(proxy);
+				if (call.equals("toString"))
+					return name == null ? type.getSimpleName() : name;
+				if (name != null && (call.equals("getName") || call.equals("getPrettyName")))
+					return name;
+				if (call.equals("logException"))
+					((Throwable) arguments[0]).printStackTrace();
+				if (call.equals("logError") || call.equals("logWarning"))
+					System.err.println(String.format(String.valueOf(arguments[0]), arguments.length > 1 ? (Object[]) arguments[1] : new Object[0]));
+				if (runTasks && (call.equals("startSyncTask") || call.equals("startAsyncTask")))
+					((Runnable) arguments[0]).run();
+				if (values != null && call.startsWith("getConfigValue") && values.containsKey(arguments[0]))
+					return values.get(arguments[0]);
+				if (log != null && arguments != null && arguments[0] instanceof String)
+					log.add((String) arguments[0]);
+				if (call.equals("update"))
+					return 1;
+				if (result == ISet.class)
+					return emptySet();
+				if (result.isPrimitive() && result != void.class)
+					return Array.get(Array.newInstance(result, 1), 0);
+				return null;
+			}
+		}));
+	}
+
+	private static ISet emptySet()
+	{
+		final List<IRow> rows = Collections.emptyList();
+		return (ISet) Proxy.newProxyInstance(ISet.class.getClassLoader(), new Class<?>[]{ISet.class}, new InvocationHandler()
+		{
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] arguments) throws Throwable
+			{
+				return method.invoke(rows, arguments);
+			}
+		});
+	}
+}
@@ -0,0 +1,51 @@
+package no.runsafe.clans;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+public class Charter
+{
+	public Charter(String id, String clanID, String leader, Collection<String> signers)
+	{
+		this.id = id;
+		this.clanID = clanID;
+		this.leader = leader;
+		this.signers.addAll(signers);
+	}
+
+	public String getId()
+	{
+		return id;
+	}
+
+	public String getClanID()
+	{
+		return clanID;
+	}
+
+	public String getLeader()
+	{
+		return leader;
+	}
+
+	public Set<String> getSigners()
+	{
+		return signers;
+	}
+
+	public boolean hasSigned(String playerName)
+	{
+		return signers.contains(playerName);
+	}
+
+	public void addSigner(String playerName)
+	{
+		signers.add(playerName);
+	}
+
+	private final String id;
+	private final String clanID;
+	private final String leader;
+	private final Set<String> signers = new LinkedHashSet<String>(3);
+}
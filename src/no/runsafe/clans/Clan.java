@@ -1,7 +1,14 @@
 package no.runsafe.clans;
 
+import no.runsafe.clans.database.ClanStatistic;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Clan
 {
@@ -42,19 +49,129 @@ public class Clan
 		return members;
 	}
 
+	// A copy taken under the clan's lock, for threads other than the server thread that edits the roster.
+	public synchronized List<String> getMemberSnapshot()
+	{
+		return new ArrayList<String>(members);
+	}
+
 	public int getMemberCount()
 	{
 		return members.size();
 	}
 
-	public void addMember(String playerName)
+	public synchronized void addMember(String playerName)
 	{
+		if (memberSlots.containsKey(playerName))
+			return;
+
+		int slot = members.size();
 		members.add(playerName);
+		memberSlots.put(playerName, slot);
+
+		// Grow the stat arrays ahead of the roster so joining rarely copies them.
+		if (slot >= memberStatistics[0].length)
+		{
+			int capacity = Math.max(slot + 1, memberStatistics[0].length * 2);
+			for (int statistic = 0; statistic < STATISTIC_COUNT; statistic++)
+			{
+				memberStatistics[statistic] = Arrays.copyOf(memberStatistics[statistic], capacity);
+				pendingStatistics[statistic] = Arrays.copyOf(pendingStatistics[statistic], capacity);
+			}
+		}
 	}
 
-	public void removeMember(String playerName)
+	public synchronized void removeMember(String playerName)
 	{
-		members.remove(playerName);
+		Integer slot = memberSlots.remove(playerName);
+		if (slot == null)
+			return;
+
+		// Move the last member into the freed slot, so no other member changes slot.
+		int last = members.size() - 1;
+		String moved = members.remove(last);
+		if (slot != last)
+		{
+			members.set(slot, moved);
+			memberSlots.put(moved, slot);
+		}
+
+		for (int statistic = 0; statistic < STATISTIC_COUNT; statistic++)
+		{
+			memberStatistics[statistic][slot] = memberStatistics[statistic][last];
+			pendingStatistics[statistic][slot] = pendingStatistics[statistic][last];
+			memberStatistics[statistic][last] = 0;
+			pendingStatistics[statistic][last] = 0;
+		}
+	}
+
+	public synchronized void addMemberStatistic(String playerName, ClanStatistic statistic, int amount)
+	{
+		Integer slot = memberSlots.get(playerName);
+		if (slot == null)
+			return;
+
+		memberStatistics[statistic.ordinal()][slot] += amount;
+		pendingStatistics[statistic.ordinal()][slot] += amount;
+	}
+
+	public synchronized int getMemberStatistic(String playerName, ClanStatistic statistic)
+	{
+		Integer slot = memberSlots.get(playerName);
+		return slot == null ? 0 : memberStatistics[statistic.ordinal()][slot];
+	}
+
+	public synchronized List<String> getTopMembers(ClanStatistic statistic, int limit)
+	{
+		final int[] values = memberStatistics[statistic.ordinal()];
+		List<String> sorted = new ArrayList<String>(members);
+		Collections.sort(sorted, new Comparator<String>()
+		{
+			@Override
+			public int compare(String one, String two)
+			{
+				int difference = values[memberSlots.get(two)] - values[memberSlots.get(one)];
+				return difference != 0 ? difference : one.compareToIgnoreCase(two);
+			}
+		});
+		return sorted.size() > limit ? sorted.subList(0, limit) : sorted;
+	}
+
+	// Values loaded from storage are already persisted, so they are not marked as pending.
+	public synchronized void loadMemberStatistics(String playerName, int[] values)
+	{
+		Integer slot = memberSlots.get(playerName);
+		if (slot == null)
+			return;
+
+		for (int statistic = 0; statistic < STATISTIC_COUNT; statistic++)
+			memberStatistics[statistic][slot] = values[statistic];
+	}
+
+	// Hands out one row per member with unsaved counts as {clanID, member, kills, deaths, dergon kills, assists}.
+	public synchronized List<Object[]> drainPendingStatistics()
+	{
+		List<Object[]> rows = new ArrayList<Object[]>(0);
+		for (int slot = 0; slot < members.size(); slot++)
+		{
+			boolean dirty = false;
+			for (int statistic = 0; statistic < STATISTIC_COUNT; statistic++)
+				dirty |= pendingStatistics[statistic][slot] != 0;
+
+			if (!dirty)
+				continue;
+
+			Object[] row = new Object[STATISTIC_COUNT + 2];
+			row[0] = id;
+			row[1] = members.get(slot);
+			for (int statistic = 0; statistic < STATISTIC_COUNT; statistic++)
+			{
+				row[statistic + 2] = pendingStatistics[statistic][slot];
+				pendingStatistics[statistic][slot] = 0;
+			}
+			rows.add(row);
+		}
+		return rows;
 	}
 
 	public void addClanKills(int amount)
@@ -87,11 +204,27 @@ public class Clan
 		return dergonKills;
 	}
 
+	public int getVersion()
+	{
+		return version;
+	}
+
+	public void setVersion(int version)
+	{
+		this.version = version;
+	}
+
 	private final String id;
 	private String leader;
 	private String motd;
 	private int clanKills = 0;
 	private int clanDeaths = 0;
 	private int dergonKills = 0;
+	private int version = 0;
 	private final List<String> members = new ArrayList<String>(0);
+	private final Map<String, Integer> memberSlots = new HashMap<String, Integer>(0);
+	// Indexed by statistic ordinal, then by the member's roster slot.
+	private final int[][] memberStatistics = new int[STATISTIC_COUNT][0];
+	private final int[][] pendingStatistics = new int[STATISTIC_COUNT][0];
+	private static final int STATISTIC_COUNT = ClanStatistic.values().length;
 }
@@ -0,0 +1,39 @@
+package no.runsafe.clans;
+
+import no.runsafe.clans.database.ClanMailType;
+
+public class ClanMail
+{
+	public ClanMail(long id, ClanMailType type, String clanID, String message)
+	{
+		this.id = id;
+		this.type = type;
+		this.clanID = clanID;
+		this.message = message;
+	}
+
+	public long getId()
+	{
+		return id;
+	}
+
+	public ClanMailType getType()
+	{
+		return type;
+	}
+
+	public String getClanID()
+	{
+		return clanID;
+	}
+
+	public String getMessage()
+	{
+		return message;
+	}
+
+	private final long id;
+	private final ClanMailType type;
+	private final String clanID;
+	private final String message;
+}
@@ -0,0 +1,67 @@
+package no.runsafe.clans;
+
+import no.runsafe.framework.api.player.IPlayer;
+
+public class ClanMemberPosition
+{
+	public ClanMemberPosition(IPlayer player, String clanID, String world, double x, double y, double z, boolean vanished)
+	{
+		this.player = player;
+		this.clanID = clanID;
+		this.world = world;
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.vanished = vanished;
+	}
+
+	public IPlayer getPlayer()
+	{
+		return player;
+	}
+
+	public String getClanID()
+	{
+		return clanID;
+	}
+
+	public String getWorld()
+	{
+		return world;
+	}
+
+	public double getX()
+	{
+		return x;
+	}
+
+	public double getY()
+	{
+		return y;
+	}
+
+	public double getZ()
+	{
+		return z;
+	}
+
+	public boolean isVanished()
+	{
+		return vanished;
+	}
+
+	public double distanceSquared(double otherX, double otherZ)
+	{
+		double deltaX = x - otherX;
+		double deltaZ = z - otherZ;
+		return deltaX * deltaX + deltaZ * deltaZ;
+	}
+
+	private final IPlayer player;
+	private final String clanID;
+	private final String world;
+	private final double x;
+	private final double y;
+	private final double z;
+	private final boolean vanished;
+}
@@ -0,0 +1,47 @@
+package no.runsafe.clans;
+
+import org.joda.time.DateTime;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class ClanPlayerData
+{
+	public ClanPlayerData(String clanID, DateTime joined, String joinedText, long builtAt)
+	{
+		this.clanID = clanID;
+		this.joined = joined;
+		this.builtAt = builtAt;
+
+		Map<String, String> values = new HashMap<String, String>(2);
+		values.put("runsafe.clans.clan", clanID == null ? "None" : clanID);
+		values.put("runsafe.clans.joined", joinedText);
+		data = Collections.unmodifiableMap(values);
+	}
+
+	public String getClanID()
+	{
+		return clanID;
+	}
+
+	public DateTime getJoined()
+	{
+		return joined;
+	}
+
+	public Map<String, String> getData()
+	{
+		return data;
+	}
+
+	public long getBuiltAt()
+	{
+		return builtAt;
+	}
+
+	private final String clanID;
+	private final DateTime joined;
+	private final Map<String, String> data;
+	private final long builtAt;
+}
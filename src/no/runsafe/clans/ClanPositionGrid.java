@@ -0,0 +1,112 @@
+package no.runsafe.clans;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// One sample of online clan member positions, bucketed per world into square cells of cellSize blocks.
+public class ClanPositionGrid
+{
+	public ClanPositionGrid(int cellSize)
+	{
+		this.cellSize = cellSize;
+	}
+
+	public void add(ClanMemberPosition position)
+	{
+		Map<Long, List<ClanMemberPosition>> worldCells = cells.get(position.getWorld());
+		if (worldCells == null)
+		{
+			worldCells = new HashMap<Long, List<ClanMemberPosition>>(0);
+			cells.put(position.getWorld(), worldCells);
+		}
+
+		long cell = getCell(getCellIndex(position.getX()), getCellIndex(position.getZ()));
+		if (!worldCells.containsKey(cell))
+			worldCells.put(cell, new ArrayList<ClanMemberPosition>(1));
+		worldCells.get(cell).add(position);
+
+		if (!clanMembers.containsKey(position.getClanID()))
+			clanMembers.put(position.getClanID(), new ArrayList<ClanMemberPosition>(1));
+		clanMembers.get(position.getClanID()).add(position);
+	}
+
+	public List<ClanMemberPosition> getClanMembers(String clanID)
+	{
+		List<ClanMemberPosition> members = clanMembers.get(clanID);
+		return members == null ? Collections.<ClanMemberPosition>emptyList() : members;
+	}
+
+	public int size()
+	{
+		int size = 0;
+		for (List<ClanMemberPosition> members : clanMembers.values())
+			size += members.size();
+		return size;
+	}
+
+	// Walks rings of cells outwards, stopping once no unvisited cell can hold anything closer than the best match.
+	public ClanMemberPosition findNearest(String clanID, String world, double x, double z, String excludePlayer, int maxRings)
+	{
+		Map<Long, List<ClanMemberPosition>> worldCells = cells.get(world);
+		if (worldCells == null)
+			return null;
+
+		int centreX = getCellIndex(x);
+		int centreZ = getCellIndex(z);
+		ClanMemberPosition nearest = null;
+		double nearestDistance = Double.MAX_VALUE;
+
+		for (int ring = 0; ring <= maxRings; ring++)
+		{
+			double ringDistance = (ring - 1) * (double) cellSize;
+			if (nearest != null && ring > 0 && ringDistance * ringDistance > nearestDistance)
+				break;
+
+			for (int cellX = centreX - ring; cellX <= centreX + ring; cellX++)
+			{
+				for (int cellZ = centreZ - ring; cellZ <= centreZ + ring; cellZ++)
+				{
+					// Only the outline of the ring, the inside was covered by the smaller rings.
+					if (Math.abs(cellX - centreX) != ring && Math.abs(cellZ - centreZ) != ring)
+						continue;
+
+					List<ClanMemberPosition> positions = worldCells.get(getCell(cellX, cellZ));
+					if (positions == null)
+						continue;
+
+					for (ClanMemberPosition position : positions)
+					{
+						// Vanished members still get flares, but pointing at them would give them away.
+						if (!position.getClanID().equals(clanID) || position.isVanished() || position.getPlayer().getName().equals(excludePlayer))
+							continue;
+
+						double distance = position.distanceSquared(x, z);
+						if (distance < nearestDistance)
+						{
+							nearest = position;
+							nearestDistance = distance;
+						}
+					}
+				}
+			}
+		}
+		return nearest;
+	}
+
+	private int getCellIndex(double coordinate)
+	{
+		return (int) Math.floor(coordinate / cellSize);
+	}
+
+	private static long getCell(int cellX, int cellZ)
+	{
+		return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+	}
+
+	private final int cellSize;
+	private final Map<String, Map<Long, List<ClanMemberPosition>>> cells = new HashMap<String, Map<Long, List<ClanMemberPosition>>>(0);
+	private final Map<String, List<ClanMemberPosition>> clanMembers = new HashMap<String, List<ClanMemberPosition>>(0);
+}
@@ -0,0 +1,115 @@
+package no.runsafe.clans;
+
+import no.runsafe.clans.database.ClanRelation;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+// Declared relations as one bit set per clan, indexed by encoded tag, so a pair is checked with two array reads.
+public class ClanRelations
+{
+	// Writers copy what they change and publish a new state, so the damage path reads without locking.
+	public synchronized void set(String clanID, String targetID, ClanRelation relation)
+	{
+		int clan = RivalryMatrix.encodeTag(clanID);
+		int target = RivalryMatrix.encodeTag(targetID);
+		if (clan < 0 || target < 0)
+			return;
+
+		// A clan can only hold one relation towards another, so declaring one drops the other.
+		BitSet[][] next = copy(state);
+		update(next[ALLIES], clan, target, relation == ClanRelation.ALLY);
+		update(next[ENEMIES], clan, target, relation == ClanRelation.ENEMY);
+		state = next;
+	}
+
+	public synchronized void remove(String clanID)
+	{
+		int clan = RivalryMatrix.encodeTag(clanID);
+		if (clan < 0)
+			return;
+
+		BitSet[][] next = copy(state);
+		for (BitSet[] relations : next)
+		{
+			relations[clan] = null;
+			for (int other = 0; other < TAG_COUNT; other++)
+				if (isSet(relations, other, clan))
+					update(relations, other, clan, false);
+		}
+		state = next;
+	}
+
+	public synchronized void replace(ClanRelations relations)
+	{
+		state = relations.state;
+	}
+
+	public ClanRelation get(String clanID, String targetID)
+	{
+		int clan = RivalryMatrix.encodeTag(clanID);
+		int target = RivalryMatrix.encodeTag(targetID);
+		if (clan < 0 || target < 0)
+			return ClanRelation.NEUTRAL;
+
+		BitSet[][] current = state;
+		if (isSet(current[ALLIES], clan, target))
+			return ClanRelation.ALLY;
+		if (isSet(current[ENEMIES], clan, target))
+			return ClanRelation.ENEMY;
+		return ClanRelation.NEUTRAL;
+	}
+
+	// An alliance only counts once both clans have declared it.
+	public boolean isAllied(String clanID, String targetID)
+	{
+		int clan = RivalryMatrix.encodeTag(clanID);
+		int target = RivalryMatrix.encodeTag(targetID);
+		BitSet[] allies = state[ALLIES];
+		return clan >= 0 && target >= 0 && isSet(allies, clan, target) && isSet(allies, target, clan);
+	}
+
+	public List<String> getDeclared(String clanID, ClanRelation relation)
+	{
+		List<String> targets = new ArrayList<String>(0);
+		int clan = RivalryMatrix.encodeTag(clanID);
+		if (clan < 0 || relation == ClanRelation.NEUTRAL)
+			return targets;
+
+		BitSet declared = state[relation == ClanRelation.ALLY ? ALLIES : ENEMIES][clan];
+		if (declared != null)
+			for (int target = declared.nextSetBit(0); target >= 0; target = declared.nextSetBit(target + 1))
+				targets.add(RivalryMatrix.decodeTag(target));
+		return targets;
+	}
+
+	private static boolean isSet(BitSet[] relations, int clan, int target)
+	{
+		BitSet declared = relations[clan];
+		return declared != null && declared.get(target);
+	}
+
+	// Never touches a published bit set, the changed one is replaced by a copy.
+	private static void update(BitSet[] relations, int clan, int target, boolean value)
+	{
+		BitSet current = relations[clan];
+		if (current == null && !value)
+			return;
+
+		BitSet changed = current == null ? new BitSet(TAG_COUNT) : (BitSet) current.clone();
+		changed.set(target, value);
+		relations[clan] = changed.isEmpty() ? null : changed;
+	}
+
+	private static BitSet[][] copy(BitSet[][] state)
+	{
+		return new BitSet[][]{state[ALLIES].clone(), state[ENEMIES].clone()};
+	}
+
+	private static final int TAG_COUNT = 26 * 26 * 26;
+	private static final int ALLIES = 0;
+	private static final int ENEMIES = 1;
+	// Only clans that declared something get a bit set, the rest of the arrays stay null.
+	private volatile BitSet[][] state = new BitSet[][]{new BitSet[TAG_COUNT], new BitSet[TAG_COUNT]};
+}
@@ -0,0 +1,43 @@
+package no.runsafe.clans;
+
+public class ClanRival
+{
+	public ClanRival(String clanID)
+	{
+		this.clanID = clanID;
+	}
+
+	public String getClanID()
+	{
+		return clanID;
+	}
+
+	public int getKills()
+	{
+		return kills;
+	}
+
+	public int getDeaths()
+	{
+		return deaths;
+	}
+
+	public int getTotal()
+	{
+		return kills + deaths;
+	}
+
+	void addKills(int amount)
+	{
+		kills += amount;
+	}
+
+	void addDeaths(int amount)
+	{
+		deaths += amount;
+	}
+
+	private final String clanID;
+	private int kills = 0;
+	private int deaths = 0;
+}
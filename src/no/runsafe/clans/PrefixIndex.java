@@ -0,0 +1,62 @@
+package no.runsafe.clans;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+public class PrefixIndex
+{
+	public void add(String value)
+	{
+		index.put(value.toLowerCase(), value);
+	}
+
+	public void remove(String value)
+	{
+		index.remove(value.toLowerCase());
+	}
+
+	public void clear()
+	{
+		index.clear();
+	}
+
+	public int size()
+	{
+		return index.size();
+	}
+
+	public String getExact(String value)
+	{
+		return index.get(value.toLowerCase());
+	}
+
+	public List<String> find(String prefix, int limit)
+	{
+		if (prefix == null || prefix.isEmpty())
+			return take(index, limit);
+
+		String from = prefix.toLowerCase();
+		return take(index.subMap(from, true, from + Character.MAX_VALUE, false), limit);
+	}
+
+	private static List<String> take(ConcurrentNavigableMap<String, String> range, int limit)
+	{
+		if (range.isEmpty())
+			return Collections.emptyList();
+
+		List<String> results = new ArrayList<String>(Math.min(limit, 16));
+		for (String value : range.values())
+		{
+			if (results.size() >= limit)
+				break;
+			results.add(value);
+		}
+		return results;
+	}
+
+	// Keyed by the lower-case value so lookups are case-insensitive but results keep their casing.
+	private final ConcurrentSkipListMap<String, String> index = new ConcurrentSkipListMap<String, String>();
+}
@@ -0,0 +1,219 @@
+package no.runsafe.clans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Sparse kill counts between clan pairs, held in an open addressing table of primitive ints.
+public class RivalryMatrix
+{
+	public RivalryMatrix()
+	{
+		allocate(INITIAL_CAPACITY);
+	}
+
+	// Tags are three letters, 26^3 codes fit in 15 bits, so a killer/victim pair fits in one int.
+	public static int encodeTag(String tag)
+	{
+		if (tag == null || tag.length() != 3)
+			return -1;
+
+		int code = 0;
+		for (int i = 0; i < 3; i++)
+		{
+			char letter = tag.charAt(i);
+			if (letter < 'A' || letter > 'Z')
+				return -1;
+			code = code * 26 + (letter - 'A');
+		}
+		return code;
+	}
+
+	public static String decodeTag(int code)
+	{
+		char[] tag = new char[3];
+		for (int i = 2; i >= 0; i--)
+		{
+			tag[i] = (char) ('A' + code % 26);
+			code /= 26;
+		}
+		return new String(tag);
+	}
+
+	public synchronized void addKill(String killerClan, String victimClan)
+	{
+		int slot = slotFor(killerClan, victimClan);
+		if (slot < 0)
+			return;
+
+		kills[slot]++;
+		pending[slot]++;
+	}
+
+	// Counts loaded from storage are already persisted, so they are not marked as pending.
+	public synchronized void load(String killerClan, String victimClan, int amount)
+	{
+		int slot = slotFor(killerClan, victimClan);
+		if (slot >= 0)
+			kills[slot] = amount;
+	}
+
+	// Drops every pair the clan is part of, unsaved kills included, so a new clan with the same tag starts without rivals.
+	public synchronized void remove(String clanID)
+	{
+		int code = encodeTag(clanID);
+		if (code >= 0)
+			rebuild(keys.length, code);
+	}
+
+	// Takes over a freshly loaded matrix, so everyone holding this one sees the new counts.
+	public synchronized void replace(RivalryMatrix loaded)
+	{
+		synchronized (loaded)
+		{
+			keys = loaded.keys;
+			kills = loaded.kills;
+			pending = loaded.pending;
+			size = loaded.size;
+		}
+	}
+
+	public synchronized List<ClanRival> getRivals(String clanID)
+	{
+		int code = encodeTag(clanID);
+		Map<Integer, ClanRival> rivals = new HashMap<Integer, ClanRival>(0);
+		if (code < 0)
+			return new ArrayList<ClanRival>(0);
+
+		for (int slot = 0; slot < keys.length; slot++)
+		{
+			int key = keys[slot];
+			if (key == EMPTY)
+				continue;
+
+			int killer = key >>> TAG_BITS;
+			int victim = key & TAG_MASK;
+			if (killer == code)
+				getRival(rivals, victim).addKills(kills[slot]);
+			else if (victim == code)
+				getRival(rivals, killer).addDeaths(kills[slot]);
+		}
+
+		List<ClanRival> sorted = new ArrayList<ClanRival>(rivals.values());
+		Collections.sort(sorted, new Comparator<ClanRival>()
+		{
+			@Override
+			public int compare(ClanRival one, ClanRival two)
+			{
+				return two.getTotal() - one.getTotal();
+			}
+		});
+		return sorted;
+	}
+
+	// Hands out one row per pair with unsaved kills as {killer clan, victim clan, kills}.
+	public synchronized List<Object[]> drainPending()
+	{
+		List<Object[]> rows = new ArrayList<Object[]>(0);
+		for (int slot = 0; slot < keys.length; slot++)
+		{
+			if (pending[slot] == 0)
+				continue;
+
+			rows.add(new Object[]{decodeTag(keys[slot] >>> TAG_BITS), decodeTag(keys[slot] & TAG_MASK), pending[slot]});
+			pending[slot] = 0;
+		}
+		return rows;
+	}
+
+	public synchronized int size()
+	{
+		return size;
+	}
+
+	private int slotFor(String killerClan, String victimClan)
+	{
+		int killer = encodeTag(killerClan);
+		int victim = encodeTag(victimClan);
+		if (killer < 0 || victim < 0)
+			return -1;
+
+		int key = (killer << TAG_BITS) | victim;
+		int slot = find(key);
+		if (keys[slot] == EMPTY)
+		{
+			if ((size + 1) * 4 > keys.length * 3)
+			{
+				rebuild(keys.length * 2, -1);
+				slot = find(key);
+			}
+			keys[slot] = key;
+			size++;
+		}
+		return slot;
+	}
+
+	private int find(int key)
+	{
+		int mask = keys.length - 1;
+		int slot = (key * 0x9E3779B9) >>> 7 & mask; // Spread neighbouring tags across the table.
+		while (keys[slot] != EMPTY && keys[slot] != key)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	// Open addressing can't just empty a slot, so pairs are dropped by moving everything else into a new table.
+	private void rebuild(int capacity, int withoutClan)
+	{
+		int[] oldKeys = keys;
+		int[] oldKills = kills;
+		int[] oldPending = pending;
+		allocate(capacity);
+		size = 0;
+
+		for (int slot = 0; slot < oldKeys.length; slot++)
+		{
+			int key = oldKeys[slot];
+			if (key == EMPTY || key >>> TAG_BITS == withoutClan || (key & TAG_MASK) == withoutClan)
+				continue;
+
+			size++;
+			int target = find(key);
+			keys[target] = key;
+			kills[target] = oldKills[slot];
+			pending[target] = oldPending[slot];
+		}
+	}
+
+	private void allocate(int capacity)
+	{
+		keys = new int[capacity];
+		kills = new int[capacity];
+		pending = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	private static ClanRival getRival(Map<Integer, ClanRival> rivals, int code)
+	{
+		ClanRival rival = rivals.get(code);
+		if (rival == null)
+		{
+			rival = new ClanRival(decodeTag(code));
+			rivals.put(code, rival);
+		}
+		return rival;
+	}
+
+	private static final int TAG_BITS = 15;
+	private static final int TAG_MASK = (1 << TAG_BITS) - 1;
+	private static final int EMPTY = -1; // Pair keys use 30 bits, so they are never negative.
+	private static final int INITIAL_CAPACITY = 64;
+	private int[] keys;
+	private int[] kills;
+	private int[] pending;
+	private int size = 0;
+}
@@ -1,13 +1,38 @@
 package no.runsafe.clans;
 
 import no.runsafe.clans.commands.*;
+import no.runsafe.clans.database.CharterRepository;
+import no.runsafe.clans.database.ClanChangeRepository;
 import no.runsafe.clans.database.ClanInviteRepository;
+import no.runsafe.clans.database.ClanMailRepository;
 import no.runsafe.clans.database.ClanMemberRepository;
+import no.runsafe.clans.database.ClanMemberStatsRepository;
+import no.runsafe.clans.database.ClanRelationRepository;
 import no.runsafe.clans.database.ClanRepository;
+import no.runsafe.clans.database.ClanRivalryRepository;
+import no.runsafe.clans.database.ClanTransferQueries;
+import no.runsafe.clans.database.ReplicaReadSource;
+import no.runsafe.clans.database.StatementExecutor;
 import no.runsafe.clans.handlers.CharterHandler;
+import no.runsafe.clans.handlers.ClanChatHistory;
+import no.runsafe.clans.handlers.ClanEventBridge;
+import no.runsafe.clans.handlers.ClanEventBus;
 import no.runsafe.clans.handlers.ClanHandler;
+import no.runsafe.clans.handlers.ClanIntegrityScanner;
+import no.runsafe.clans.handlers.ClanJsonViews;
+import no.runsafe.clans.handlers.ClanLocator;
+import no.runsafe.clans.handlers.ClanLoginQueue;
+import no.runsafe.clans.handlers.ClanMailbox;
+import no.runsafe.clans.handlers.ClanStatsEndpoint;
+import no.runsafe.clans.handlers.ClanSyncHandler;
+import no.runsafe.clans.handlers.ClanTraceRecorder;
+import no.runsafe.clans.handlers.ClanTransferHandler;
+import no.runsafe.clans.handlers.ClanWebExporter;
 import no.runsafe.clans.handlers.RankingHandler;
+import no.runsafe.clans.handlers.RelationHandler;
+import no.runsafe.clans.handlers.RivalryHandler;
 import no.runsafe.clans.monitors.CombatMonitor;
+import no.runsafe.clans.monitors.CombatResolver;
 import no.runsafe.clans.monitors.DergonKillMonitor;
 import no.runsafe.clans.monitors.PlayerMonitor;
 import no.runsafe.framework.RunsafeConfigurablePlugin;
@@ -29,16 +54,43 @@ public class RunsafeClans extends RunsafeConfigurablePlugin
 		addComponent(Config.class);
 
 		// Database
+		addComponent(ReplicaReadSource.class);
+		addComponent(StatementExecutor.class);
 		addComponent(ClanRepository.class);
 		addComponent(ClanMemberRepository.class);
 		addComponent(ClanInviteRepository.class);
+		addComponent(ClanChangeRepository.class);
+		addComponent(ClanMemberStatsRepository.class);
+		addComponent(ClanRivalryRepository.class);
+		addComponent(ClanRelationRepository.class);
+		addComponent(CharterRepository.class);
+		addComponent(ClanTransferQueries.class);
+		addComponent(ClanMailRepository.class);
 
 		// Handlers/Monitors
+		addComponent(ClanRelations.class);
+		addComponent(RivalryMatrix.class);
+		addComponent(ClanEventBus.class);
+		addComponent(ClanMailbox.class);
+		addComponent(ClanChatHistory.class);
 		addComponent(CharterHandler.class);
 		addComponent(ClanHandler.class);
+		addComponent(ClanEventBridge.class);
+		addComponent(ClanSyncHandler.class);
+		addComponent(ClanLoginQueue.class);
+		addComponent(RivalryHandler.class);
+		addComponent(RelationHandler.class);
+		addComponent(ClanLocator.class);
+		addComponent(ClanTransferHandler.class);
+		addComponent(ClanIntegrityScanner.class);
+		addComponent(ClanTraceRecorder.class);
 		addComponent(PlayerMonitor.class);
+		addComponent(CombatResolver.class);
 		addComponent(CombatMonitor.class);
 		addComponent(RankingHandler.class);
+		addComponent(ClanJsonViews.class);
+		addComponent(ClanWebExporter.class);
+		addComponent(ClanStatsEndpoint.class);
 		addComponent(DergonKillMonitor.class);
 
 		// Commands
@@ -59,5 +111,14 @@ public class RunsafeClans extends RunsafeConfigurablePlugin
 		clans.addSubCommand(getInstance(ClanRankings.class));
 		clans.addSubCommand(getInstance(ListClans.class));
 		clans.addSubCommand(getInstance(ClanFlare.class));
+		clans.addSubCommand(getInstance(SearchClan.class));
+		clans.addSubCommand(getInstance(ClanLeaderboard.class));
+		clans.addSubCommand(getInstance(ClanRivals.class));
+		clans.addSubCommand(getInstance(SetRelation.class));
+		clans.addSubCommand(getInstance(ClanDiagnostics.class));
+		clans.addSubCommand(getInstance(ExportClans.class));
+		clans.addSubCommand(getInstance(ImportClans.class));
+		clans.addSubCommand(getInstance(StartTrace.class));
+		clans.addSubCommand(getInstance(StopTrace.class));
 	}
 }
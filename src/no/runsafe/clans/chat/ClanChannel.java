@@ -1,18 +1,21 @@
 package no.runsafe.clans.chat;
 
+import no.runsafe.clans.handlers.ClanChatHistory;
 import no.runsafe.clans.handlers.ClanHandler;
 import no.runsafe.framework.api.log.IConsole;
 import no.runsafe.nchat.channel.BasicChatChannel;
 import no.runsafe.nchat.channel.IChannelManager;
+import no.runsafe.nchat.chat.InternalRealChatEvent;
 
 import javax.annotation.Nullable;
 
 public class ClanChannel extends BasicChatChannel
 {
-	public ClanChannel(IConsole console, IChannelManager manager, String name, ClanHandler handler)
+	public ClanChannel(IConsole console, IChannelManager manager, String name, ClanHandler handler, ClanChatHistory history)
 	{
 		super(console, manager, name);
 		this.handler = handler;
+		this.history = history;
 	}
 
 	@Nullable
@@ -22,5 +25,20 @@ public class ClanChannel extends BasicChatChannel
 		return handler.formatClanTag(getName());
 	}
 
+	@Override
+	public void Send(InternalRealChatEvent event)
+	{
+		super.Send(event);
+		history.record(getName(), getCustomTag() + event.getPlayer().getPrettyName() + "&r: " + event.getMessage());
+	}
+
+	@Override
+	public void SendSystem(String message)
+	{
+		super.SendSystem(message);
+		history.record(getName(), message);
+	}
+
 	private final ClanHandler handler;
+	private final ClanChatHistory history;
 }
@@ -0,0 +1,65 @@
+package no.runsafe.clans.chat;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+// The latest lines of a clan channel, kept as UTF-8 and never more than a fixed number of lines or bytes.
+public class ClanChatRing
+{
+	public ClanChatRing(int maxLines, int maxBytes)
+	{
+		lines = new byte[maxLines][];
+		this.maxBytes = maxBytes;
+	}
+
+	public synchronized void add(String line, long time)
+	{
+		byte[] encoded = line.getBytes(UTF8);
+		if (encoded.length > maxBytes)
+			return; // Could never fit, rather than emptying the ring for it.
+
+		// Drop the oldest lines until there is room by both count and size.
+		while (count == lines.length || usedBytes + encoded.length > maxBytes)
+		{
+			int oldest = (head - count + lines.length) % lines.length;
+			usedBytes -= lines[oldest].length;
+			lines[oldest] = null;
+			count--;
+		}
+
+		lines[head] = encoded;
+		head = (head + 1) % lines.length;
+		count++;
+		usedBytes += encoded.length;
+		lastActivity = time;
+	}
+
+	// Up to the given number of the newest lines, oldest first.
+	public synchronized List<String> getLatest(int limit)
+	{
+		int take = Math.min(limit, count);
+		List<String> latest = new ArrayList<String>(take);
+		for (int i = take; i > 0; i--)
+			latest.add(new String(lines[(head - i + lines.length) % lines.length], UTF8));
+		return latest;
+	}
+
+	public synchronized long getLastActivity()
+	{
+		return lastActivity;
+	}
+
+	public synchronized int getUsedBytes()
+	{
+		return usedBytes;
+	}
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private final byte[][] lines;
+	private final int maxBytes;
+	private int head;
+	private int count;
+	private int usedBytes;
+	private long lastActivity;
+}
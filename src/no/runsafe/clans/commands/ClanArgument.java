@@ -0,0 +1,26 @@
+package no.runsafe.clans.commands;
+
+import no.runsafe.clans.handlers.ClanHandler;
+import no.runsafe.framework.api.command.argument.ITabComplete;
+import no.runsafe.framework.api.command.argument.RequiredArgument;
+import no.runsafe.framework.api.player.IPlayer;
+
+import java.util.List;
+
+public class ClanArgument extends RequiredArgument implements ITabComplete
+{
+	public ClanArgument(String name, ClanHandler handler)
+	{
+		super(name);
+		this.handler = handler;
+	}
+
+	@Override
+	public List<String> getAlternatives(IPlayer executor, String partial)
+	{
+		return handler.findClans(partial, SUGGESTION_LIMIT);
+	}
+
+	private static final int SUGGESTION_LIMIT = 20;
+	private final ClanHandler handler;
+}
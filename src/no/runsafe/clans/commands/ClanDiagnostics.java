@@ -0,0 +1,75 @@
+package no.runsafe.clans.commands;
+
+import no.runsafe.clans.database.StatementExecutor;
+import no.runsafe.clans.handlers.ClanHandler;
+import no.runsafe.clans.events.ClanEventSubscription;
+import no.runsafe.clans.handlers.ClanChatHistory;
+import no.runsafe.clans.handlers.ClanEventBus;
+import no.runsafe.clans.handlers.ClanIntegrityScanner;
+import no.runsafe.clans.handlers.ClanStatsEndpoint;
+import no.runsafe.clans.handlers.ClanSyncHandler;
+import no.runsafe.clans.handlers.ClanWebExporter;
+import no.runsafe.clans.handlers.RivalryHandler;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.command.AsyncCommand;
+import no.runsafe.framework.api.command.ICommandExecutor;
+import no.runsafe.framework.api.command.argument.IArgumentList;
+
+import java.util.Map;
+
+public class ClanDiagnostics extends AsyncCommand
+{
+	public ClanDiagnostics(IScheduler scheduler, ClanHandler clanHandler, ClanSyncHandler syncHandler, RivalryHandler rivalryHandler, ClanIntegrityScanner integrityScanner, ClanEventBus eventBus, ClanChatHistory chatHistory, ClanWebExporter webExporter, ClanStatsEndpoint statsEndpoint, StatementExecutor statements)
+	{
+		super("diagnostics", "Show clan cache and database statistics", "runsafe.clans.diagnostics", scheduler);
+		this.clanHandler = clanHandler;
+		this.syncHandler = syncHandler;
+		this.rivalryHandler = rivalryHandler;
+		this.integrityScanner = integrityScanner;
+		this.eventBus = eventBus;
+		this.chatHistory = chatHistory;
+		this.webExporter = webExporter;
+		this.statsEndpoint = statsEndpoint;
+		this.statements = statements;
+	}
+
+	@Override
+	public String OnAsyncExecute(ICommandExecutor executor, IArgumentList parameters)
+	{
+		StringBuilder info = new StringBuilder("Clan diagnostics:");
+		info.append(formatLine("Player data entries", clanHandler.getPlayerDataCount()));
+		info.append(formatLine("Player data hits", clanHandler.getPlayerDataHits()));
+		info.append(formatLine("Player data misses", clanHandler.getPlayerDataMisses()));
+		if (clanHandler.getJournal() != null)
+			info.append(formatLine("Journal", clanHandler.getJournal().getPending() + " pending, " + clanHandler.getJournal().getUsage() + " bytes"));
+		info.append(formatLine("Rivalry pairs", rivalryHandler.getPairCount()));
+		info.append(formatLine("Integrity", integrityScanner.getScannedRows() + " rows in " + integrityScanner.getCycles() + " cycles, " + integrityScanner.getIssues() + " issues, " + integrityScanner.getRepairs() + " repairs"));
+		for (ClanEventSubscription subscription : eventBus.getSubscriptions())
+			info.append(formatLine("Events: " + subscription.getName(), subscription.getQueued() + " queued, " + subscription.getDelivered() + " delivered, " + subscription.getDropped() + " dropped, lag " + subscription.getLastLag() + "ms (max " + subscription.getMaxLag() + "ms)"));
+		info.append(formatLine("Chat history", chatHistory.getClanCount() + " clans, " + chatHistory.getUsedBytes() + " bytes"));
+		info.append(formatLine("Web export", webExporter.getPublishedCount() + " files, " + webExporter.getLastWritten() + " written last run"));
+		info.append(formatLine("Stats endpoint", statsEndpoint.getAddress() == null ? "disabled" : statsEndpoint.getAddress() + ", " + statsEndpoint.getRequests() + " requests, " + statsEndpoint.getNotModified() + " not modified"));
+		info.append(formatLine("Reads", statements.getReplicaReads() + " from replica, " + statements.getPinnedReads() + " kept on primary"));
+		info.append(formatLine("Sync", clanHandler.isSyncEnabled() ? "change " + syncHandler.getLastChange() + ", " + syncHandler.getMissingCount() + " gaps pending" : "disabled"));
+
+		for (Map.Entry<String, Long> count : statements.getStatementCounts().entrySet())
+			info.append(formatLine(count.getKey(), count.getValue()));
+
+		return info.toString();
+	}
+
+	private String formatLine(String key, Object value)
+	{
+		return "\n- &6" + key + ": &r" + value;
+	}
+
+	private final ClanHandler clanHandler;
+	private final ClanSyncHandler syncHandler;
+	private final RivalryHandler rivalryHandler;
+	private final ClanIntegrityScanner integrityScanner;
+	private final ClanEventBus eventBus;
+	private final ClanChatHistory chatHistory;
+	private final ClanWebExporter webExporter;
+	private final ClanStatsEndpoint statsEndpoint;
+	private final StatementExecutor statements;
+}
@@ -1,6 +1,10 @@
 package no.runsafe.clans.commands;
 
+import no.runsafe.clans.ClanMemberPosition;
+import no.runsafe.clans.ClanPositionGrid;
+import no.runsafe.clans.handlers.ClanChatHistory;
 import no.runsafe.clans.handlers.ClanHandler;
+import no.runsafe.clans.handlers.ClanLocator;
 import no.runsafe.framework.api.ILocation;
 import no.runsafe.framework.api.command.argument.IArgumentList;
 import no.runsafe.framework.api.command.player.PlayerCommand;
@@ -8,30 +12,83 @@ import no.runsafe.framework.api.player.IPlayer;
 
 public class ClanFlare extends PlayerCommand
 {
-	public ClanFlare(ClanHandler handler)
+	public ClanFlare(ClanHandler handler, ClanLocator locator, ClanChatHistory chatHistory)
 	{
-		super("flare", "Broadcast your location in clan chat", "runsafe.clans.flare");
+		super("flare", "Send your location to your clanmates", "runsafe.clans.flare");
 		this.handler = handler;
+		this.locator = locator;
+		this.chatHistory = chatHistory;
 	}
 
 	@Override
 	public String OnExecute(IPlayer executor, IArgumentList parameters)
 	{
-		if (!handler.playerIsInClan(executor.getName()))
+		String playerName = executor.getName();
+		String clanID = handler.getPlayerClanID(playerName);
+		if (clanID == null)
 			return "&cYou are not in a clan.";
 
 		ILocation location = executor.getLocation();
 		if (location == null)
 			return "&cYou are nowhere.";
 
-		handler.clanChat(executor, String.format(
-				"Assistance required at X: %s, Y: %s, Z: %s!",
-				location.getBlockX(),
-				location.getBlockY(),
-				location.getBlockZ()
-		));
-		return null;
+		long cooldown = locator.getFlareCooldown(playerName, clanID);
+		if (cooldown > 0)
+			return "&cYou need to wait " + cooldown + " seconds before sending another flare.";
+
+		String world = location.getWorld().getName();
+		double x = location.getX();
+		double z = location.getZ();
+		String coordinates = String.format("X: %s, Y: %s, Z: %s", location.getBlockX(), location.getBlockY(), location.getBlockZ());
+
+		// Only the sampled members of this clan are visited, never the whole server.
+		ClanPositionGrid positions = locator.getPositions();
+		int notified = 0;
+		for (ClanMemberPosition member : positions.getClanMembers(clanID))
+		{
+			IPlayer recipient = member.getPlayer();
+			if (recipient.getName().equals(playerName))
+				continue;
+
+			String where = member.getWorld().equals(world)
+				? formatDistance(member.getX(), member.getZ(), x, z) + " (" + coordinates + ")"
+				: "in " + world + " (" + coordinates + ")";
+			recipient.sendColouredMessage(handler.formatClanMessage(clanID, executor.getPrettyName() + "&r requires assistance " + where + "!"));
+			notified++;
+		}
+
+		if (notified == 0)
+			return "&cNone of your clanmates are online to see your flare.";
+
+		locator.recordFlare(playerName, clanID); // A flare nobody saw does not count towards the cooldown.
+
+		// Only a flare that went out is kept for members logging in later, a refused one would be replayed as if it had.
+		chatHistory.record(clanID, handler.formatClanMessage(clanID, executor.getPrettyName() + "&r requested assistance in " + world + " (" + coordinates + ")."));
+
+		ClanMemberPosition nearest = positions.findNearest(clanID, world, x, z, playerName, MAX_RINGS);
+		if (nearest == null)
+			return "&aFlare sent to " + notified + " clanmates, none of them are nearby.";
+
+		return "&aFlare sent to " + notified + " clanmates, the nearest is " + nearest.getPlayer().getPrettyName() + "&a, " + formatDistance(x, z, nearest.getX(), nearest.getZ()) + ".";
+	}
+
+	// Distance and compass direction from one point to another, north being negative Z.
+	private static String formatDistance(double fromX, double fromZ, double toX, double toZ)
+	{
+		double deltaX = toX - fromX;
+		double deltaZ = toZ - fromZ;
+		int distance = (int) Math.round(Math.sqrt(deltaX * deltaX + deltaZ * deltaZ));
+		if (distance == 0)
+			return "right here";
+
+		double angle = Math.toDegrees(Math.atan2(deltaX, -deltaZ));
+		int direction = (int) Math.round((angle + 360) / 45) % 8;
+		return distance + " blocks " + DIRECTIONS[direction];
 	}
 
+	private static final String[] DIRECTIONS = {"north", "north-east", "east", "south-east", "south", "south-west", "west", "north-west"};
+	private static final int MAX_RINGS = 16;
 	private final ClanHandler handler;
+	private final ClanLocator locator;
+	private final ClanChatHistory chatHistory;
 }
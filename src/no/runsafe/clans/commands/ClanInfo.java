@@ -1,24 +1,28 @@
 package no.runsafe.clans.commands;
 
 import no.runsafe.clans.Clan;
+import no.runsafe.clans.database.ClanRelation;
+import no.runsafe.clans.database.ClanStatistic;
 import no.runsafe.clans.handlers.ClanHandler;
 import no.runsafe.clans.handlers.RankingHandler;
+import no.runsafe.clans.handlers.RelationHandler;
 import no.runsafe.framework.api.IScheduler;
 import no.runsafe.framework.api.command.AsyncCommand;
 import no.runsafe.framework.api.command.ICommandExecutor;
 import no.runsafe.framework.api.command.argument.IArgumentList;
-import no.runsafe.framework.api.command.argument.RequiredArgument;
 import org.apache.commons.lang.StringUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class ClanInfo extends AsyncCommand
 {
-	public ClanInfo(IScheduler scheduler, ClanHandler clanHandler, RankingHandler rankHandler)
+	public ClanInfo(IScheduler scheduler, ClanHandler clanHandler, RankingHandler rankHandler, RelationHandler relationHandler)
 	{
-		super("info", "Get information on another clan", "runsafe.clans.info", scheduler, new RequiredArgument("clan"));
+		super("info", "Get information on another clan", "runsafe.clans.info", scheduler, new ClanArgument("clan", clanHandler));
 		this.clanHandler = clanHandler;
 		this.rankHandler = rankHandler;
+		this.relationHandler = relationHandler;
 	}
 
 	@Override
@@ -38,6 +42,9 @@ public class ClanInfo extends AsyncCommand
 		info.append(formatLine("Enemy Clan Kills", clan.getClanKills()));
 		info.append(formatLine("Enemy Clan Deaths", clan.getClanDeaths()));
 		info.append(formatLine("Dergon Kills", clan.getDergonKills()));
+		info.append(formatLine("Top Members", formatTopMembers(clan)));
+		info.append(formatLine("Allies", formatAllies(clanName)));
+		info.append(formatLine("Enemies", formatList(relationHandler.getDeclared(clanName, ClanRelation.ENEMY))));
 
 		int ranking = -1;
 		int currentRanking = 1;
@@ -58,6 +65,29 @@ public class ClanInfo extends AsyncCommand
 		return info.toString();
 	}
 
+	private String formatTopMembers(Clan clan)
+	{
+		List<String> topMembers = clan.getTopMembers(ClanStatistic.KILLS, 3);
+		List<String> entries = new ArrayList<String>(topMembers.size());
+		for (String member : topMembers)
+			entries.add(member + " (" + clan.getMemberStatistic(member, ClanStatistic.KILLS) + "/" + clan.getMemberStatistic(member, ClanStatistic.DEATHS) + "/" + clan.getMemberStatistic(member, ClanStatistic.ASSISTS) + ")");
+		return entries.isEmpty() ? "None" : StringUtils.join(entries, ", ");
+	}
+
+	private String formatAllies(String clanName)
+	{
+		List<String> allies = new ArrayList<String>(0);
+		for (String target : relationHandler.getDeclared(clanName, ClanRelation.ALLY))
+			if (relationHandler.isAllied(clanName, target))
+				allies.add(target);
+		return formatList(allies);
+	}
+
+	private String formatList(List<String> values)
+	{
+		return values.isEmpty() ? "None" : StringUtils.join(values, ", ");
+	}
+
 	private String formatLine(String key, Object value)
 	{
 		return "\n- &6" + key + ": &r" + value;
@@ -65,4 +95,5 @@ public class ClanInfo extends AsyncCommand
 
 	private final ClanHandler clanHandler;
 	private final RankingHandler rankHandler;
+	private final RelationHandler relationHandler;
 }
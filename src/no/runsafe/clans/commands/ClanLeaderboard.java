@@ -0,0 +1,67 @@
+package no.runsafe.clans.commands;
+
+import no.runsafe.clans.Clan;
+import no.runsafe.clans.database.ClanStatistic;
+import no.runsafe.clans.handlers.ClanHandler;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.command.AsyncCommand;
+import no.runsafe.framework.api.command.ICommandExecutor;
+import no.runsafe.framework.api.command.argument.IArgumentList;
+import no.runsafe.framework.api.command.argument.OptionalArgument;
+
+import java.util.List;
+
+public class ClanLeaderboard extends AsyncCommand
+{
+	public ClanLeaderboard(IScheduler scheduler, ClanHandler clanHandler)
+	{
+		super("leaderboard", "View the top members of a clan", "runsafe.clans.leaderboard", scheduler, new ClanArgument("clan", clanHandler), new OptionalArgument("statistic"));
+		this.clanHandler = clanHandler;
+	}
+
+	@Override
+	public String OnAsyncExecute(ICommandExecutor executor, IArgumentList parameters)
+	{
+		String clanName = parameters.get("clan").toUpperCase();
+
+		if (!clanHandler.clanExists(clanName))
+			return "&cNo clan named '" + clanName + "' exists.";
+
+		ClanStatistic statistic = getStatistic(parameters.get("statistic"));
+		if (statistic == null)
+			return "&cUnknown statistic, pick one of: kills, deaths, dergons, assists.";
+
+		Clan clan = clanHandler.getClan(clanName);
+		StringBuilder data = new StringBuilder("Top members of " + clanName + " by " + statistic.name().toLowerCase().replace('_', ' '));
+		List<String> members = clan.getTopMembers(statistic, 10);
+
+		int current = 1;
+		for (String member : members)
+		{
+			data.append(formatLine(current + ". " + member, clan.getMemberStatistic(member, statistic)));
+			current += 1;
+		}
+
+		return data.toString();
+	}
+
+	private ClanStatistic getStatistic(String name)
+	{
+		if (name == null || name.equalsIgnoreCase("kills"))
+			return ClanStatistic.KILLS;
+		if (name.equalsIgnoreCase("deaths"))
+			return ClanStatistic.DEATHS;
+		if (name.equalsIgnoreCase("dergons"))
+			return ClanStatistic.DERGON_KILLS;
+		if (name.equalsIgnoreCase("assists"))
+			return ClanStatistic.ASSISTS;
+		return null;
+	}
+
+	private String formatLine(Object key, Object value)
+	{
+		return "\n- &6" + key + ": &r" + value;
+	}
+
+	private final ClanHandler clanHandler;
+}
@@ -0,0 +1,39 @@
+package no.runsafe.clans.commands;
+
+import no.runsafe.clans.Clan;
+import no.runsafe.clans.handlers.ClanHandler;
+import no.runsafe.framework.api.command.argument.ITabComplete;
+import no.runsafe.framework.api.command.argument.RequiredArgument;
+import no.runsafe.framework.api.player.IPlayer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ClanMemberArgument extends RequiredArgument implements ITabComplete
+{
+	public ClanMemberArgument(String name, ClanHandler handler)
+	{
+		super(name);
+		this.handler = handler;
+	}
+
+	@Override
+	public List<String> getAlternatives(IPlayer executor, String partial)
+	{
+		Clan clan = handler.getPlayerClan(executor.getName());
+		if (clan == null)
+			return Collections.emptyList();
+
+		// Rosters are capped by the clan size, so a scan of the executors own clan is cheap.
+		String prefix = partial == null ? "" : partial.toLowerCase();
+		List<String> members = new ArrayList<String>(clan.getMemberCount());
+		for (String member : clan.getMembers())
+			if (member.toLowerCase().startsWith(prefix))
+				members.add(member);
+
+		return members;
+	}
+
+	private final ClanHandler handler;
+}
@@ -0,0 +1,52 @@
+package no.runsafe.clans.commands;
+
+import no.runsafe.clans.ClanRival;
+import no.runsafe.clans.handlers.ClanHandler;
+import no.runsafe.clans.handlers.RivalryHandler;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.command.AsyncCommand;
+import no.runsafe.framework.api.command.ICommandExecutor;
+import no.runsafe.framework.api.command.argument.IArgumentList;
+
+import java.util.List;
+
+public class ClanRivals extends AsyncCommand
+{
+	public ClanRivals(IScheduler scheduler, ClanHandler clanHandler, RivalryHandler rivalryHandler)
+	{
+		super("rivals", "View the top rivals of a clan", "runsafe.clans.rivals", scheduler, new ClanArgument("clan", clanHandler));
+		this.clanHandler = clanHandler;
+		this.rivalryHandler = rivalryHandler;
+	}
+
+	@Override
+	public String OnAsyncExecute(ICommandExecutor executor, IArgumentList parameters)
+	{
+		String clanName = parameters.get("clan").toUpperCase();
+
+		if (!clanHandler.clanExists(clanName))
+			return "&cNo clan named '" + clanName + "' exists.";
+
+		List<ClanRival> rivals = rivalryHandler.getRivals(clanName, 5);
+		if (rivals.isEmpty())
+			return "&c" + clanName + " has no rivals yet.";
+
+		StringBuilder data = new StringBuilder("Top rivals of " + clanName);
+		int current = 1;
+		for (ClanRival rival : rivals)
+		{
+			data.append(formatLine(current + ". " + rival.getClanID(), rival.getKills() + " kills, " + rival.getDeaths() + " deaths"));
+			current += 1;
+		}
+
+		return data.toString();
+	}
+
+	private String formatLine(Object key, Object value)
+	{
+		return "\n- &6" + key + ": &r" + value;
+	}
+
+	private final ClanHandler clanHandler;
+	private final RivalryHandler rivalryHandler;
+}
@@ -20,6 +20,9 @@ public class CreateClan extends PlayerAsyncCommand
 	@Override
 	public String OnAsyncExecute(IPlayer executor, IArgumentList parameters)
 	{
+		if (clanHandler.isImporting())
+			return "&cClans are being imported, try again in a moment.";
+
 		String clanName = parameters.get("clanTag").toUpperCase();
 
 		// Check we have been given a valid clan name.
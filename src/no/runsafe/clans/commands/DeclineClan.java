@@ -18,10 +18,14 @@ public class DeclineClan extends PlayerAsyncCommand
 	@Override
 	public String OnAsyncExecute(IPlayer executor, IArgumentList parameters)
 	{
+		if (clanHandler.isImporting())
+			return "&cClans are being imported, try again in a moment.";
+
 		String clanName = parameters.get("clan").toUpperCase();
 		if (clanHandler.playerHasPendingInvite(clanName, executor.getName()))
 		{
-			clanHandler.removePendingInvite(executor, clanName);
+			if (!clanHandler.removePendingInvite(executor, clanName))
+				return "&cClans are being imported, try again in a moment.";
 			return "&cInvitation to " + clanName + " declined.";
 		}
 		return "&cYou have not been invited to that clan.";
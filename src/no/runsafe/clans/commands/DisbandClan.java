@@ -1,5 +1,6 @@
 package no.runsafe.clans.commands;
 
+import no.runsafe.clans.Clan;
 import no.runsafe.clans.handlers.ClanHandler;
 import no.runsafe.framework.api.IScheduler;
 import no.runsafe.framework.api.command.argument.IArgumentList;
@@ -17,6 +18,9 @@ public class DisbandClan extends PlayerAsyncCommand
 	@Override
 	public String OnAsyncExecute(IPlayer player, IArgumentList parameters)
 	{
+		if (clanHandler.isImporting())
+			return "&cClans are being imported, try again in a moment.";
+
 		String playerName = player.getName();
 		if (!clanHandler.playerIsInClan(playerName))
 			return "&cYou are not in a clan.";
@@ -24,7 +28,9 @@ public class DisbandClan extends PlayerAsyncCommand
 		if (!clanHandler.playerIsClanLeader(playerName))
 			return "&cYou are not the clan leader.";
 
-		clanHandler.disbandClan(clanHandler.getPlayerClan(playerName));
+		Clan clan = clanHandler.getPlayerClan(playerName);
+		if (!clanHandler.disbandClan(clan))
+			return "&cClans are being imported, try again in a moment.";
 		return "&aYour clan has been disbanded.";
 	}
 
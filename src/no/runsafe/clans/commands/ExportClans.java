@@ -0,0 +1,42 @@
+package no.runsafe.clans.commands;
+
+import no.runsafe.clans.handlers.ClanTransferHandler;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.command.AsyncCommand;
+import no.runsafe.framework.api.command.ICommandExecutor;
+import no.runsafe.framework.api.command.argument.IArgumentList;
+import no.runsafe.framework.api.command.argument.RequiredArgument;
+import no.runsafe.framework.api.log.IConsole;
+
+import java.io.IOException;
+
+public class ExportClans extends AsyncCommand
+{
+	public ExportClans(IScheduler scheduler, IConsole console, ClanTransferHandler transferHandler)
+	{
+		super("export", "Export all clans to a file", "runsafe.clans.export", scheduler, new RequiredArgument("file"));
+		this.console = console;
+		this.transferHandler = transferHandler;
+	}
+
+	@Override
+	public String OnAsyncExecute(ICommandExecutor executor, IArgumentList parameters)
+	{
+		String fileName = parameters.get("file");
+		if (!transferHandler.isValidFileName(fileName))
+			return "&cFile names may only contain letters, numbers, dots, dashes and underscores.";
+
+		try
+		{
+			return transferHandler.exportClans(fileName);
+		}
+		catch (IOException e)
+		{
+			console.logException(e);
+			return "&cThe clans could not be exported: " + e.getMessage();
+		}
+	}
+
+	private final IConsole console;
+	private final ClanTransferHandler transferHandler;
+}
@@ -4,16 +4,23 @@ import no.runsafe.clans.Clan;
 import no.runsafe.clans.Config;
 import no.runsafe.clans.handlers.ClanHandler;
 import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.IServer;
 import no.runsafe.framework.api.command.argument.IArgumentList;
-import no.runsafe.framework.api.command.argument.Player;
 import no.runsafe.framework.api.command.player.PlayerAsyncCommand;
 import no.runsafe.framework.api.player.IPlayer;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class InviteMember extends PlayerAsyncCommand
 {
-	public InviteMember(IScheduler scheduler, ClanHandler clanHandler, Config config)
+	public InviteMember(IScheduler scheduler, IServer server, ClanHandler clanHandler, Config config)
 	{
-		super("invite", "Invite a member to the clan", "runsafe.clans.invite", scheduler, new Player().require());
+		super("invite", "Invite one or more players to the clan", "runsafe.clans.invite", scheduler, new PlayerListArgument("players", server));
+		this.server = server;
 		this.clanHandler = clanHandler;
 		this.config = config;
 	}
@@ -21,6 +28,9 @@ public class InviteMember extends PlayerAsyncCommand
 	@Override
 	public String OnAsyncExecute(IPlayer executor, IArgumentList parameters)
 	{
+		if (clanHandler.isImporting())
+			return "&cClans are being imported, try again in a moment.";
+
 		String playerName = executor.getName();
 
 		if (!clanHandler.playerIsInClan(playerName))
@@ -29,27 +39,51 @@ public class InviteMember extends PlayerAsyncCommand
 		if (!clanHandler.playerIsClanLeader(playerName))
 			return "&cYou are not the clan leader, you cannot invite players.";
 
-		IPlayer targetPlayer = parameters.getValue("player") ;
-		if (targetPlayer == null)
-			return "&cInvalid player.";
+		Clan clan = clanHandler.getPlayerClan(playerName); // Grab the players clan.
 
-		String targetPlayerName = targetPlayer.getName();
+		int freeSlots = config.getClanSize() - clan.getMemberCount();
+		if (freeSlots <= 0)
+			return "&cYour clan is full! Remove someone before inviting more.";
 
-		if (clanHandler.playerIsInClan(targetPlayerName))
-			return "&cThat player is already in a clan.";
+		// Check every target in one pass, only as many as there is room for get an invite.
+		List<IPlayer> invited = new ArrayList<IPlayer>(0);
+		Map<String, String> skipped = new LinkedHashMap<String, String>(0);
+		for (String targetName : parameters.get("players").trim().split("\\s+"))
+		{
+			IPlayer targetPlayer = server.getPlayerExact(targetName);
+			if (targetPlayer == null)
+				skipped.put(targetName, "unknown player");
+			else if (clanHandler.playerIsInClan(targetPlayer.getName()))
+				skipped.put(targetPlayer.getName(), "already in a clan");
+			else if (clanHandler.playerHasPendingInvite(clan.getId(), targetPlayer.getName()) || containsPlayer(invited, targetPlayer))
+				skipped.put(targetPlayer.getName(), "already invited");
+			else if (invited.size() >= freeSlots)
+				skipped.put(targetPlayer.getName(), "clan would be full");
+			else
+				invited.add(targetPlayer);
+		}
 
-		Clan clan = clanHandler.getPlayerClan(playerName); // Grab the players clan.
+		if (!clanHandler.invitePlayersToClan(clan.getId(), invited)) // Invite the players.
+			return "&cClans are being imported, try again in a moment.";
 
-		if (clan.getMemberCount() >= config.getClanSize())
-			return "&cYour clan is full! Remove someone before inviting more.";
+		List<String> response = new ArrayList<String>(2);
+		if (!invited.isEmpty())
+			response.add(invited.size() == 1 ? "&aInvite sent!" : "&aSent " + invited.size() + " invites!");
+		for (Map.Entry<String, String> skip : skipped.entrySet())
+			response.add("&c" + skip.getKey() + " was not invited: " + skip.getValue() + ".");
 
-		if (clanHandler.playerHasPendingInvite(clan.getId(), targetPlayerName))
-			return "&cThat player has already been invited to this clan.";
+		return StringUtils.join(response, "\n");
+	}
 
-		clanHandler.invitePlayerToClan(clan.getId(), targetPlayer); // Invite the player.
-		return "&aInvite sent!";
+	private static boolean containsPlayer(List<IPlayer> players, IPlayer player)
+	{
+		for (IPlayer listed : players)
+			if (listed.getName().equals(player.getName()))
+				return true;
+		return false;
 	}
 
+	private final IServer server;
 	private final ClanHandler clanHandler;
 	private final Config config;
-}
\ No newline at end of file
+}
@@ -5,7 +5,6 @@ import no.runsafe.clans.Config;
 import no.runsafe.clans.handlers.ClanHandler;
 import no.runsafe.framework.api.IScheduler;
 import no.runsafe.framework.api.command.argument.IArgumentList;
-import no.runsafe.framework.api.command.argument.RequiredArgument;
 import no.runsafe.framework.api.command.player.PlayerAsyncCommand;
 import no.runsafe.framework.api.player.IPlayer;
 
@@ -13,7 +12,7 @@ public class JoinClan extends PlayerAsyncCommand
 {
 	public JoinClan(IScheduler scheduler, ClanHandler clanHandler, Config config)
 	{
-		super("join", "Accept an invite to a clan", "runsafe.clans.join", scheduler, new RequiredArgument("clan"));
+		super("join", "Accept an invite to a clan", "runsafe.clans.join", scheduler, new ClanArgument("clan", clanHandler));
 		this.clanHandler = clanHandler;
 		this.config = config;
 	}
@@ -21,6 +20,9 @@ public class JoinClan extends PlayerAsyncCommand
 	@Override
 	public String OnAsyncExecute(IPlayer executor, IArgumentList parameters)
 	{
+		if (clanHandler.isImporting())
+			return "&cClans are being imported, try again in a moment.";
+
 		String clanName = parameters.get("clan").toUpperCase();
 		if (clanHandler.playerHasPendingInvite(clanName, executor.getName()))
 		{
@@ -28,7 +30,8 @@ public class JoinClan extends PlayerAsyncCommand
 			if (clan.getMemberCount() >= config.getClanSize())
 				return "&cThis clan is full! It looks like they don't love you.";
 
-			clanHandler.acceptClanInvite(clanName, executor);
+			if (!clanHandler.acceptClanInvite(clanName, executor))
+				return clanHandler.isImporting() ? "&cClans are being imported, try again in a moment." : "&cYou have already joined a clan on another server.";
 			return "&aYou have accepted the clan invite!";
 		}
 		return "&cYou have not been invited to that clan.";
@@ -1,24 +1,31 @@
 package no.runsafe.clans.commands;
 
 import no.runsafe.clans.Clan;
+import no.runsafe.clans.database.ClanMailType;
 import no.runsafe.clans.handlers.ClanHandler;
+import no.runsafe.clans.handlers.ClanMailbox;
 import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.IServer;
 import no.runsafe.framework.api.command.argument.IArgumentList;
-import no.runsafe.framework.api.command.argument.Player;
 import no.runsafe.framework.api.command.player.PlayerAsyncCommand;
 import no.runsafe.framework.api.player.IPlayer;
 
 public class KickClanMember extends PlayerAsyncCommand
 {
-	public KickClanMember(IScheduler scheduler, ClanHandler clanHandler)
+	public KickClanMember(IScheduler scheduler, IServer server, ClanHandler clanHandler, ClanMailbox mailbox)
 	{
-		super("kick", "Kick a member from your clan", "runsafe.clans.kick", scheduler, new Player().require());
+		super("kick", "Kick a member from your clan", "runsafe.clans.kick", scheduler, new ClanMemberArgument("player", clanHandler));
+		this.server = server;
 		this.clanHandler = clanHandler;
+		this.mailbox = mailbox;
 	}
 
 	@Override
 	public String OnAsyncExecute(IPlayer executor, IArgumentList parameters)
 	{
+		if (clanHandler.isImporting())
+			return "&cClans are being imported, try again in a moment.";
+
 		String playerName = executor.getName();
 		if (!clanHandler.playerIsInClan(playerName))
 			return "&cYou are not in a clan.";
@@ -26,12 +33,10 @@ public class KickClanMember extends PlayerAsyncCommand
 		if (!clanHandler.playerIsClanLeader(playerName))
 			return "&cYou are not the clan leader.";
 
-		IPlayer targetPlayer = parameters.getValue("player");
-
-		if (targetPlayer == null)
-			return "&cInvalid player.";
+		String targetPlayerName = clanHandler.getMemberName(parameters.get("player"));
+		if (targetPlayerName == null)
+			return "&cThat player is not in your clan.";
 
-		String targetPlayerName = targetPlayer.getName();
 		if (targetPlayerName.equals(playerName))
 			return "&cYou cannot kick yourself.";
 
@@ -40,13 +45,19 @@ public class KickClanMember extends PlayerAsyncCommand
 		if (!clanHandler.playerIsInClan(targetPlayerName, playerClan.getId()))
 			return "&cThat player is not in your clan.";
 
-		clanHandler.kickClanMember(targetPlayer, executor); // Kick the player.
+		IPlayer targetPlayer = server.getPlayerExact(targetPlayerName);
+		if (targetPlayer == null)
+			return "&cInvalid player.";
+
+		if (!clanHandler.kickClanMember(targetPlayer, executor)) // Kick the player.
+			return clanHandler.isImporting() ? "&cClans are being imported, try again in a moment." : "&cThat player is not in your clan.";
 
-		if (targetPlayer.isOnline())
-			targetPlayer.sendColouredMessage("&cYou have been kicked from the clan.");
+		mailbox.notify(targetPlayerName, ClanMailType.KICK, playerClan.getId(), String.format("&cYou have been kicked from the '%s' clan.", playerClan.getId()));
 
 		return null;
 	}
 
+	private final IServer server;
 	private final ClanHandler clanHandler;
+	private final ClanMailbox mailbox;
 }
@@ -17,6 +17,9 @@ public class LeaveClan extends PlayerAsyncCommand
 	@Override
 	public String OnAsyncExecute(IPlayer executor, IArgumentList parameters)
 	{
+		if (clanHandler.isImporting())
+			return "&cClans are being imported, try again in a moment.";
+
 		String playerName = executor.getName();
 
 		if (!clanHandler.playerIsInClan(playerName))
@@ -25,7 +28,8 @@ public class LeaveClan extends PlayerAsyncCommand
 		if (clanHandler.playerIsClanLeader(playerName))
 			return "&cYou cannot leave your clan, disband it first!";
 
-		clanHandler.removeClanMember(executor);
+		if (!clanHandler.removeClanMember(executor))
+			return clanHandler.isImporting() ? "&cClans are being imported, try again in a moment." : "&cYou are not in a clan.";
 		return "&aYou have left the clan.";
 	}
 
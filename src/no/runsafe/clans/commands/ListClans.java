@@ -1,28 +1,28 @@
 package no.runsafe.clans.commands;
 
-import no.runsafe.clans.Clan;
 import no.runsafe.clans.handlers.ClanHandler;
 import no.runsafe.framework.api.IScheduler;
 import no.runsafe.framework.api.command.AsyncCommand;
 import no.runsafe.framework.api.command.ICommandExecutor;
 import no.runsafe.framework.api.command.argument.IArgumentList;
+import no.runsafe.framework.api.command.argument.OptionalArgument;
 import org.apache.commons.lang.StringUtils;
 
-import java.util.Map;
+import java.util.List;
 
 public class ListClans extends AsyncCommand
 {
 	public ListClans(IScheduler scheduler, ClanHandler handler)
 	{
-		super("list", "List all clans", "runsafe.clans.list", scheduler);
+		super("list", "List all clans", "runsafe.clans.list", scheduler, new OptionalArgument("prefix"));
 		this.handler = handler;
 	}
 
 	@Override
 	public String OnAsyncExecute(ICommandExecutor executor, IArgumentList parameters)
 	{
-		Map<String, Clan> clans = handler.getClans();
-		return "&6Clans: (" + clans.size() + ") &r" + StringUtils.join(clans.keySet(), ", ");
+		List<String> clans = handler.findClans(parameters.get("prefix"), Integer.MAX_VALUE); // Sorted by tag.
+		return "&6Clans: (" + clans.size() + ") &r" + StringUtils.join(clans, ", ");
 	}
 
 	private final ClanHandler handler;
@@ -19,6 +19,9 @@ public class PassLeadership extends PlayerAsyncCommand
 	@Override
 	public String OnAsyncExecute(IPlayer executor, IArgumentList parameters)
 	{
+		if (clanHandler.isImporting())
+			return "&cClans are being imported, try again in a moment.";
+
 		String playerName = executor.getName();
 		if (!clanHandler.playerIsInClan(playerName))
 			return "&cYou are not in a clan.";
@@ -36,7 +39,9 @@ public class PassLeadership extends PlayerAsyncCommand
 		if (!clanHandler.playerIsInClan(targetPlayerName, playerClan.getId()))
 			return "&cThat player is not in your clan.";
 
-		clanHandler.changeClanLeader(playerClan.getId(), targetPlayer); // Change the leader.
+		if (!clanHandler.changeClanLeader(playerClan.getId(), playerName, targetPlayer)) // Change the leader.
+			return clanHandler.isImporting() ? "&cClans are being imported, try again in a moment." : "&cThe clan leadership changed while you were passing it on, please try again.";
+
 		return "&aYou have passed the leadership of your clan!";
 	}
 
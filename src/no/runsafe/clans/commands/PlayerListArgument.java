@@ -0,0 +1,33 @@
+package no.runsafe.clans.commands;
+
+import no.runsafe.framework.api.IServer;
+import no.runsafe.framework.api.command.argument.ITabComplete;
+import no.runsafe.framework.api.command.argument.TrailingArgument;
+import no.runsafe.framework.api.player.IPlayer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Any number of space separated player names, completing each one from the online players.
+public class PlayerListArgument extends TrailingArgument implements ITabComplete
+{
+	public PlayerListArgument(String name, IServer server)
+	{
+		super(name);
+		this.server = server;
+	}
+
+	@Override
+	public List<String> getAlternatives(IPlayer executor, String partial)
+	{
+		String prefix = partial == null ? "" : partial.toLowerCase();
+		List<String> players = new ArrayList<String>(0);
+		for (IPlayer player : server.getOnlinePlayers())
+			if (player.getName().toLowerCase().startsWith(prefix) && !executor.shouldNotSee(player))
+				players.add(player.getName());
+
+		return players;
+	}
+
+	private final IServer server;
+}
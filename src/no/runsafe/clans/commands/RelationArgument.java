@@ -0,0 +1,35 @@
+package no.runsafe.clans.commands;
+
+import no.runsafe.clans.database.ClanRelation;
+import no.runsafe.framework.api.command.argument.ITabComplete;
+import no.runsafe.framework.api.command.argument.RequiredArgument;
+import no.runsafe.framework.api.player.IPlayer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RelationArgument extends RequiredArgument implements ITabComplete
+{
+	public RelationArgument(String name)
+	{
+		super(name);
+	}
+
+	@Override
+	public List<String> getAlternatives(IPlayer executor, String partial)
+	{
+		List<String> alternatives = new ArrayList<String>(3);
+		for (ClanRelation relation : ClanRelation.values())
+			if (relation.name().toLowerCase().startsWith(partial.toLowerCase()))
+				alternatives.add(relation.name().toLowerCase());
+		return alternatives;
+	}
+
+	public static ClanRelation getRelation(String value)
+	{
+		for (ClanRelation relation : ClanRelation.values())
+			if (relation.name().equalsIgnoreCase(value))
+				return relation;
+		return null;
+	}
+}
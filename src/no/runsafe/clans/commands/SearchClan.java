@@ -0,0 +1,43 @@
+package no.runsafe.clans.commands;
+
+import no.runsafe.clans.Clan;
+import no.runsafe.clans.handlers.ClanHandler;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.command.AsyncCommand;
+import no.runsafe.framework.api.command.ICommandExecutor;
+import no.runsafe.framework.api.command.argument.IArgumentList;
+import no.runsafe.framework.api.command.argument.RequiredArgument;
+
+import java.util.List;
+
+public class SearchClan extends AsyncCommand
+{
+	public SearchClan(IScheduler scheduler, ClanHandler handler)
+	{
+		super("search", "Search for clan members by name", "runsafe.clans.search", scheduler, new RequiredArgument("player"));
+		this.handler = handler;
+	}
+
+	@Override
+	public String OnAsyncExecute(ICommandExecutor executor, IArgumentList parameters)
+	{
+		String prefix = parameters.get("player");
+		List<String> members = handler.findMembers(prefix, RESULT_LIMIT);
+
+		if (members.isEmpty())
+			return "&cNo clan members found matching '" + prefix + "'.";
+
+		StringBuilder results = new StringBuilder("&6Clan members matching '" + prefix + "':");
+		for (String member : members)
+		{
+			Clan clan = handler.getPlayerClan(member);
+			if (clan != null)
+				results.append("\n- &r").append(member).append(" &6[").append(clan.getId()).append("]");
+		}
+
+		return results.toString();
+	}
+
+	private static final int RESULT_LIMIT = 10;
+	private final ClanHandler handler;
+}
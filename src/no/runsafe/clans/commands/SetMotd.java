@@ -20,6 +20,9 @@ public class SetMotd extends PlayerAsyncCommand
 	@Override
 	public String OnAsyncExecute(IPlayer executor, IArgumentList parameters)
 	{
+		if (clanHandler.isImporting())
+			return "&cClans are being imported, try again in a moment.";
+
 		String playerName = executor.getName();
 
 		if (!clanHandler.playerIsInClan(playerName))
@@ -32,7 +35,9 @@ public class SetMotd extends PlayerAsyncCommand
 		if (clan == null)
 			return "&cSomething just broke.";
 
-		clanHandler.setClanMotd(clan.getId(), ChatColour.Strip(parameters.get("motd")));
+		if (!clanHandler.setClanMotd(clan.getId(), ChatColour.Strip(parameters.get("motd"))))
+			return clanHandler.isImporting() ? "&cClans are being imported, try again in a moment." : "&cThe message of the day could not be saved, please try again.";
+
 		return null;
 	}
 
@@ -0,0 +1,59 @@
+package no.runsafe.clans.commands;
+
+import no.runsafe.clans.Clan;
+import no.runsafe.clans.database.ClanRelation;
+import no.runsafe.clans.handlers.ClanHandler;
+import no.runsafe.clans.handlers.RelationHandler;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.command.argument.IArgumentList;
+import no.runsafe.framework.api.command.player.PlayerAsyncCommand;
+import no.runsafe.framework.api.player.IPlayer;
+
+public class SetRelation extends PlayerAsyncCommand
+{
+	public SetRelation(IScheduler scheduler, ClanHandler clanHandler, RelationHandler relationHandler)
+	{
+		super(
+			"relation", "Declare an alliance, an enemy or neutrality towards another clan", "runsafe.clans.relation", scheduler,
+			new RelationArgument("relation"), new ClanArgument("clan", clanHandler)
+		);
+		this.clanHandler = clanHandler;
+		this.relationHandler = relationHandler;
+	}
+
+	@Override
+	public String OnAsyncExecute(IPlayer executor, IArgumentList parameters)
+	{
+		ClanRelation relation = RelationArgument.getRelation(parameters.get("relation"));
+		if (relation == null)
+			return "&cThe relation has to be ally, enemy or neutral.";
+
+		String playerName = executor.getName();
+
+		if (!clanHandler.playerIsInClan(playerName))
+			return "&cYou are not in a clan.";
+
+		if (!clanHandler.playerIsClanLeader(playerName))
+			return "&cYou are not the clan leader.";
+
+		Clan clan = clanHandler.getPlayerClan(playerName);
+		if (clan == null)
+			return "&cSomething just broke.";
+
+		String targetName = parameters.get("clan").toUpperCase();
+		if (!clanHandler.clanExists(targetName))
+			return "&cNo clan named '" + targetName + "' exists.";
+
+		if (targetName.equals(clan.getId()))
+			return "&cYou cannot change relations with your own clan.";
+
+		if (relationHandler.getRelation(clan.getId(), targetName) == relation)
+			return "&cYour clan already has that relation with " + targetName + ".";
+
+		relationHandler.setRelation(clan.getId(), targetName, relation);
+		return null;
+	}
+
+	private final ClanHandler clanHandler;
+	private final RelationHandler relationHandler;
+}
@@ -0,0 +1,42 @@
+package no.runsafe.clans.commands;
+
+import no.runsafe.clans.handlers.ClanTraceRecorder;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.command.AsyncCommand;
+import no.runsafe.framework.api.command.ICommandExecutor;
+import no.runsafe.framework.api.command.argument.IArgumentList;
+import no.runsafe.framework.api.command.argument.RequiredArgument;
+import no.runsafe.framework.api.log.IConsole;
+
+import java.io.IOException;
+
+public class StartTrace extends AsyncCommand
+{
+	public StartTrace(IScheduler scheduler, IConsole console, ClanTraceRecorder recorder)
+	{
+		super("trace", "Start recording a clan trace to a file", "runsafe.clans.trace", scheduler, new RequiredArgument("file"));
+		this.console = console;
+		this.recorder = recorder;
+	}
+
+	@Override
+	public String OnAsyncExecute(ICommandExecutor executor, IArgumentList parameters)
+	{
+		String fileName = parameters.get("file");
+		if (!recorder.isValidFileName(fileName))
+			return "&cFile names may only contain letters, numbers, dots, dashes and underscores.";
+
+		try
+		{
+			return recorder.start(fileName);
+		}
+		catch (IOException e)
+		{
+			console.logException(e);
+			return "&cThe trace could not be started: " + e.getMessage();
+		}
+	}
+
+	private final IConsole console;
+	private final ClanTraceRecorder recorder;
+}
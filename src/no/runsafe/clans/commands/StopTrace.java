@@ -0,0 +1,24 @@
+package no.runsafe.clans.commands;
+
+import no.runsafe.clans.handlers.ClanTraceRecorder;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.command.AsyncCommand;
+import no.runsafe.framework.api.command.ICommandExecutor;
+import no.runsafe.framework.api.command.argument.IArgumentList;
+
+public class StopTrace extends AsyncCommand
+{
+	public StopTrace(IScheduler scheduler, ClanTraceRecorder recorder)
+	{
+		super("tracestop", "Stop recording the clan trace", "runsafe.clans.trace", scheduler);
+		this.recorder = recorder;
+	}
+
+	@Override
+	public String OnAsyncExecute(ICommandExecutor executor, IArgumentList parameters)
+	{
+		return recorder.stop();
+	}
+
+	private final ClanTraceRecorder recorder;
+}
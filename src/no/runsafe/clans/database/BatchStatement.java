@@ -0,0 +1,52 @@
+package no.runsafe.clans.database;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+public class BatchStatement
+{
+	// The group is repeated once per row, e.g. "(?, ?)" after "INSERT ... VALUES " or "?" inside "... IN (" and ")".
+	public BatchStatement(String name, String prefix, String group, String suffix, int maxRows)
+	{
+		this.name = name;
+		this.prefix = prefix;
+		this.group = group;
+		this.suffix = suffix;
+		this.maxRows = maxRows;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public int getMaxRows()
+	{
+		return maxRows;
+	}
+
+	public String getQuery(int rows)
+	{
+		// The text for a given row count never changes, so build it once and hand out the same string.
+		String query = queries.get(rows);
+		if (query == null)
+		{
+			StringBuilder builder = new StringBuilder(prefix);
+			for (int i = 0; i < rows; i++)
+			{
+				if (i > 0)
+					builder.append(", ");
+				builder.append(group);
+			}
+			query = builder.append(suffix).toString();
+			queries.put(rows, query);
+		}
+		return query;
+	}
+
+	private final String name;
+	private final String prefix;
+	private final String group;
+	private final String suffix;
+	private final int maxRows;
+	private final ConcurrentHashMap<Integer, String> queries = new ConcurrentHashMap<Integer, String>(0);
+}
@@ -0,0 +1,113 @@
+package no.runsafe.clans.database;
+
+import no.runsafe.clans.Charter;
+import no.runsafe.framework.api.database.*;
+import org.apache.commons.lang.StringUtils;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CharterRepository extends Repository
+{
+	public CharterRepository(IDatabase database, StatementExecutor statements)
+	{
+		this.database = database;
+		this.statements = statements;
+	}
+
+	public Map<String, Charter> getCharters()
+	{
+		Map<String, Charter> charters = new HashMap<String, Charter>(0);
+		for (IRow row : statements.query(SELECT_CHARTERS))
+		{
+			String charterID = row.String("charterID");
+			charters.put(charterID, new Charter(
+				charterID,
+				row.String("clanID"),
+				row.String("leader"),
+				Arrays.asList(row.String("signers").split(","))
+			));
+		}
+		return charters;
+	}
+
+	public List<String> getUsedCharterIDs()
+	{
+		List<String> charterIDs = new ArrayList<String>(0);
+		for (IRow row : statements.query(SELECT_USED))
+			charterIDs.add(row.String("charterID"));
+		return charterIDs;
+	}
+
+	public void persistCharter(Charter charter)
+	{
+		statements.execute(INSERT_CHARTER, charter.getId(), charter.getClanID(), charter.getLeader(), getSigners(charter));
+	}
+
+	public void updateSigners(Charter charter)
+	{
+		statements.execute(UPDATE_SIGNERS, getSigners(charter), charter.getId());
+	}
+
+	public void markUsed(String charterID)
+	{
+		statements.execute(MARK_USED, charterID);
+	}
+
+	public void purgeCharters(int days)
+	{
+		statements.execute(PURGE_CHARTERS, days, days);
+	}
+
+	private static String getSigners(Charter charter)
+	{
+		return StringUtils.join(charter.getSigners(), ",");
+	}
+
+	@Override
+	@Nonnull
+	public String getTableName()
+	{
+		return "clan_charters";
+	}
+
+	@Override
+	@Nonnull
+	public ISchemaUpdate getSchemaUpdateQueries()
+	{
+		ISchemaUpdate update = new SchemaUpdate();
+
+		update.addQueries(
+			"CREATE TABLE `clan_charters` (" +
+				"`charterID` VARCHAR(16) NOT NULL," +
+				"`clanID` VARCHAR(3) NOT NULL," +
+				"`leader` VARCHAR(20) NOT NULL," +
+				"`signers` VARCHAR(255) NOT NULL," +
+				"`created` DATETIME NOT NULL," +
+				"PRIMARY KEY (`charterID`)" +
+			")"
+		);
+
+		update.addQueries("ALTER TABLE `clan_charters` ADD COLUMN `used` DATETIME NULL AFTER `created`;");
+
+		return update;
+	}
+
+	private static final Statement SELECT_CHARTERS = new Statement("charters.select",
+		"SELECT `charterID`, `clanID`, `leader`, `signers` FROM `clan_charters` WHERE `used` IS NULL");
+	private static final Statement SELECT_USED = new Statement("charters.selectUsed",
+		"SELECT `charterID` FROM `clan_charters` WHERE `used` IS NOT NULL");
+	private static final Statement INSERT_CHARTER = new Statement("charters.insert",
+		"INSERT INTO `clan_charters` (`charterID`, `clanID`, `leader`, `signers`, `created`) VALUES(?, ?, ?, ?, NOW())");
+	private static final Statement UPDATE_SIGNERS = new Statement("charters.updateSigners",
+		"UPDATE `clan_charters` SET `signers` = ? WHERE `charterID` = ?");
+	private static final Statement MARK_USED = new Statement("charters.markUsed",
+		"UPDATE `clan_charters` SET `used` = NOW() WHERE `charterID` = ?");
+	private static final Statement PURGE_CHARTERS = new Statement("charters.purge",
+		"DELETE FROM `clan_charters` WHERE `used` < NOW() - INTERVAL ? DAY OR (`used` IS NULL AND `created` < NOW() - INTERVAL ? DAY)");
+	private final StatementExecutor statements;
+}
@@ -0,0 +1,44 @@
+package no.runsafe.clans.database;
+
+public class ClanChange
+{
+	public ClanChange(long id, String node, ClanChangeType type, String clanID, String player)
+	{
+		this.id = id;
+		this.node = node;
+		this.type = type;
+		this.clanID = clanID;
+		this.player = player;
+	}
+
+	public long getId()
+	{
+		return id;
+	}
+
+	public String getNode()
+	{
+		return node;
+	}
+
+	public ClanChangeType getType()
+	{
+		return type;
+	}
+
+	public String getClanID()
+	{
+		return clanID;
+	}
+
+	public String getPlayer()
+	{
+		return player;
+	}
+
+	private final long id;
+	private final String node;
+	private final ClanChangeType type;
+	private final String clanID;
+	private final String player;
+}
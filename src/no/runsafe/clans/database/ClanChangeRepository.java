@@ -0,0 +1,135 @@
+package no.runsafe.clans.database;
+
+import no.runsafe.framework.api.database.*;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+public class ClanChangeRepository extends Repository
+{
+	public ClanChangeRepository(IDatabase database, StatementExecutor statements)
+	{
+		this.database = database;
+		this.statements = statements;
+	}
+
+	public String getNodeID()
+	{
+		return nodeID;
+	}
+
+	public void recordChange(ClanChangeType type, String clanID, String playerName)
+	{
+		statements.execute(INSERT_CHANGE, nodeID, type.name(), clanID, playerName);
+	}
+
+	public void recordChanges(ClanChangeType type, String clanID, List<String> playerNames)
+	{
+		List<Object[]> rows = new ArrayList<Object[]>(playerNames.size());
+		for (String playerName : playerNames)
+			rows.add(new Object[]{nodeID, type.name(), clanID, playerName});
+
+		statements.executeBatch(INSERT_CHANGES, rows);
+	}
+
+	public List<ClanChange> getChangesSince(long changeID, int limit)
+	{
+		return toChanges(statements.query(SELECT_CHANGES, changeID, limit));
+	}
+
+	public List<ClanChange> getChanges(Collection<Long> changeIDs)
+	{
+		List<String> ids = new ArrayList<String>(changeIDs.size());
+		for (Long changeID : changeIDs)
+			ids.add(changeID.toString());
+
+		List<ClanChange> changes = toChanges(statements.queryBatchValues(SELECT_CHANGE_IDS, ids));
+		Collections.sort(changes, new Comparator<ClanChange>()
+		{
+			@Override
+			public int compare(ClanChange one, ClanChange two)
+			{
+				return one.getId() < two.getId() ? -1 : (one.getId() == two.getId() ? 0 : 1);
+			}
+		});
+		return changes;
+	}
+
+	private static List<ClanChange> toChanges(List<IRow> rows)
+	{
+		List<ClanChange> changes = new ArrayList<ClanChange>(rows.size());
+		for (IRow row : rows)
+		{
+			changes.add(new ClanChange(
+				row.Long("id"),
+				row.String("node"),
+				ClanChangeType.valueOf(row.String("type")),
+				row.String("clanID"),
+				row.String("player")
+			));
+		}
+		return changes;
+	}
+
+	public long getLatestChangeID()
+	{
+		Long latest = statements.queryLong(SELECT_LATEST);
+		return latest == null ? 0 : latest;
+	}
+
+	public void purgeChanges(int retentionHours)
+	{
+		statements.execute(PURGE_CHANGES, retentionHours);
+	}
+
+	@Override
+	@Nonnull
+	public String getTableName()
+	{
+		return "clan_changes";
+	}
+
+	@Override
+	@Nonnull
+	public ISchemaUpdate getSchemaUpdateQueries()
+	{
+		ISchemaUpdate update = new SchemaUpdate();
+
+		update.addQueries(
+			"CREATE TABLE `clan_changes` (" +
+				"`id` BIGINT UNSIGNED NOT NULL AUTO_INCREMENT," +
+				"`node` VARCHAR(36) NOT NULL," +
+				"`type` VARCHAR(20) NOT NULL," +
+				"`clanID` VARCHAR(3) NULL," +
+				"`player` VARCHAR(20) NULL," +
+				"`created` DATETIME NOT NULL," +
+				"PRIMARY KEY (`id`)," +
+				"INDEX `created` (`created`)" +
+			")"
+		);
+
+		return update;
+	}
+
+	private static final Statement INSERT_CHANGE = new Statement("changes.insert",
+		"INSERT INTO `clan_changes` (`node`, `type`, `clanID`, `player`, `created`) VALUES(?, ?, ?, ?, NOW())");
+	private static final BatchStatement INSERT_CHANGES = new BatchStatement("changes.insertMany",
+		"INSERT INTO `clan_changes` (`node`, `type`, `clanID`, `player`, `created`) VALUES ", "(?, ?, ?, ?, NOW())", "", 100);
+	private static final Statement SELECT_CHANGES = new Statement("changes.select",
+		"SELECT `id`, `node`, `type`, `clanID`, `player` FROM `clan_changes` WHERE `id` > ? ORDER BY `id` LIMIT ?");
+	private static final BatchStatement SELECT_CHANGE_IDS = new BatchStatement("changes.selectIds",
+		"SELECT `id`, `node`, `type`, `clanID`, `player` FROM `clan_changes` WHERE `id` IN (", "?", ")", 100);
+	private static final Statement SELECT_LATEST = new Statement("changes.selectLatest",
+		"SELECT MAX(`id`) FROM `clan_changes`");
+	private static final Statement PURGE_CHANGES = new Statement("changes.purge",
+		"DELETE FROM `clan_changes` WHERE `created` < NOW() - INTERVAL ? HOUR");
+	private final StatementExecutor statements;
+
+	// Identifies this server in the change log so it can skip its own changes.
+	private final String nodeID = UUID.randomUUID().toString();
+}
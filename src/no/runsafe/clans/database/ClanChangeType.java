@@ -0,0 +1,17 @@
+package no.runsafe.clans.database;
+
+public enum ClanChangeType
+{
+	CLAN_CREATE,
+	CLAN_DISBAND,
+	MEMBER_JOIN,
+	MEMBER_LEAVE,
+	LEADER,
+	MOTD,
+	STATISTICS,
+	INVITE_ADD,
+	INVITE_REMOVE,
+	INVITE_CLEAR,
+	MEMBER_STATISTICS, // Journal only, other servers pick member stats up on their next reload.
+	RELATION // Sync only, the target clan goes in the player column.
+}
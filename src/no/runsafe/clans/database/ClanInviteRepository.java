@@ -4,22 +4,24 @@ import no.runsafe.framework.api.database.*;
 
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class ClanInviteRepository extends Repository
 {
-	public ClanInviteRepository(IDatabase database)
+	public ClanInviteRepository(IDatabase database, StatementExecutor statements)
 	{
 		this.database = database;
+		this.statements = statements;
 	}
 
 	public Map<String, List<String>> getPendingInvites()
 	{
 		Map<String, List<String>> map = new HashMap<String, List<String>>(0);
 
-		for (IRow row : database.query("SELECT `clanID`, `player` FROM `clan_invites`"))
+		for (IRow row : statements.read(SELECT_INVITES))
 		{
 			String playerName = row.String("player");
 			if (!map.containsKey(playerName))
@@ -31,24 +33,43 @@ public class ClanInviteRepository extends Repository
 		return map;
 	}
 
+	public boolean hasPendingInvite(String playerName, String clanID)
+	{
+		return statements.queryRow(SELECT_INVITE, playerName, clanID) != null;
+	}
+
 	public void clearPendingInvite(String playerName, String clanID)
 	{
-		database.execute("DELETE FROM `clan_invites` WHERE `player` = ? AND `clanID` = ?", playerName, clanID);
+		statements.execute(DELETE_INVITE, playerName, clanID);
 	}
 
 	public void clearAllPendingInvites(String playerName)
 	{
-		database.execute("DELETE FROM `clan_invites` WHERE `player` = ?", playerName);
+		statements.execute(DELETE_PLAYER_INVITES, playerName);
 	}
 
 	public void clearAllPendingInvitesForClan(String clanID)
 	{
-		database.execute("DELETE FROM `clan_invites` WHERE `clanID` = ?", clanID);
+		statements.execute(DELETE_CLAN_INVITES, clanID);
+	}
+
+	public void clearAllPendingInvitesForClans(Collection<String> clanIDs)
+	{
+		statements.executeBatchValues(DELETE_CLANS_INVITES, clanIDs);
 	}
 
-	public void addInvite(String playerName, String clanID)
+	public void addInvites(String clanID, List<String> playerNames)
 	{
-		database.execute("INSERT IGNORE INTO `clan_invites` (`player`, `clanID`) VALUES(?, ?)", playerName, clanID);
+		List<Object[]> rows = new ArrayList<Object[]>(playerNames.size());
+		for (String playerName : playerNames)
+			rows.add(new Object[]{playerName, clanID});
+
+		statements.executeBatch(INSERT_INVITES, rows);
+	}
+
+	public long getChecksum()
+	{
+		return statements.queryLong(CHECKSUM);
 	}
 
 	@Nonnull
@@ -72,6 +93,27 @@ public class ClanInviteRepository extends Repository
 			")"
 		);
 
+		// Clearing a players invites filters on the player alone.
+		update.addQueries("ALTER TABLE `clan_invites` ADD INDEX `player` (`player`);");
+
 		return update;
 	}
+
+	private static final Statement SELECT_INVITES = new Statement("invites.select",
+		"SELECT `clanID`, `player` FROM `clan_invites`");
+	private static final Statement SELECT_INVITE = new Statement("invites.selectOne",
+		"SELECT `clanID` FROM `clan_invites` WHERE `player` = ? AND `clanID` = ?");
+	private static final Statement DELETE_INVITE = new Statement("invites.delete",
+		"DELETE FROM `clan_invites` WHERE `player` = ? AND `clanID` = ?");
+	private static final Statement DELETE_PLAYER_INVITES = new Statement("invites.deletePlayer",
+		"DELETE FROM `clan_invites` WHERE `player` = ?");
+	private static final Statement DELETE_CLAN_INVITES = new Statement("invites.deleteClan",
+		"DELETE FROM `clan_invites` WHERE `clanID` = ?");
+	private static final BatchStatement DELETE_CLANS_INVITES = new BatchStatement("invites.deleteClans",
+		"DELETE FROM `clan_invites` WHERE `clanID` IN (", "?", ")", 100);
+	private static final BatchStatement INSERT_INVITES = new BatchStatement("invites.insert",
+		"INSERT IGNORE INTO `clan_invites` (`player`, `clanID`) VALUES ", "(?, ?)", "", 100);
+	private static final Statement CHECKSUM = new Statement("invites.checksum",
+		"SELECT CAST(COUNT(*) + COALESCE(SUM(CRC32(CONCAT_WS(',', `clanID`, `player`))), 0) AS SIGNED) FROM `clan_invites`");
+	private final StatementExecutor statements;
 }
@@ -0,0 +1,108 @@
+package no.runsafe.clans.database;
+
+import no.runsafe.clans.ClanMail;
+import no.runsafe.framework.api.database.*;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class ClanMailRepository extends Repository
+{
+	public ClanMailRepository(IDatabase database, StatementExecutor statements)
+	{
+		this.database = database;
+		this.statements = statements;
+	}
+
+	public Set<String> getRecipients()
+	{
+		Set<String> recipients = new HashSet<String>(0);
+		for (IRow row : statements.query(SELECT_RECIPIENTS))
+			recipients.add(row.String("player"));
+		return recipients;
+	}
+
+	// Oldest first for every player.
+	public Map<String, List<ClanMail>> getMail(List<String> players)
+	{
+		Map<String, List<ClanMail>> mail = new LinkedHashMap<String, List<ClanMail>>(players.size());
+		for (IRow row : statements.readBatchValues(SELECT_MAIL, players))
+		{
+			String player = row.String("player");
+			if (!mail.containsKey(player))
+				mail.put(player, new ArrayList<ClanMail>(1));
+			mail.get(player).add(new ClanMail(row.Long("id"), ClanMailType.valueOf(row.String("type")), row.String("clanID"), row.String("message")));
+		}
+		return mail;
+	}
+
+	// Each row is {player, type, clanID, message}.
+	public void addMail(List<Object[]> rows)
+	{
+		if (!rows.isEmpty())
+			statements.executeBatch(INSERT_MAIL, rows);
+	}
+
+	// Only the rows that were read, mail posted since then stays for the next login.
+	public void deleteMail(Iterable<String> ids)
+	{
+		statements.executeBatchValues(DELETE_MAIL, ids);
+	}
+
+	// Keeps the newest mail for the given players, one statement per hundred of them.
+	public void trimMail(List<String> players, int cap)
+	{
+		statements.executeBatchValues(TRIM_MAIL, players, cap);
+	}
+
+	@Override
+	@Nonnull
+	public String getTableName()
+	{
+		return "clan_mail";
+	}
+
+	@Override
+	@Nonnull
+	public ISchemaUpdate getSchemaUpdateQueries()
+	{
+		ISchemaUpdate update = new SchemaUpdate();
+
+		update.addQueries(
+			"CREATE TABLE `clan_mail` (" +
+				"`id` BIGINT UNSIGNED NOT NULL AUTO_INCREMENT," +
+				"`player` VARCHAR(20) NOT NULL," +
+				"`type` VARCHAR(10) NOT NULL," +
+				"`clanID` VARCHAR(3) NOT NULL," +
+				"`message` VARCHAR(255) NOT NULL," +
+				"`created` DATETIME NOT NULL," +
+				"PRIMARY KEY (`id`)," +
+				"INDEX `player` (`player`, `id`)" +
+			")"
+		);
+
+		return update;
+	}
+
+	private static final Statement SELECT_RECIPIENTS = new Statement("mail.selectRecipients",
+		"SELECT DISTINCT `player` FROM `clan_mail`");
+	private static final BatchStatement SELECT_MAIL = new BatchStatement("mail.select",
+		"SELECT `id`, `player`, `type`, `clanID`, `message` FROM `clan_mail` WHERE `player` IN (", "?", ") ORDER BY `player`, `id`", 100);
+	private static final BatchStatement INSERT_MAIL = new BatchStatement("mail.insert",
+		"INSERT INTO `clan_mail` (`player`, `type`, `clanID`, `message`, `created`) VALUES ", "(?, ?, ?, ?, NOW())", "", 100);
+	private static final BatchStatement DELETE_MAIL = new BatchStatement("mail.delete",
+		"DELETE FROM `clan_mail` WHERE `id` IN (", "?", ")", 100);
+	// A row with cap or more newer rows for the same player is surplus, the derived table lets MySQL delete from the table it reads.
+	private static final BatchStatement TRIM_MAIL = new BatchStatement("mail.trim",
+		"DELETE `clan_mail` FROM `clan_mail` JOIN (" +
+			"SELECT `older`.`id` FROM `clan_mail` AS `older` " +
+			"JOIN `clan_mail` AS `newer` ON `newer`.`player` = `older`.`player` AND `newer`.`id` > `older`.`id` " +
+			"WHERE `older`.`player` IN (", "?",
+		") GROUP BY `older`.`id` HAVING COUNT(*) >= ?) AS `surplus` ON `surplus`.`id` = `clan_mail`.`id`", 100);
+	private final StatementExecutor statements;
+}
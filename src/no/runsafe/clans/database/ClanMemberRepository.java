@@ -1,26 +1,28 @@
 package no.runsafe.clans.database;
 
 import no.runsafe.framework.api.database.*;
-import no.runsafe.framework.api.player.IPlayer;
 import org.joda.time.DateTime;
 
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class ClanMemberRepository extends Repository
 {
-	public ClanMemberRepository(IDatabase database)
+	public ClanMemberRepository(IDatabase database, StatementExecutor statements)
 	{
 		this.database = database;
+		this.statements = statements;
 	}
 
 	public Map<String, List<String>> getClanRosters()
 	{
 		Map<String, List<String>> rosters = new ConcurrentHashMap<String, List<String>>(0);
-		for (IRow row : database.query("SELECT `clanID`, `member` FROM `clan_members`"))
+		for (IRow row : statements.read(SELECT_ROSTERS))
 		{
 			String clanName = row.String("clanID");
 			if (!rosters.containsKey(clanName))
@@ -31,24 +33,44 @@ public class ClanMemberRepository extends Repository
 		return rosters;
 	}
 
-	public void addClanMember(String clanID, String playerName)
+	public boolean addClanMember(String clanID, String playerName)
 	{
-		database.execute("INSERT INTO `clan_members` (`clanID`, `member`, `joined`) VALUES(?, ?, NOW())", clanID, playerName);
+		// The unique member index makes the insert a no-op if the player already joined a clan elsewhere.
+		return statements.update(INSERT_MEMBER, clanID, playerName) > 0;
 	}
 
 	public void removeClanMemberByName(String playerName)
 	{
-		database.execute("DELETE FROM `clan_members` WHERE `member` = ?", playerName);
+		statements.execute(DELETE_MEMBER, playerName);
 	}
 
 	public void removeAllClanMembers(String clanID)
 	{
-		database.execute("DELETE FROM `clan_members` WHERE `clanID` = ?", clanID);
+		statements.execute(DELETE_CLAN_MEMBERS, clanID);
 	}
 
-	public DateTime getClanMemberJoinDate(IPlayer player)
+	public void removeAllClanMembers(Collection<String> clanIDs)
 	{
-		return database.queryDateTime("SELECT `joined` FROM `clan_members` WHERE `member` = ?", player.getName());
+		statements.executeBatchValues(DELETE_CLANS_MEMBERS, clanIDs);
+	}
+
+	public Map<String, DateTime> getClanMemberJoinDates()
+	{
+		Map<String, DateTime> joinDates = new HashMap<String, DateTime>(0);
+		for (IRow row : statements.read(SELECT_JOINED))
+			joinDates.put(row.String("member"), row.DateTime("joined"));
+		return joinDates;
+	}
+
+	public String getMemberClan(String playerName)
+	{
+		IRow row = statements.queryRow(SELECT_MEMBER_CLAN, playerName);
+		return row == null ? null : row.String("clanID");
+	}
+
+	public long getChecksum()
+	{
+		return statements.queryLong(CHECKSUM);
 	}
 
 	@Override
@@ -74,6 +96,32 @@ public class ClanMemberRepository extends Repository
 
 		update.addQueries("ALTER TABLE `clan_members` ADD COLUMN `joined` DATETIME NOT NULL AFTER `member`;");
 
+		// Lookups and removals filter on the member alone, and a player may only be in one clan.
+		update.addQueries(
+			"DELETE duplicate FROM `clan_members` AS duplicate " +
+				"JOIN `clan_members` AS original ON original.`member` = duplicate.`member` " +
+				"AND (original.`joined` < duplicate.`joined` OR (original.`joined` = duplicate.`joined` AND original.`clanID` < duplicate.`clanID`));",
+			"ALTER TABLE `clan_members` ADD UNIQUE INDEX `member` (`member`);"
+		);
+
 		return update;
 	}
+
+	private static final Statement SELECT_ROSTERS = new Statement("members.select",
+		"SELECT `clanID`, `member` FROM `clan_members`");
+	private static final Statement INSERT_MEMBER = new Statement("members.insert",
+		"INSERT IGNORE INTO `clan_members` (`clanID`, `member`, `joined`) VALUES(?, ?, NOW())");
+	private static final Statement DELETE_MEMBER = new Statement("members.delete",
+		"DELETE FROM `clan_members` WHERE `member` = ?");
+	private static final Statement DELETE_CLAN_MEMBERS = new Statement("members.deleteClan",
+		"DELETE FROM `clan_members` WHERE `clanID` = ?");
+	private static final BatchStatement DELETE_CLANS_MEMBERS = new BatchStatement("members.deleteClans",
+		"DELETE FROM `clan_members` WHERE `clanID` IN (", "?", ")", 100);
+	private static final Statement SELECT_JOINED = new Statement("members.selectJoined",
+		"SELECT `member`, `joined` FROM `clan_members`");
+	private static final Statement SELECT_MEMBER_CLAN = new Statement("members.selectClan",
+		"SELECT `clanID` FROM `clan_members` WHERE `member` = ?");
+	private static final Statement CHECKSUM = new Statement("members.checksum",
+		"SELECT CAST(COUNT(*) + COALESCE(SUM(CRC32(CONCAT_WS(',', `clanID`, `member`))), 0) AS SIGNED) FROM `clan_members`");
+	private final StatementExecutor statements;
 }
@@ -0,0 +1,129 @@
+package no.runsafe.clans.database;
+
+import no.runsafe.framework.api.database.*;
+
+import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ClanMemberStatsRepository extends Repository
+{
+	public ClanMemberStatsRepository(IDatabase database, StatementExecutor statements)
+	{
+		this.database = database;
+		this.statements = statements;
+	}
+
+	// Keyed by clan, then member, with the values in statistic order.
+	public Map<String, Map<String, int[]>> getMemberStatistics()
+	{
+		Map<String, Map<String, int[]>> statistics = new HashMap<String, Map<String, int[]>>(0);
+		for (IRow row : statements.read(SELECT_STATS))
+		{
+			String clanID = row.String("clanID");
+			if (!statistics.containsKey(clanID))
+				statistics.put(clanID, new HashMap<String, int[]>(1));
+
+			statistics.get(clanID).put(row.String("member"), new int[]{
+				row.Integer("kills"),
+				row.Integer("deaths"),
+				row.Integer("dergonKills"),
+				row.Integer("assists")
+			});
+		}
+		return statistics;
+	}
+
+	// Each row is {clanID, member, kills, deaths, dergon kills, assists} holding the amounts to add.
+	public void addStatistics(List<Object[]> rows)
+	{
+		if (!rows.isEmpty())
+			statements.executeBatch(UPSERT_STATS, rows);
+	}
+
+	public void restoreMemberStatistic(String clanID, String playerName, ClanStatistic statistic, int total)
+	{
+		// Counters only ever grow, so restoring a total that already landed changes nothing.
+		statements.execute(getRestoreStatement(statistic), clanID, playerName, total);
+	}
+
+	public void removeMemberStatistics(String clanID, String playerName)
+	{
+		statements.execute(DELETE_MEMBER_STATS, clanID, playerName);
+	}
+
+	public void removeClanStatistics(String clanID)
+	{
+		statements.execute(DELETE_CLAN_STATS, clanID);
+	}
+
+	@Override
+	@Nonnull
+	public String getTableName()
+	{
+		return "clan_member_stats";
+	}
+
+	@Override
+	@Nonnull
+	public ISchemaUpdate getSchemaUpdateQueries()
+	{
+		ISchemaUpdate update = new SchemaUpdate();
+
+		update.addQueries(
+			"CREATE TABLE `clan_member_stats` (" +
+				"`clanID` VARCHAR(3) NOT NULL," +
+				"`member` VARCHAR(20) NOT NULL," +
+				"`kills` INT(10) UNSIGNED NOT NULL DEFAULT 0," +
+				"`deaths` INT(10) UNSIGNED NOT NULL DEFAULT 0," +
+				"`dergonKills` INT(10) UNSIGNED NOT NULL DEFAULT 0," +
+				"`assists` INT(10) UNSIGNED NOT NULL DEFAULT 0," +
+				"PRIMARY KEY (`clanID`, `member`)" +
+			")"
+		);
+
+		return update;
+	}
+
+	private static Statement getRestoreStatement(ClanStatistic statistic)
+	{
+		switch (statistic)
+		{
+			case KILLS:
+				return RESTORE_KILLS;
+			case DEATHS:
+				return RESTORE_DEATHS;
+			case DERGON_KILLS:
+				return RESTORE_DERGON_KILLS;
+			default:
+				return RESTORE_ASSISTS;
+		}
+	}
+
+	private static final Statement SELECT_STATS = new Statement("memberStats.select",
+		"SELECT `clanID`, `member`, `kills`, `deaths`, `dergonKills`, `assists` FROM `clan_member_stats`");
+	private static final BatchStatement UPSERT_STATS = new BatchStatement("memberStats.upsert",
+		"INSERT INTO `clan_member_stats` (`clanID`, `member`, `kills`, `deaths`, `dergonKills`, `assists`) VALUES ",
+		"(?, ?, ?, ?, ?, ?)",
+		" ON DUPLICATE KEY UPDATE `kills` = `kills` + VALUES(`kills`), `deaths` = `deaths` + VALUES(`deaths`)," +
+			" `dergonKills` = `dergonKills` + VALUES(`dergonKills`), `assists` = `assists` + VALUES(`assists`)",
+		100);
+	private static final Statement RESTORE_KILLS = new Statement("memberStats.restoreKills",
+		"INSERT INTO `clan_member_stats` (`clanID`, `member`, `kills`) VALUES (?, ?, ?)" +
+			" ON DUPLICATE KEY UPDATE `kills` = GREATEST(`kills`, VALUES(`kills`))");
+	private static final Statement RESTORE_DEATHS = new Statement("memberStats.restoreDeaths",
+		"INSERT INTO `clan_member_stats` (`clanID`, `member`, `deaths`) VALUES (?, ?, ?)" +
+			" ON DUPLICATE KEY UPDATE `deaths` = GREATEST(`deaths`, VALUES(`deaths`))");
+	private static final Statement RESTORE_DERGON_KILLS = new Statement("memberStats.restoreDergonKills",
+		"INSERT INTO `clan_member_stats` (`clanID`, `member`, `dergonKills`) VALUES (?, ?, ?)" +
+			" ON DUPLICATE KEY UPDATE `dergonKills` = GREATEST(`dergonKills`, VALUES(`dergonKills`))");
+	private static final Statement RESTORE_ASSISTS = new Statement("memberStats.restoreAssists",
+		"INSERT INTO `clan_member_stats` (`clanID`, `member`, `assists`) VALUES (?, ?, ?)" +
+			" ON DUPLICATE KEY UPDATE `assists` = GREATEST(`assists`, VALUES(`assists`))");
+	private static final Statement DELETE_MEMBER_STATS = new Statement("memberStats.deleteMember",
+		"DELETE FROM `clan_member_stats` WHERE `clanID` = ? AND `member` = ?");
+	private static final Statement DELETE_CLAN_STATS = new Statement("memberStats.deleteClan",
+		"DELETE FROM `clan_member_stats` WHERE `clanID` = ?");
+	private final StatementExecutor statements;
+}
@@ -0,0 +1,8 @@
+package no.runsafe.clans.database;
+
+public enum ClanRelation
+{
+	ALLY,
+	ENEMY,
+	NEUTRAL
+}
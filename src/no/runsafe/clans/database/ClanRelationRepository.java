@@ -0,0 +1,87 @@
+package no.runsafe.clans.database;
+
+import no.runsafe.clans.ClanRelations;
+import no.runsafe.framework.api.database.*;
+
+import javax.annotation.Nonnull;
+
+public class ClanRelationRepository extends Repository
+{
+	public ClanRelationRepository(IDatabase database, StatementExecutor statements)
+	{
+		this.database = database;
+		this.statements = statements;
+	}
+
+	public ClanRelations getRelations()
+	{
+		ClanRelations relations = new ClanRelations();
+		for (IRow row : statements.query(SELECT_RELATIONS))
+			relations.set(row.String("clanID"), row.String("targetID"), ClanRelation.valueOf(row.String("relation")));
+		return relations;
+	}
+
+	public ClanRelation getRelation(String clanID, String targetID)
+	{
+		IRow row = statements.queryRow(SELECT_RELATION, clanID, targetID);
+		return row == null ? ClanRelation.NEUTRAL : ClanRelation.valueOf(row.String("relation"));
+	}
+
+	public void setRelation(String clanID, String targetID, ClanRelation relation)
+	{
+		if (relation == ClanRelation.NEUTRAL)
+			statements.execute(DELETE_RELATION, clanID, targetID);
+		else
+			statements.execute(UPSERT_RELATION, clanID, targetID, relation.name());
+	}
+
+	public void removeRelations(String clanID)
+	{
+		statements.execute(DELETE_CLAN_RELATIONS, clanID, clanID);
+	}
+
+	public void purgeDisbandedClans()
+	{
+		statements.execute(PURGE_RELATIONS);
+	}
+
+	@Override
+	@Nonnull
+	public String getTableName()
+	{
+		return "clan_relations";
+	}
+
+	@Override
+	@Nonnull
+	public ISchemaUpdate getSchemaUpdateQueries()
+	{
+		ISchemaUpdate update = new SchemaUpdate();
+
+		update.addQueries(
+			"CREATE TABLE `clan_relations` (" +
+				"`clanID` VARCHAR(3) NOT NULL," +
+				"`targetID` VARCHAR(3) NOT NULL," +
+				"`relation` VARCHAR(10) NOT NULL," +
+				"PRIMARY KEY (`clanID`, `targetID`)," +
+				"INDEX `targetID` (`targetID`)" +
+			")"
+		);
+
+		return update;
+	}
+
+	private static final Statement SELECT_RELATIONS = new Statement("relations.select",
+		"SELECT `clanID`, `targetID`, `relation` FROM `clan_relations`");
+	private static final Statement SELECT_RELATION = new Statement("relations.selectOne",
+		"SELECT `relation` FROM `clan_relations` WHERE `clanID` = ? AND `targetID` = ?");
+	private static final Statement UPSERT_RELATION = new Statement("relations.upsert",
+		"INSERT INTO `clan_relations` (`clanID`, `targetID`, `relation`) VALUES(?, ?, ?) ON DUPLICATE KEY UPDATE `relation` = VALUES(`relation`)");
+	private static final Statement DELETE_RELATION = new Statement("relations.delete",
+		"DELETE FROM `clan_relations` WHERE `clanID` = ? AND `targetID` = ?");
+	private static final Statement DELETE_CLAN_RELATIONS = new Statement("relations.deleteClan",
+		"DELETE FROM `clan_relations` WHERE `clanID` = ? OR `targetID` = ?");
+	private static final Statement PURGE_RELATIONS = new Statement("relations.purge",
+		"DELETE FROM `clan_relations` WHERE `clanID` NOT IN (SELECT `clanID` FROM `clans`) OR `targetID` NOT IN (SELECT `clanID` FROM `clans`)");
+	private final StatementExecutor statements;
+}
@@ -2,7 +2,6 @@ package no.runsafe.clans.database;
 
 import no.runsafe.clans.Clan;
 import no.runsafe.framework.api.database.*;
-import no.runsafe.framework.api.player.IPlayer;
 
 import javax.annotation.Nonnull;
 import java.util.HashMap;
@@ -10,50 +9,109 @@ import java.util.Map;
 
 public class ClanRepository extends Repository
 {
-	public ClanRepository(IDatabase database)
+	public ClanRepository(IDatabase database, StatementExecutor statements)
 	{
 		this.database = database;
+		this.statements = statements;
 	}
 
 	public Map<String, Clan> getClans()
 	{
 		Map<String, Clan> clanList = new HashMap<String, Clan>(0);
 
-		for (IRow row : database.query("SELECT `clanID`, `leader`, `motd`, `clanKills`, `clanDeaths`, `dergonKills` FROM `clans`"))
+		for (IRow row : statements.read(SELECT_CLANS))
 		{
-			String clanName = row.String("clanID");
-			Clan clan = new Clan(clanName, row.String("leader"), row.String("motd"));
-			clan.addClanKills(row.Integer("clanKills")); // Add in kills stat
-			clan.addClanDeaths(row.Integer("clanDeaths")); // Add in deaths stat
-			clan.addDergonKills(row.Integer("dergonKills")); // Add dergon kills.
-			clanList.put(clanName, clan);
+			Clan clan = getClanFromRow(row);
+			clanList.put(clan.getId(), clan);
 		}
 		return clanList;
 	}
 
-	public void updateMotd(String clanID, String motd)
+	public Clan getClan(String clanID)
 	{
-		database.execute("UPDATE `clans` SET `motd` = ? WHERE `clanID` = ?", motd, clanID);
+		IRow row = statements.queryRow(SELECT_CLAN, clanID);
+		return row == null ? null : getClanFromRow(row);
+	}
+
+	private Clan getClanFromRow(IRow row)
+	{
+		Clan clan = new Clan(row.String("clanID"), row.String("leader"), row.String("motd"));
+		clan.addClanKills(row.Integer("clanKills")); // Add in kills stat
+		clan.addClanDeaths(row.Integer("clanDeaths")); // Add in deaths stat
+		clan.addDergonKills(row.Integer("dergonKills")); // Add dergon kills.
+		clan.setVersion(row.Integer("version"));
+		return clan;
+	}
+
+	public boolean updateMotd(String clanID, String motd, int version)
+	{
+		return statements.update(UPDATE_MOTD, motd, clanID, version) == 1;
 	}
 
 	public void deleteClan(String clanID)
 	{
-		database.execute("DELETE FROM `clans` WHERE `clanID` = ?", clanID);
+		statements.execute(DELETE_CLAN, clanID);
 	}
 
-	public void changeClanLeader(String clanID, IPlayer leader)
+	public boolean changeClanLeader(String clanID, String leader, int version)
 	{
-		database.execute("UPDATE `clans` SET `leader` = ? WHERE `clanID` = ?", leader.getName(), clanID);
+		return statements.update(UPDATE_LEADER, leader, clanID, version) == 1;
 	}
 
 	public void persistClan(Clan clan)
 	{
-		database.execute("INSERT INTO `clans` (`clanID`, `leader`, `created`, `motd`) VALUES(?, ?, NOW(), ?)", clan.getId(), clan.getLeader(), clan.getMotd());
+		statements.execute(INSERT_CLAN, clan.getId(), clan.getLeader(), clan.getMotd());
+	}
+
+	public void incrementStatistic(String clanID, ClanStatistic statistic, int amount)
+	{
+		// Increments are commutative, so they never need a version check.
+		Statement increment = getIncrementStatement(statistic);
+		if (increment != null)
+			statements.execute(increment, amount, clanID);
+	}
+
+	public void restoreStatistic(String clanID, ClanStatistic statistic, int total)
+	{
+		// Counters only ever grow, so restoring a total that already landed changes nothing.
+		Statement restore = getRestoreStatement(statistic);
+		if (restore != null)
+			statements.execute(restore, total, clanID);
 	}
 
-	public void updateStatistic(String clanID, String statistic, int value)
+	private static Statement getRestoreStatement(ClanStatistic statistic)
 	{
-		database.execute("UPDATE `clans` SET `" + statistic + "` = ? WHERE `clanID` = ?", value, clanID);
+		switch (statistic)
+		{
+			case KILLS:
+				return RESTORE_KILLS;
+			case DEATHS:
+				return RESTORE_DEATHS;
+			case DERGON_KILLS:
+				return RESTORE_DERGON_KILLS;
+			default:
+				return null;
+		}
+	}
+
+	private static Statement getIncrementStatement(ClanStatistic statistic)
+	{
+		switch (statistic)
+		{
+			case KILLS:
+				return INCREMENT_KILLS;
+			case DEATHS:
+				return INCREMENT_DEATHS;
+			case DERGON_KILLS:
+				return INCREMENT_DERGON_KILLS;
+			default:
+				return null; // Assists are only tracked per member.
+		}
+	}
+
+	public long getChecksum()
+	{
+		return statements.queryLong(CHECKSUM);
 	}
 
 	@Override
@@ -87,6 +145,36 @@ public class ClanRepository extends Repository
 		update.addQueries("ALTER TABLE `clans`" +
 				"ADD COLUMN `dergonKills` INT(10) UNSIGNED NOT NULL DEFAULT '0' AFTER `clanDeaths`");
 
+		update.addQueries("ALTER TABLE `clans` ADD COLUMN `version` INT(10) UNSIGNED NOT NULL DEFAULT '0' AFTER `dergonKills`");
+
 		return update;
 	}
+
+	private static final Statement SELECT_CLANS = new Statement("clans.select",
+		"SELECT `clanID`, `leader`, `motd`, `clanKills`, `clanDeaths`, `dergonKills`, `version` FROM `clans`");
+	private static final Statement SELECT_CLAN = new Statement("clans.selectOne",
+		"SELECT `clanID`, `leader`, `motd`, `clanKills`, `clanDeaths`, `dergonKills`, `version` FROM `clans` WHERE `clanID` = ?");
+	private static final Statement UPDATE_MOTD = new Statement("clans.updateMotd",
+		"UPDATE `clans` SET `motd` = ?, `version` = `version` + 1 WHERE `clanID` = ? AND `version` = ?");
+	private static final Statement UPDATE_LEADER = new Statement("clans.updateLeader",
+		"UPDATE `clans` SET `leader` = ?, `version` = `version` + 1 WHERE `clanID` = ? AND `version` = ?");
+	private static final Statement DELETE_CLAN = new Statement("clans.delete",
+		"DELETE FROM `clans` WHERE `clanID` = ?");
+	private static final Statement INSERT_CLAN = new Statement("clans.insert",
+		"INSERT IGNORE INTO `clans` (`clanID`, `leader`, `created`, `motd`) VALUES(?, ?, NOW(), ?)");
+	private static final Statement INCREMENT_KILLS = new Statement("clans.incrementKills",
+		"UPDATE `clans` SET `clanKills` = `clanKills` + ? WHERE `clanID` = ?");
+	private static final Statement INCREMENT_DEATHS = new Statement("clans.incrementDeaths",
+		"UPDATE `clans` SET `clanDeaths` = `clanDeaths` + ? WHERE `clanID` = ?");
+	private static final Statement INCREMENT_DERGON_KILLS = new Statement("clans.incrementDergonKills",
+		"UPDATE `clans` SET `dergonKills` = `dergonKills` + ? WHERE `clanID` = ?");
+	private static final Statement RESTORE_KILLS = new Statement("clans.restoreKills",
+		"UPDATE `clans` SET `clanKills` = GREATEST(`clanKills`, ?) WHERE `clanID` = ?");
+	private static final Statement RESTORE_DEATHS = new Statement("clans.restoreDeaths",
+		"UPDATE `clans` SET `clanDeaths` = GREATEST(`clanDeaths`, ?) WHERE `clanID` = ?");
+	private static final Statement RESTORE_DERGON_KILLS = new Statement("clans.restoreDergonKills",
+		"UPDATE `clans` SET `dergonKills` = GREATEST(`dergonKills`, ?) WHERE `clanID` = ?");
+	private static final Statement CHECKSUM = new Statement("clans.checksum",
+		"SELECT CAST(COUNT(*) + COALESCE(SUM(CRC32(CONCAT_WS(',', `clanID`, `leader`, `motd`, `clanKills`, `clanDeaths`, `dergonKills`, `version`))), 0) AS SIGNED) FROM `clans`");
+	private final StatementExecutor statements;
 }
@@ -0,0 +1,80 @@
+package no.runsafe.clans.database;
+
+import no.runsafe.clans.RivalryMatrix;
+import no.runsafe.framework.api.database.*;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+public class ClanRivalryRepository extends Repository
+{
+	public ClanRivalryRepository(IDatabase database, StatementExecutor statements)
+	{
+		this.database = database;
+		this.statements = statements;
+	}
+
+	public RivalryMatrix getRivalries()
+	{
+		RivalryMatrix rivalries = new RivalryMatrix();
+		for (IRow row : statements.query(SELECT_RIVALRIES))
+			rivalries.load(row.String("killerID"), row.String("victimID"), row.Integer("kills"));
+		return rivalries;
+	}
+
+	// Each row is {killer clan, victim clan, kills} holding the kills to add.
+	public void addKills(List<Object[]> rows)
+	{
+		if (!rows.isEmpty())
+			statements.executeBatch(UPSERT_RIVALRIES, rows);
+	}
+
+	public void removeClan(String clanID)
+	{
+		statements.execute(DELETE_CLAN, clanID, clanID);
+	}
+
+	public void purgeDisbandedClans()
+	{
+		statements.execute(PURGE_RIVALRIES);
+	}
+
+	@Override
+	@Nonnull
+	public String getTableName()
+	{
+		return "clan_rivalries";
+	}
+
+	@Override
+	@Nonnull
+	public ISchemaUpdate getSchemaUpdateQueries()
+	{
+		ISchemaUpdate update = new SchemaUpdate();
+
+		update.addQueries(
+			"CREATE TABLE `clan_rivalries` (" +
+				"`killerID` VARCHAR(3) NOT NULL," +
+				"`victimID` VARCHAR(3) NOT NULL," +
+				"`kills` INT(10) UNSIGNED NOT NULL DEFAULT 0," +
+				"PRIMARY KEY (`killerID`, `victimID`)," +
+				"INDEX `victimID` (`victimID`)" +
+			")"
+		);
+
+		return update;
+	}
+
+	private static final Statement SELECT_RIVALRIES = new Statement("rivalries.select",
+		"SELECT `killerID`, `victimID`, `kills` FROM `clan_rivalries`");
+	private static final BatchStatement UPSERT_RIVALRIES = new BatchStatement("rivalries.upsert",
+		"INSERT INTO `clan_rivalries` (`killerID`, `victimID`, `kills`) VALUES ",
+		"(?, ?, ?)",
+		" ON DUPLICATE KEY UPDATE `kills` = `kills` + VALUES(`kills`)",
+		100);
+	private static final Statement PURGE_RIVALRIES = new Statement("rivalries.purge",
+		"DELETE FROM `clan_rivalries` WHERE `killerID` NOT IN (SELECT `clanID` FROM `clans`) OR `victimID` NOT IN (SELECT `clanID` FROM `clans`)");
+	private static final Statement DELETE_CLAN = new Statement("rivalries.delete",
+		"DELETE FROM `clan_rivalries` WHERE `killerID` = ? OR `victimID` = ?");
+	private final StatementExecutor statements;
+}
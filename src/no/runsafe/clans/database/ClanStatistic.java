@@ -0,0 +1,9 @@
+package no.runsafe.clans.database;
+
+public enum ClanStatistic
+{
+	KILLS,
+	DEATHS,
+	DERGON_KILLS,
+	ASSISTS
+}
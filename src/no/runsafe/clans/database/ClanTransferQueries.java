@@ -0,0 +1,124 @@
+package no.runsafe.clans.database;
+
+import no.runsafe.framework.api.database.IRow;
+import org.joda.time.DateTime;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+// Bulk reads and writes across the clan tables for export and import, each row in the column order of its insert.
+public class ClanTransferQueries
+{
+	public ClanTransferQueries(StatementExecutor statements)
+	{
+		this.statements = statements;
+	}
+
+	// Pages are keyed on the last primary key seen, so every page is an index range scan however deep it is.
+	public List<Object[]> getClanPage(String afterClanID, int limit)
+	{
+		List<Object[]> rows = new ArrayList<Object[]>(0);
+		for (IRow row : statements.query(SELECT_CLAN_PAGE, afterClanID, limit))
+		{
+			rows.add(new Object[]{
+				row.String("clanID"),
+				row.String("leader"),
+				getTimestamp(row.DateTime("created")),
+				row.String("motd"),
+				row.Integer("clanKills"),
+				row.Integer("clanDeaths"),
+				row.Integer("dergonKills")
+			});
+		}
+		return rows;
+	}
+
+	public List<Object[]> getMemberPage(String afterMember, int limit)
+	{
+		List<Object[]> rows = new ArrayList<Object[]>(0);
+		for (IRow row : statements.query(SELECT_MEMBER_PAGE, afterMember, limit))
+			rows.add(new Object[]{row.String("clanID"), row.String("member"), getTimestamp(row.DateTime("joined"))});
+		return rows;
+	}
+
+	public List<Object[]> getInvitePage(String afterClanID, String afterPlayer, int limit)
+	{
+		List<Object[]> rows = new ArrayList<Object[]>(0);
+		for (IRow row : statements.query(SELECT_INVITE_PAGE, afterClanID, afterClanID, afterPlayer, limit))
+			rows.add(new Object[]{row.String("clanID"), row.String("player")});
+		return rows;
+	}
+
+	// Imports are loaded into empty copies of the live tables, which are left alone until the swap.
+	public void createStaging()
+	{
+		dropStaging();
+		statements.execute(CREATE_STAGING_CLANS);
+		statements.execute(CREATE_STAGING_MEMBERS);
+		statements.execute(CREATE_STAGING_INVITES);
+	}
+
+	// One multi-table rename, so other servers see either the old clans or the imported ones and never a mix.
+	public void swapStaging()
+	{
+		statements.execute(SWAP_STAGING);
+	}
+
+	// Removes whatever is left of an import: the staging tables if it failed, the replaced tables if it worked.
+	public void dropStaging()
+	{
+		statements.execute(DROP_STAGING);
+	}
+
+	public void insertClans(List<Object[]> rows)
+	{
+		if (!rows.isEmpty())
+			statements.executeBatch(INSERT_CLANS, rows);
+	}
+
+	public void insertMembers(List<Object[]> rows)
+	{
+		if (!rows.isEmpty())
+			statements.executeBatch(INSERT_MEMBERS, rows);
+	}
+
+	public void insertInvites(List<Object[]> rows)
+	{
+		if (!rows.isEmpty())
+			statements.executeBatch(INSERT_INVITES, rows);
+	}
+
+	private static Timestamp getTimestamp(DateTime time)
+	{
+		return new Timestamp(time == null ? 0 : time.getMillis());
+	}
+
+	private static final Statement SELECT_CLAN_PAGE = new Statement("transfer.clanPage",
+		"SELECT `clanID`, `leader`, `created`, `motd`, `clanKills`, `clanDeaths`, `dergonKills` FROM `clans` WHERE `clanID` > ? ORDER BY `clanID` LIMIT ?");
+	private static final Statement SELECT_MEMBER_PAGE = new Statement("transfer.memberPage",
+		"SELECT `clanID`, `member`, `joined` FROM `clan_members` WHERE `member` > ? ORDER BY `member` LIMIT ?");
+	private static final Statement SELECT_INVITE_PAGE = new Statement("transfer.invitePage",
+		"SELECT `clanID`, `player` FROM `clan_invites` WHERE `clanID` > ? OR (`clanID` = ? AND `player` > ?) ORDER BY `clanID`, `player` LIMIT ?");
+	private static final Statement CREATE_STAGING_CLANS = new Statement("transfer.createClans",
+		"CREATE TABLE `clans_import` LIKE `clans`");
+	private static final Statement CREATE_STAGING_MEMBERS = new Statement("transfer.createMembers",
+		"CREATE TABLE `clan_members_import` LIKE `clan_members`");
+	private static final Statement CREATE_STAGING_INVITES = new Statement("transfer.createInvites",
+		"CREATE TABLE `clan_invites_import` LIKE `clan_invites`");
+	private static final Statement SWAP_STAGING = new Statement("transfer.swap",
+		"RENAME TABLE `clans` TO `clans_replaced`, `clans_import` TO `clans`, " +
+			"`clan_members` TO `clan_members_replaced`, `clan_members_import` TO `clan_members`, " +
+			"`clan_invites` TO `clan_invites_replaced`, `clan_invites_import` TO `clan_invites`");
+	private static final Statement DROP_STAGING = new Statement("transfer.drop",
+		"DROP TABLE IF EXISTS `clans_import`, `clan_members_import`, `clan_invites_import`, " +
+			"`clans_replaced`, `clan_members_replaced`, `clan_invites_replaced`");
+	private static final BatchStatement INSERT_CLANS = new BatchStatement("transfer.insertClans",
+		"INSERT IGNORE INTO `clans_import` (`clanID`, `leader`, `created`, `motd`, `clanKills`, `clanDeaths`, `dergonKills`) VALUES ",
+		"(?, ?, ?, ?, ?, ?, ?)", "", 500);
+	private static final BatchStatement INSERT_MEMBERS = new BatchStatement("transfer.insertMembers",
+		"INSERT IGNORE INTO `clan_members_import` (`clanID`, `member`, `joined`) VALUES ", "(?, ?, ?)", "", 500);
+	private static final BatchStatement INSERT_INVITES = new BatchStatement("transfer.insertInvites",
+		"INSERT IGNORE INTO `clan_invites_import` (`clanID`, `player`) VALUES ", "(?, ?)", "", 500);
+	private final StatementExecutor statements;
+}
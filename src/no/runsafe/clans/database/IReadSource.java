@@ -0,0 +1,10 @@
+package no.runsafe.clans.database;
+
+import no.runsafe.framework.api.database.IDatabase;
+
+// Somewhere other than the primary database that heavy reads can be sent to, such as a read-only replica.
+public interface IReadSource
+{
+	// Returns null while there is nothing to read from, sending every read to the primary.
+	IDatabase getReadDatabase();
+}
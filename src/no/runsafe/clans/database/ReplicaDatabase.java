@@ -0,0 +1,204 @@
+package no.runsafe.clans.database;
+
+import no.runsafe.framework.api.database.IDatabase;
+import no.runsafe.framework.api.database.IRow;
+import no.runsafe.framework.api.database.ISet;
+import no.runsafe.framework.api.log.IConsole;
+import org.joda.time.DateTime;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// A read-only replica reached over its own JDBC connection, the framework only gives us the primary.
+// Failed queries answer null, so StatementExecutor can ask the primary instead.
+public class ReplicaDatabase implements IDatabase
+{
+	public ReplicaDatabase(IConsole console, String url, String user, String password)
+	{
+		this.console = console;
+		this.url = url;
+		this.user = user;
+		this.password = password;
+	}
+
+	@Override
+	public synchronized ISet query(String query, Object... parameters)
+	{
+		PreparedStatement statement = null;
+		try
+		{
+			statement = getConnection().prepareStatement(query);
+			for (int i = 0; i < parameters.length; i++)
+				statement.setObject(i + 1, parameters[i]);
+
+			ResultSet results = statement.executeQuery();
+			ResultSetMetaData columns = results.getMetaData();
+			ReplicaSet rows = new ReplicaSet();
+			while (results.next())
+			{
+				// Linked, so the single value queries can take the first column.
+				Map<String, Object> row = new LinkedHashMap<String, Object>(columns.getColumnCount());
+				for (int column = 1; column <= columns.getColumnCount(); column++)
+					row.put(columns.getColumnLabel(column), results.getObject(column));
+				rows.add(new ReplicaRow(row));
+			}
+			return rows;
+		}
+		catch (SQLException e)
+		{
+			console.logWarning("Replica query failed, reading from the primary instead: %s", e.getMessage());
+			close();
+			return null;
+		}
+		finally
+		{
+			if (statement != null)
+			{
+				try
+				{
+					statement.close();
+				}
+				catch (SQLException e)
+				{
+					// Already reported, or the connection is gone anyway.
+				}
+			}
+		}
+	}
+
+	@Override
+	public IRow queryRow(String query, Object... parameters)
+	{
+		ISet rows = query(query, parameters);
+		return rows == null || rows.isEmpty() ? null : rows.get(0);
+	}
+
+	@Override
+	public DateTime queryDateTime(String query, Object... parameters)
+	{
+		ReplicaRow row = (ReplicaRow) queryRow(query, parameters);
+		return row == null ? null : row.DateTime(row.getFirstColumn());
+	}
+
+	@Override
+	public Integer queryInteger(String query, Object... parameters)
+	{
+		ReplicaRow row = (ReplicaRow) queryRow(query, parameters);
+		return row == null ? null : row.Integer(row.getFirstColumn());
+	}
+
+	@Override
+	public Long queryLong(String query, Object... parameters)
+	{
+		ReplicaRow row = (ReplicaRow) queryRow(query, parameters);
+		return row == null ? null : row.Long(row.getFirstColumn());
+	}
+
+	@Override
+	public String queryString(String query, Object... parameters)
+	{
+		ReplicaRow row = (ReplicaRow) queryRow(query, parameters);
+		return row == null ? null : row.String(row.getFirstColumn());
+	}
+
+	// StatementExecutor only ever reads from here.
+	@Override
+	public boolean execute(String query, Object... parameters)
+	{
+		throw new UnsupportedOperationException("The replica is read only.");
+	}
+
+	@Override
+	public int update(String query, Object... parameters)
+	{
+		throw new UnsupportedOperationException("The replica is read only.");
+	}
+
+	public synchronized void close()
+	{
+		if (connection == null)
+			return;
+
+		try
+		{
+			connection.close();
+		}
+		catch (SQLException e)
+		{
+			console.logException(e);
+		}
+		connection = null;
+	}
+
+	private Connection getConnection() throws SQLException
+	{
+		// Reconnects after a failure, so a replica that was down is picked up again once it is back.
+		if (connection == null || connection.isClosed())
+		{
+			connection = DriverManager.getConnection(url, user, password);
+			connection.setReadOnly(true);
+		}
+		return connection;
+	}
+
+	private static class ReplicaSet extends ArrayList<IRow> implements ISet
+	{
+	}
+
+	private static class ReplicaRow implements IRow
+	{
+		ReplicaRow(Map<String, Object> values)
+		{
+			this.values = values;
+		}
+
+		@Override
+		public String String(String column)
+		{
+			Object value = values.get(column);
+			return value == null ? null : value.toString();
+		}
+
+		@Override
+		public Integer Integer(String column)
+		{
+			Object value = values.get(column);
+			return value == null ? null : ((Number) value).intValue();
+		}
+
+		@Override
+		public Long Long(String column)
+		{
+			Object value = values.get(column);
+			return value == null ? null : ((Number) value).longValue();
+		}
+
+		@Override
+		public DateTime DateTime(String column)
+		{
+			Object value = values.get(column);
+			return value == null ? null : new DateTime(((Date) value).getTime());
+		}
+
+		String getFirstColumn()
+		{
+			return values.isEmpty() ? null : values.keySet().iterator().next();
+		}
+
+		private final Map<String, Object> values;
+	}
+
+	private final IConsole console;
+	private final String url;
+	private final String user;
+	private final String password;
+	private Connection connection;
+}
@@ -0,0 +1,54 @@
+package no.runsafe.clans.database;
+
+import no.runsafe.framework.api.IConfiguration;
+import no.runsafe.framework.api.database.IDatabase;
+import no.runsafe.framework.api.event.plugin.IConfigurationChanged;
+import no.runsafe.framework.api.event.plugin.IPluginDisabled;
+import no.runsafe.framework.api.log.IConsole;
+
+// Sends reads to the replica set up under database.replica, or to the primary while the url is left empty.
+public class ReplicaReadSource implements IReadSource, IConfigurationChanged, IPluginDisabled
+{
+	public ReplicaReadSource(IConsole console)
+	{
+		this.console = console;
+	}
+
+	@Override
+	public void OnConfigurationChanged(IConfiguration config)
+	{
+		if (replica != null)
+			replica.close();
+
+		String url = config.getConfigValueAsString("database.replica.url");
+		if (url == null || url.isEmpty())
+		{
+			replica = null;
+			return;
+		}
+
+		replica = new ReplicaDatabase(
+			console,
+			url,
+			config.getConfigValueAsString("database.replica.user"),
+			config.getConfigValueAsString("database.replica.password")
+		);
+		console.logInformation("Reading clan data from the replica at %s.", url);
+	}
+
+	@Override
+	public void OnPluginDisabled()
+	{
+		if (replica != null)
+			replica.close();
+	}
+
+	@Override
+	public IDatabase getReadDatabase()
+	{
+		return replica;
+	}
+
+	private final IConsole console;
+	private volatile ReplicaDatabase replica;
+}
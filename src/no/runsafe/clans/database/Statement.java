@@ -0,0 +1,23 @@
+package no.runsafe.clans.database;
+
+public class Statement
+{
+	public Statement(String name, String query)
+	{
+		this.name = name;
+		this.query = query;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public String getQuery()
+	{
+		return query;
+	}
+
+	private final String name;
+	private final String query;
+}
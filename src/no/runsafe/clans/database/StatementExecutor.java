@@ -0,0 +1,267 @@
+package no.runsafe.clans.database;
+
+import no.runsafe.framework.api.IConfiguration;
+import no.runsafe.framework.api.database.IDatabase;
+import no.runsafe.framework.api.database.IRow;
+import no.runsafe.framework.api.database.ISet;
+import no.runsafe.framework.api.event.plugin.IConfigurationChanged;
+import org.joda.time.DateTime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+public class StatementExecutor implements IConfigurationChanged
+{
+	public StatementExecutor(IDatabase database, IReadSource readSource)
+	{
+		this.database = database;
+		this.readSource = readSource;
+	}
+
+	@Override
+	public void OnConfigurationChanged(IConfiguration config)
+	{
+		readYourWrites = config.getConfigValueAsInt("database.readYourWrites") * 1000L;
+	}
+
+	public boolean execute(Statement statement, Object... parameters)
+	{
+		count(statement.getName());
+		recordWrite(parameters);
+		return database.execute(statement.getQuery(), parameters);
+	}
+
+	public int update(Statement statement, Object... parameters)
+	{
+		count(statement.getName());
+		recordWrite(parameters);
+		return database.update(statement.getQuery(), parameters);
+	}
+
+	public ISet query(Statement statement, Object... parameters)
+	{
+		count(statement.getName());
+		return database.query(statement.getQuery(), parameters);
+	}
+
+	// Like query, but may be answered by the read source instead of the primary.
+	// Only for bulk loads and lookups that can live with the read source being a little behind.
+	public ISet read(Statement statement, Object... parameters)
+	{
+		count(statement.getName());
+		return readFrom(getReadDatabase(parameters), statement.getQuery(), parameters);
+	}
+
+	public IRow queryRow(Statement statement, Object... parameters)
+	{
+		count(statement.getName());
+		return database.queryRow(statement.getQuery(), parameters);
+	}
+
+	public Long queryLong(Statement statement, Object... parameters)
+	{
+		count(statement.getName());
+		return database.queryLong(statement.getQuery(), parameters);
+	}
+
+	public DateTime queryDateTime(Statement statement, Object... parameters)
+	{
+		count(statement.getName());
+		return database.queryDateTime(statement.getQuery(), parameters);
+	}
+
+	// Sends the rows as few multi-row statements as the batch size allows, each row being one parameter group.
+	public void executeBatch(BatchStatement statement, List<Object[]> rows)
+	{
+		int maxRows = statement.getMaxRows();
+		for (int start = 0; start < rows.size(); start += maxRows)
+		{
+			List<Object[]> chunk = rows.subList(start, Math.min(start + maxRows, rows.size()));
+			List<Object> parameters = new ArrayList<Object>(chunk.size() * chunk.get(0).length);
+			for (Object[] row : chunk)
+				for (Object value : row)
+					parameters.add(value);
+
+			count(statement.getName());
+			recordWrite(parameters.toArray());
+			database.execute(statement.getQuery(chunk.size()), parameters.toArray());
+		}
+	}
+
+	public void executeBatchValues(BatchStatement statement, Iterable<String> values)
+	{
+		List<Object[]> rows = new ArrayList<Object[]>(0);
+		for (String value : values)
+			rows.add(new Object[]{value});
+
+		executeBatch(statement, rows);
+	}
+
+	// Like executeBatchValues, with the same trailing parameters after each chunk's values.
+	public void executeBatchValues(BatchStatement statement, List<String> values, Object... trailing)
+	{
+		int maxRows = statement.getMaxRows();
+		for (int start = 0; start < values.size(); start += maxRows)
+		{
+			List<String> chunk = values.subList(start, Math.min(start + maxRows, values.size()));
+			List<Object> parameters = new ArrayList<Object>(chunk);
+			parameters.addAll(Arrays.asList(trailing));
+
+			count(statement.getName());
+			recordWrite(parameters.toArray());
+			database.execute(statement.getQuery(chunk.size()), parameters.toArray());
+		}
+	}
+
+	// Looks up many keys with as few "IN (...)" queries as the batch size allows.
+	public List<IRow> queryBatchValues(BatchStatement statement, List<String> values)
+	{
+		List<IRow> rows = new ArrayList<IRow>(0);
+		int maxRows = statement.getMaxRows();
+		for (int start = 0; start < values.size(); start += maxRows)
+		{
+			List<String> chunk = values.subList(start, Math.min(start + maxRows, values.size()));
+			count(statement.getName());
+			for (IRow row : database.query(statement.getQuery(chunk.size()), chunk.toArray()))
+				rows.add(row);
+		}
+		return rows;
+	}
+
+	// Like queryBatchValues, but each chunk may be answered by the read source, see read.
+	public List<IRow> readBatchValues(BatchStatement statement, List<String> values)
+	{
+		List<IRow> rows = new ArrayList<IRow>(0);
+		int maxRows = statement.getMaxRows();
+		for (int start = 0; start < values.size(); start += maxRows)
+		{
+			Object[] chunk = values.subList(start, Math.min(start + maxRows, values.size())).toArray();
+			count(statement.getName());
+			for (IRow row : readFrom(getReadDatabase(chunk), statement.getQuery(chunk.length), chunk))
+				rows.add(row);
+		}
+		return rows;
+	}
+
+	public Map<String, Long> getStatementCounts()
+	{
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> counter : counters.entrySet())
+			counts.put(counter.getKey(), counter.getValue().get());
+		return counts;
+	}
+
+	public long getReplicaReads()
+	{
+		return replicaReads.get();
+	}
+
+	public long getPinnedReads()
+	{
+		return pinnedReads.get();
+	}
+
+	private ISet readFrom(IDatabase source, String query, Object[] parameters)
+	{
+		ISet rows = source.query(query, parameters);
+		if (rows == null && source != database)
+			rows = database.query(query, parameters); // The replica is unreachable.
+		return rows;
+	}
+
+	private IDatabase getReadDatabase(Object[] parameters)
+	{
+		IDatabase replica = readSource.getReadDatabase();
+		if (replica == null)
+			return database;
+
+		// A read naming a player or clan written within the window goes to the primary, so players always see their own changes.
+		// A read naming nobody is a bulk load, it only waits out writes that named nobody and so could have changed any row.
+		long now = System.currentTimeMillis();
+		boolean keyed = false;
+		boolean pinned = false;
+		for (Object parameter : parameters)
+		{
+			if (!isKey(parameter))
+				continue;
+
+			keyed = true;
+			Long written = recentWrites.get(parameter);
+			if (written != null && now - written < readYourWrites)
+				pinned = true;
+		}
+		if (!keyed)
+			pinned = now - lastWrite < readYourWrites;
+
+		if (pinned)
+		{
+			pinnedReads.incrementAndGet();
+			return database;
+		}
+		replicaReads.incrementAndGet();
+		return replica;
+	}
+
+	private void recordWrite(Object[] parameters)
+	{
+		if (readSource.getReadDatabase() == null)
+			return;
+
+		long now = System.currentTimeMillis();
+		boolean keyed = false;
+		for (Object parameter : parameters)
+		{
+			if (isKey(parameter))
+			{
+				recentWrites.put((String) parameter, now);
+				keyed = true;
+			}
+		}
+		if (!keyed)
+			lastWrite = now;
+
+		if (now - lastPrune < readYourWrites)
+			return;
+
+		lastPrune = now;
+		Iterator<Long> written = recentWrites.values().iterator();
+		while (written.hasNext())
+			if (now - written.next() >= readYourWrites)
+				written.remove();
+	}
+
+	// Player names and clan tags are the keys, messages and MOTDs never are.
+	private static boolean isKey(Object parameter)
+	{
+		return parameter instanceof String && KEY.matcher((String) parameter).matches();
+	}
+
+	private void count(String name)
+	{
+		AtomicLong counter = counters.get(name);
+		if (counter == null)
+		{
+			counters.putIfAbsent(name, new AtomicLong());
+			counter = counters.get(name);
+		}
+		counter.incrementAndGet();
+	}
+
+	private static final Pattern KEY = Pattern.compile("^[A-Za-z0-9_]{1,16}$");
+	private final IDatabase database;
+	private final IReadSource readSource;
+	private final ConcurrentHashMap<String, Long> recentWrites = new ConcurrentHashMap<String, Long>(0);
+	private final AtomicLong replicaReads = new AtomicLong();
+	private final AtomicLong pinnedReads = new AtomicLong();
+	private volatile long lastWrite;
+	private volatile long lastPrune;
+	private long readYourWrites;
+	private final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>(0);
+}
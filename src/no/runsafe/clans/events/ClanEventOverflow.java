@@ -0,0 +1,8 @@
+package no.runsafe.clans.events;
+
+public enum ClanEventOverflow
+{
+	DROP_NEWEST, // Keep what is queued and discard the event being published.
+	DROP_OLDEST, // Discard the oldest queued event to make room.
+	KEEP_ALL // Never discard, the queue grows past its capacity for subscribers that must see every event.
+}
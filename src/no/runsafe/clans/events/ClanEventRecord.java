@@ -0,0 +1,53 @@
+package no.runsafe.clans.events;
+
+// An immutable copy of what happened, safe to hand to other threads.
+public final class ClanEventRecord
+{
+	public ClanEventRecord(ClanEventType type, String player, String clanID, String clanLeader, String actor)
+	{
+		this.type = type;
+		this.player = player;
+		this.clanID = clanID;
+		this.clanLeader = clanLeader;
+		this.actor = actor;
+		this.time = System.currentTimeMillis();
+	}
+
+	public ClanEventType getType()
+	{
+		return type;
+	}
+
+	public String getPlayer()
+	{
+		return player;
+	}
+
+	public String getClanID()
+	{
+		return clanID;
+	}
+
+	public String getClanLeader()
+	{
+		return clanLeader;
+	}
+
+	// The kicker for kicks and the killer for backstabs and mutinies, otherwise null.
+	public String getActor()
+	{
+		return actor;
+	}
+
+	public long getTime()
+	{
+		return time;
+	}
+
+	private final ClanEventType type;
+	private final String player;
+	private final String clanID;
+	private final String clanLeader;
+	private final String actor;
+	private final long time;
+}
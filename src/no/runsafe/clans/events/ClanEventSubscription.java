@@ -0,0 +1,109 @@
+package no.runsafe.clans.events;
+
+import no.runsafe.framework.api.log.IConsole;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One subscriber's queue, drained by at most one bus thread at a time so events arrive in order.
+public class ClanEventSubscription implements Runnable
+{
+	public ClanEventSubscription(IConsole console, IClanEventSubscriber subscriber, int capacity, ClanEventOverflow overflow)
+	{
+		this.console = console;
+		this.subscriber = subscriber;
+		this.overflow = overflow;
+		this.queue = overflow == ClanEventOverflow.KEEP_ALL
+			? new LinkedBlockingQueue<ClanEventRecord>()
+			: new ArrayBlockingQueue<ClanEventRecord>(capacity);
+	}
+
+	public void offer(ClanEventRecord event)
+	{
+		while (!queue.offer(event))
+		{
+			dropped.incrementAndGet();
+			if (overflow == ClanEventOverflow.DROP_NEWEST)
+				return;
+			queue.poll(); // Make room by dropping the oldest event.
+		}
+	}
+
+	// True if the caller should hand this subscription to a bus thread.
+	public boolean claim()
+	{
+		return !queue.isEmpty() && draining.compareAndSet(false, true);
+	}
+
+	@Override
+	public void run()
+	{
+		do
+		{
+			ClanEventRecord event;
+			while ((event = queue.poll()) != null)
+			{
+				long lag = System.currentTimeMillis() - event.getTime();
+				lastLag = lag;
+				if (lag > maxLag)
+					maxLag = lag;
+
+				try
+				{
+					subscriber.OnClanEvent(event);
+					delivered.incrementAndGet();
+				}
+				catch (RuntimeException e)
+				{
+					console.logException(e);
+				}
+			}
+			draining.set(false);
+		}
+		while (claim()); // Something may have been queued after the last poll.
+	}
+
+	public String getName()
+	{
+		return subscriber.getSubscriberName();
+	}
+
+	public int getQueued()
+	{
+		return queue.size();
+	}
+
+	public long getDelivered()
+	{
+		return delivered.get();
+	}
+
+	public long getDropped()
+	{
+		return dropped.get();
+	}
+
+	// Milliseconds between publishing and delivery of the latest event.
+	public long getLastLag()
+	{
+		return lastLag;
+	}
+
+	public long getMaxLag()
+	{
+		return maxLag;
+	}
+
+	private final IConsole console;
+	private final IClanEventSubscriber subscriber;
+	private final ClanEventOverflow overflow;
+	private final BlockingQueue<ClanEventRecord> queue;
+	private final AtomicBoolean draining = new AtomicBoolean(false);
+	private final AtomicLong delivered = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private volatile long lastLag = 0;
+	private volatile long maxLag = 0;
+}
@@ -0,0 +1,10 @@
+package no.runsafe.clans.events;
+
+public enum ClanEventType
+{
+	JOIN,
+	LEAVE,
+	KICK,
+	BACKSTABBER,
+	MUTINY
+}
@@ -0,0 +1,9 @@
+package no.runsafe.clans.events;
+
+public interface IClanEventSubscriber
+{
+	String getSubscriberName();
+
+	// Called on an event bus thread, never on the main thread.
+	void OnClanEvent(ClanEventRecord event);
+}
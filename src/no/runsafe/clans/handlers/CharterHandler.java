@@ -1,63 +1,147 @@
 package no.runsafe.clans.handlers;
 
+import no.runsafe.clans.Charter;
+import no.runsafe.clans.database.CharterRepository;
+import no.runsafe.framework.api.IConfiguration;
+import no.runsafe.framework.api.event.plugin.IConfigurationChanged;
 import no.runsafe.framework.api.player.IPlayer;
 import no.runsafe.framework.minecraft.Item;
 import no.runsafe.framework.minecraft.item.meta.RunsafeBook;
 import no.runsafe.framework.minecraft.item.meta.RunsafeMeta;
 
+import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
 
-public class CharterHandler
+public class CharterHandler implements IConfigurationChanged
 {
+	public CharterHandler(CharterRepository charterRepository)
+	{
+		this.charterRepository = charterRepository;
+	}
+
+	@Override
+	public void OnConfigurationChanged(IConfiguration configuration)
+	{
+		charterRepository.purgeCharters(configuration.getConfigValueAsInt("charters.expireDays"));
+		charters.clear();
+		charters.putAll(charterRepository.getCharters()); // Pending charters survive restarts.
+		usedCharters.clear();
+		usedCharters.addAll(charterRepository.getUsedCharterIDs());
+	}
+
 	public void givePlayerCharter(IPlayer player, String clanName)
 	{
+		Charter registered = new Charter(createCharterID(), clanName, player.getName(), Collections.singletonList(player.getName()));
+		charters.put(registered.getId(), registered); // Register the charter.
+		charterRepository.persistCharter(registered); // Persist the charter.
+
 		RunsafeMeta charter = Item.Special.Crafted.WrittenBook.getItem(); // Create a book item.
 		charter.setDisplayName("Leather-bound Charter"); // Give the item a name.
 		charter.addLore("§7Clan: " + clanName); // Append the clan name.
 		charter.addLore("§7Leader: " + player.getName()); // Append the clan leader.
-		charter.addLore("§fRight-click to sign the clan charter!"); // Add some info.
+		charter.addLore(CHARTER_INFO); // Add some info.
+		charter.addLore(CHARTER_TAG + registered.getId()); // Link the book to the registry.
 		addCharterSign(charter, player.getName()); // Sign the charter.
 
 		player.give(charter); // Give the player the charter.
 	}
 
-	public boolean itemIsCharter(RunsafeMeta item)
+	public Charter getCharter(RunsafeMeta item)
 	{
 		List<String> lore = item.getLore();
-		return lore != null && lore.size() == 3 && lore.get(2).equals("§fRight-click to sign the clan charter!");
+		if (lore != null && lore.size() == 3 && lore.get(2).equals(CHARTER_INFO))
+			return registerLegacyCharter(item, lore);
+
+		if (lore == null || lore.size() != 4)
+			return null;
+
+		String tag = lore.get(3);
+		if (!tag.startsWith(CHARTER_TAG))
+			return null;
+
+		// Books that are not in the registry are forged, or copies of a charter that was already used.
+		return charters.get(tag.substring(CHARTER_TAG.length()));
 	}
 
-	public String getClanName(RunsafeMeta charter)
+	public void signCharter(Charter charter, RunsafeMeta item, String playerName)
 	{
-		return getCharterValue(charter.getLore(), 0);
+		charter.addSigner(playerName); // Sign the registered charter.
+		charterRepository.updateSigners(charter);
+		addCharterSign(item, playerName); // Show the sign in the book.
 	}
 
-	public String getLeaderName(RunsafeMeta charter)
+	public void removeCharter(Charter charter)
 	{
-		return getCharterValue(charter.getLore(), 1);
+		charters.remove(charter.getId());
+		usedCharters.add(charter.getId());
+		charterRepository.markUsed(charter.getId()); // Kept until purged, so legacy copies stay rejected.
 	}
 
-	private String getCharterValue(List<String> values, int index)
+	public void addCharterSign(RunsafeMeta item, String playerName)
 	{
-		if (values == null)
-			return "INVALID"; // This should never happen.
-
-		return values.get(index).split("\\s")[1];
+		RunsafeBook charter = (RunsafeBook) item; // Convert item to a book.
+		charter.addPages(playerName); // Add the sign to the charter.
 	}
 
-	public List<String> getCharterSigns(RunsafeMeta item)
+	// Charters from before the registry carry no tag, so they are registered the first time one is used.
+	private Charter registerLegacyCharter(RunsafeMeta item, List<String> lore)
 	{
-		RunsafeBook charter = (RunsafeBook) item; // Convert item to a book.
-		if (charter.hasPages()) // Check we have some pages.
-			return charter.getPages(); // Return the pages.
+		String clanName = getLegacyValue(lore.get(0));
+		String leader = getLegacyValue(lore.get(1));
+		if (clanName == null || leader == null)
+			return null;
+
+		// Copies of the same book map to the same ID, so only one of them can ever form the clan.
+		CRC32 crc = new CRC32();
+		crc.update((clanName + "," + leader).getBytes());
+		String charterID = LEGACY_PREFIX + Long.toHexString(crc.getValue());
+		if (usedCharters.contains(charterID))
+			return null;
 
-		return Collections.emptyList(); // Return an empty thing.
+		Charter registered = charters.get(charterID);
+		if (registered == null)
+		{
+			RunsafeBook book = (RunsafeBook) item;
+			List<String> signers = new ArrayList<String>(3);
+			signers.add(leader);
+			if (book.hasPages())
+				signers.addAll(book.getPages());
+
+			registered = new Charter(charterID, clanName, leader, signers);
+			charters.put(charterID, registered);
+			charterRepository.persistCharter(registered);
+		}
+		item.addLore(CHARTER_TAG + charterID); // Tag the book, it is a registered charter from now on.
+		return registered;
 	}
 
-	public void addCharterSign(RunsafeMeta item, String playerName)
+	private static String getLegacyValue(String line)
 	{
-		RunsafeBook charter = (RunsafeBook) item; // Convert item to a book.
-		charter.addPages(playerName); // Add the sign to the charter.
+		String[] parts = line.split("\\s");
+		return parts.length < 2 ? null : parts[1];
+	}
+
+	private String createCharterID()
+	{
+		String charterID;
+		do
+			charterID = Long.toHexString(random.nextLong());
+		while (charters.containsKey(charterID));
+
+		return charterID;
 	}
+
+	private static final String CHARTER_TAG = "§8#";
+	private static final String CHARTER_INFO = "§fRight-click to sign the clan charter!";
+	private static final String LEGACY_PREFIX = "L";
+	private final CharterRepository charterRepository;
+	private final SecureRandom random = new SecureRandom();
+	private final Map<String, Charter> charters = new ConcurrentHashMap<String, Charter>(0);
+	private final Set<String> usedCharters = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>(0));
 }
@@ -0,0 +1,108 @@
+package no.runsafe.clans.handlers;
+
+import no.runsafe.clans.chat.ClanChatRing;
+import no.runsafe.framework.api.IConfiguration;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.event.plugin.IConfigurationChanged;
+import no.runsafe.framework.api.player.IPlayer;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Recent clan channel lines, replayed to members as they log in.
+public class ClanChatHistory implements IConfigurationChanged
+{
+	public ClanChatHistory(IScheduler scheduler)
+	{
+		this.scheduler = scheduler;
+	}
+
+	@Override
+	public void OnConfigurationChanged(IConfiguration config)
+	{
+		int lines = Math.max(1, config.getConfigValueAsInt("chatHistory.lines"));
+		int bytes = config.getConfigValueAsInt("chatHistory.bytes");
+		if (lines != maxLines || bytes != maxBytes)
+			histories.clear(); // Rings are sized on creation, start over with the new limits.
+
+		maxLines = lines;
+		maxBytes = bytes;
+		replayLines = config.getConfigValueAsInt("chatHistory.replay");
+		idleTime = config.getConfigValueAsInt("chatHistory.idleMinutes") * 60000L;
+
+		if (evictTimer != null)
+			scheduler.cancelTask(evictTimer);
+
+		evictTimer = scheduler.startAsyncRepeatingTask(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				evictIdle();
+			}
+		}, 60, 60);
+	}
+
+	public void record(String clanID, String line)
+	{
+		if (maxBytes <= 0)
+			return;
+
+		ClanChatRing history = histories.get(clanID);
+		if (history == null)
+		{
+			histories.putIfAbsent(clanID, new ClanChatRing(maxLines, maxBytes));
+			history = histories.get(clanID);
+		}
+		history.add(line, System.currentTimeMillis());
+	}
+
+	public void replay(IPlayer player, String clanID)
+	{
+		ClanChatRing history = histories.get(clanID);
+		if (history == null)
+			return;
+
+		List<String> lines = history.getLatest(replayLines);
+		if (!lines.isEmpty())
+			player.sendColouredMessage("&7Recent clan chat:\n" + StringUtils.join(lines, "\n"));
+	}
+
+	public void remove(String clanID)
+	{
+		histories.remove(clanID);
+	}
+
+	public int getClanCount()
+	{
+		return histories.size();
+	}
+
+	public long getUsedBytes()
+	{
+		long used = 0;
+		for (ClanChatRing history : histories.values())
+			used += history.getUsedBytes();
+		return used;
+	}
+
+	private void evictIdle()
+	{
+		// A clan nobody has spoken in for a while has nothing worth replaying, so give the memory back.
+		long cutoff = System.currentTimeMillis() - idleTime;
+		Iterator<ClanChatRing> iterator = histories.values().iterator();
+		while (iterator.hasNext())
+			if (iterator.next().getLastActivity() < cutoff)
+				iterator.remove();
+	}
+
+	private final IScheduler scheduler;
+	private final ConcurrentHashMap<String, ClanChatRing> histories = new ConcurrentHashMap<String, ClanChatRing>(0);
+	private Integer evictTimer;
+	private int maxLines;
+	private int maxBytes;
+	private int replayLines;
+	private long idleTime;
+}
@@ -0,0 +1,105 @@
+package no.runsafe.clans.handlers;
+
+import no.runsafe.clans.Clan;
+import no.runsafe.clans.events.BackstabberEvent;
+import no.runsafe.clans.events.ClanEventOverflow;
+import no.runsafe.clans.events.ClanEventRecord;
+import no.runsafe.clans.events.ClanJoinEvent;
+import no.runsafe.clans.events.ClanKickEvent;
+import no.runsafe.clans.events.ClanLeaveEvent;
+import no.runsafe.clans.events.IClanEventSubscriber;
+import no.runsafe.clans.events.MutinyEvent;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.IServer;
+import no.runsafe.framework.api.player.IPlayer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Turns bus events back into the old custom events, fired on the main thread, for listeners outside the plugin core.
+public class ClanEventBridge implements IClanEventSubscriber
+{
+	public ClanEventBridge(IServer server, IScheduler scheduler, ClanHandler clanHandler, ClanEventBus eventBus)
+	{
+		this.server = server;
+		this.scheduler = scheduler;
+		this.clanHandler = clanHandler;
+
+		// Legacy listeners must see every join, leave and kick, so nothing is dropped if the bus falls behind.
+		eventBus.subscribe(this, 0, ClanEventOverflow.KEEP_ALL);
+	}
+
+	@Override
+	public String getSubscriberName()
+	{
+		return "Legacy events";
+	}
+
+	@Override
+	public void OnClanEvent(ClanEventRecord event)
+	{
+		pending.add(event);
+
+		// One main thread task fires everything that arrived before it ran.
+		if (scheduled.compareAndSet(false, true))
+			scheduler.startSyncTask(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					drain();
+				}
+			}, 0);
+	}
+
+	private void drain()
+	{
+		scheduled.set(false);
+		ClanEventRecord event;
+		while ((event = pending.poll()) != null)
+			Fire(event);
+	}
+
+	private void Fire(ClanEventRecord event)
+	{
+		IPlayer player = server.getPlayerExact(event.getPlayer());
+		switch (event.getType())
+		{
+			case JOIN:
+				new ClanJoinEvent(player, getClan(event)).Fire();
+				break;
+
+			case LEAVE:
+				new ClanLeaveEvent(player, getClan(event)).Fire();
+				break;
+
+			case KICK:
+				new ClanKickEvent(player, getClan(event), server.getPlayerExact(event.getActor())).Fire();
+				break;
+
+			case BACKSTABBER:
+				if (player != null)
+					new BackstabberEvent(player).Fire();
+				break;
+
+			case MUTINY:
+				if (player != null)
+					new MutinyEvent(player).Fire();
+				break;
+		}
+	}
+
+	private Clan getClan(ClanEventRecord event)
+	{
+		// The clan may have been disbanded since, listeners still get one with the same tag and leader.
+		Clan clan = clanHandler.getClan(event.getClanID());
+		return clan != null ? clan : new Clan(event.getClanID(), event.getClanLeader(), "");
+	}
+
+	private final IServer server;
+	private final IScheduler scheduler;
+	private final ClanHandler clanHandler;
+	private final Queue<ClanEventRecord> pending = new ConcurrentLinkedQueue<ClanEventRecord>();
+	private final AtomicBoolean scheduled = new AtomicBoolean(false);
+}
@@ -0,0 +1,94 @@
+package no.runsafe.clans.handlers;
+
+import no.runsafe.clans.events.ClanEventOverflow;
+import no.runsafe.clans.events.ClanEventRecord;
+import no.runsafe.clans.events.ClanEventSubscription;
+import no.runsafe.clans.events.IClanEventSubscriber;
+import no.runsafe.framework.api.IConfiguration;
+import no.runsafe.framework.api.event.plugin.IConfigurationChanged;
+import no.runsafe.framework.api.event.plugin.IPluginDisabled;
+import no.runsafe.framework.api.log.IConsole;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Hands clan events to subscribers on a small pool of bus threads, so publishing never waits on a listener.
+public class ClanEventBus implements IConfigurationChanged, IPluginDisabled
+{
+	public ClanEventBus(IConsole console)
+	{
+		this.console = console;
+	}
+
+	@Override
+	public void OnConfigurationChanged(IConfiguration config)
+	{
+		if (executor != null)
+			return; // Subscribers may be mid-delivery, the pool is only sized once.
+
+		executor = Executors.newFixedThreadPool(config.getConfigValueAsInt("eventBus.threads"), new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "RunsafeClans-events-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		// Deliver anything published before the pool existed.
+		for (ClanEventSubscription subscription : subscriptions)
+			dispatch(subscription);
+	}
+
+	@Override
+	public void OnPluginDisabled()
+	{
+		if (executor != null)
+			executor.shutdown();
+		executor = null; // A reload after this builds a new pool, rather than dispatching to the one shut down.
+	}
+
+	public ClanEventSubscription subscribe(IClanEventSubscriber subscriber, int capacity, ClanEventOverflow overflow)
+	{
+		ClanEventSubscription subscription = new ClanEventSubscription(console, subscriber, capacity, overflow);
+		subscriptions.add(subscription);
+		return subscription;
+	}
+
+	public void unsubscribe(ClanEventSubscription subscription)
+	{
+		subscriptions.remove(subscription);
+	}
+
+	public void publish(ClanEventRecord event)
+	{
+		for (ClanEventSubscription subscription : subscriptions)
+		{
+			subscription.offer(event);
+			dispatch(subscription);
+		}
+	}
+
+	public List<ClanEventSubscription> getSubscriptions()
+	{
+		return subscriptions;
+	}
+
+	private void dispatch(ClanEventSubscription subscription)
+	{
+		ExecutorService pool = executor;
+		if (pool != null && !pool.isShutdown() && subscription.claim())
+			pool.execute(subscription);
+	}
+
+	private final IConsole console;
+	private final List<ClanEventSubscription> subscriptions = new CopyOnWriteArrayList<ClanEventSubscription>();
+	private final AtomicInteger threadCount = new AtomicInteger();
+	private volatile ExecutorService executor;
+}
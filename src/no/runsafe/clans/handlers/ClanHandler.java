@@ -1,46 +1,68 @@
 package no.runsafe.clans.handlers;
 
 import no.runsafe.clans.Clan;
+import no.runsafe.clans.ClanPlayerData;
+import no.runsafe.clans.ClanRelations;
+import no.runsafe.clans.PrefixIndex;
+import no.runsafe.clans.RivalryMatrix;
 import no.runsafe.clans.chat.ClanChannel;
+import no.runsafe.clans.database.ClanChange;
+import no.runsafe.clans.database.ClanChangeRepository;
+import no.runsafe.clans.database.ClanChangeType;
 import no.runsafe.clans.database.ClanInviteRepository;
+import no.runsafe.clans.database.ClanMailType;
 import no.runsafe.clans.database.ClanMemberRepository;
+import no.runsafe.clans.database.ClanMemberStatsRepository;
+import no.runsafe.clans.database.ClanRelation;
+import no.runsafe.clans.database.ClanRelationRepository;
 import no.runsafe.clans.database.ClanRepository;
-import no.runsafe.clans.events.ClanEvent;
-import no.runsafe.clans.events.ClanJoinEvent;
-import no.runsafe.clans.events.ClanKickEvent;
-import no.runsafe.clans.events.ClanLeaveEvent;
+import no.runsafe.clans.database.ClanRivalryRepository;
+import no.runsafe.clans.database.ClanStatistic;
+import no.runsafe.clans.events.ClanEventRecord;
+import no.runsafe.clans.events.ClanEventType;
+import no.runsafe.clans.storage.ClanJournal;
+import no.runsafe.clans.storage.ClanSnapshot;
+import no.runsafe.clans.storage.JournalEntry;
 import no.runsafe.framework.api.IConfiguration;
 import no.runsafe.framework.api.IScheduler;
 import no.runsafe.framework.api.IServer;
-import no.runsafe.framework.api.event.player.IPlayerCustomEvent;
-import no.runsafe.framework.api.event.player.IPlayerJoinEvent;
 import no.runsafe.framework.api.event.player.IPlayerQuitEvent;
 import no.runsafe.framework.api.event.plugin.IConfigurationChanged;
+import no.runsafe.framework.api.event.plugin.IPluginDisabled;
 import no.runsafe.framework.api.hook.IPlayerDataProvider;
 import no.runsafe.framework.api.log.IConsole;
 import no.runsafe.framework.api.player.IPlayer;
-import no.runsafe.framework.minecraft.event.player.RunsafeCustomEvent;
-import no.runsafe.framework.minecraft.event.player.RunsafePlayerJoinEvent;
 import no.runsafe.framework.minecraft.event.player.RunsafePlayerQuitEvent;
 import no.runsafe.nchat.channel.IChannelManager;
 import no.runsafe.nchat.channel.IChatChannel;
-import no.runsafe.nchat.chat.InternalRealChatEvent;
-import org.apache.commons.lang.StringUtils;
 import org.joda.time.DateTime;
 import org.joda.time.Period;
 import org.joda.time.PeriodType;
 import org.joda.time.format.PeriodFormat;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Pattern;
 
-public class ClanHandler implements IConfigurationChanged, IPlayerDataProvider, IPlayerJoinEvent, IPlayerQuitEvent, IPlayerCustomEvent
+public class ClanHandler implements IConfigurationChanged, IPluginDisabled, IPlayerDataProvider, IPlayerQuitEvent
 {
-	public ClanHandler(IConsole console, IServer server, IScheduler scheduler, ClanRepository clanRepository, ClanMemberRepository memberRepository, ClanInviteRepository inviteRepository, IChannelManager channelManager)
+	public ClanHandler(IConsole console, IServer server, IScheduler scheduler, ClanRepository clanRepository, ClanMemberRepository memberRepository, ClanInviteRepository inviteRepository, ClanChangeRepository changeRepository, ClanMemberStatsRepository memberStatsRepository, ClanRelationRepository relationRepository, ClanRelations relations, ClanRivalryRepository rivalryRepository, RivalryMatrix rivalries, ClanEventBus eventBus, ClanMailbox mailbox, ClanChatHistory chatHistory, IChannelManager channelManager)
 	{
 		this.console = console;
 		this.server = server;
@@ -48,6 +70,15 @@ public class ClanHandler implements IConfigurationChanged, IPlayerDataProvider,
 		this.clanRepository = clanRepository;
 		this.memberRepository = memberRepository;
 		this.inviteRepository = inviteRepository;
+		this.changeRepository = changeRepository;
+		this.memberStatsRepository = memberStatsRepository;
+		this.relationRepository = relationRepository;
+		this.relations = relations;
+		this.rivalryRepository = rivalryRepository;
+		this.rivalries = rivalries;
+		this.eventBus = eventBus;
+		this.mailbox = mailbox;
+		this.chatHistory = chatHistory;
 		this.channelManager = channelManager;
 	}
 
@@ -55,63 +86,160 @@ public class ClanHandler implements IConfigurationChanged, IPlayerDataProvider,
 	public void OnConfigurationChanged(IConfiguration config)
 	{
 		clanTagFormat = config.getConfigValueAsString("chatTag");
-		LoadRostersIntoCache();
-		LoadInvitesIntoCache();
+		syncEnabled = config.getConfigValueAsBoolean("sync.enabled");
+		snapshotFile = new File(config.getConfigValueAsString("snapshot.path"));
+
+		// Finish anything a crash interrupted before the caches are built from the tables.
+		if (journal == null)
+			OpenJournal(config);
+
+		// Read before loading, anything committed from here on is picked up by the sync poller.
+		if (syncEnabled)
+			changeCursor = changeRepository.getLatestChangeID();
+
+		// Only the first load can use the snapshot, later reloads must see the live tables.
+		if (cacheLoaded || !LoadSnapshotIntoCache())
+			reloadCaches();
+		cacheLoaded = true;
+
+		if (statisticsFlushTimer != null)
+			scheduler.cancelTask(statisticsFlushTimer);
+
+		int flushInterval = config.getConfigValueAsInt("memberStats.flushInterval");
+		statisticsFlushTimer = scheduler.startAsyncRepeatingTask(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				FlushMemberStatistics();
+			}
+		}, flushInterval, flushInterval);
+
+		if (compactionTimer != null)
+			scheduler.cancelTask(compactionTimer);
+
+		int compactInterval = config.getConfigValueAsInt("journal.compactInterval");
+		compactionTimer = scheduler.startAsyncRepeatingTask(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				if (journal != null)
+					journal.compact();
+			}
+		}, compactInterval, compactInterval);
+
+		// Anyone who asked for player data while we were loading can have it now.
+		RunPendingPlayerData();
+	}
+
+	@Override
+	public void OnPluginDisabled()
+	{
+		FlushMemberStatistics();
+		CloseJournal();
+		if (snapshotFile == null)
+			return;
+
+		try
+		{
+			// The checksum is taken from the cached payload, so a cache that drifted from the tables is never persisted.
+			ClanSnapshot snapshot = new ClanSnapshot(clans, getRosters(), getJoinDates(), playerInvites);
+			if (snapshot.getChecksum() != getDatabaseChecksum())
+			{
+				console.logWarning("Clan cache does not match the database, not saving a snapshot.");
+				return;
+			}
+			snapshot.write(snapshotFile);
+			console.logInformation("Saved clan snapshot with %s clans.", clans.size());
+		}
+		catch (IOException e)
+		{
+			console.logException(e);
+		}
 	}
 
 	@Override
 	public Map<String, String> GetPlayerData(IPlayer player)
 	{
-		Map<String, String> data = new HashMap<String, String>(1);
-		Clan playerClan = getPlayerClan(player.getName());
-		data.put("runsafe.clans.clan", playerClan == null ? "None" : playerClan.getId());
-		data.put("runsafe.clans.joined", getPlayerJoinString(player));
+		return getPlayerData(player.getName()).getData();
+	}
+
+	public ClanPlayerData getPlayerData(String playerName)
+	{
+		ClanPlayerData data = playerData.get(playerName);
+		if (data == null)
+		{
+			playerDataHits.incrementAndGet(); // Everyone outside a clan shares the one entry.
+			return noClanData;
+		}
+
+		// The joined text is relative, so it is refreshed at most once a minute.
+		if (System.currentTimeMillis() - data.getBuiltAt() > PLAYER_DATA_REFRESH)
+		{
+			playerDataMisses.incrementAndGet();
+			data = buildPlayerData(data.getClanID(), data.getJoined());
+			playerData.replace(playerName, data);
+		}
+		else
+			playerDataHits.incrementAndGet();
 		return data;
 	}
 
-	public String getPlayerJoinString(IPlayer player)
+	public int getPlayerDataCount()
 	{
-		return formatTime(memberRepository.getClanMemberJoinDate(player));
+		return playerData.size();
 	}
 
-	@Override
-	public void OnPlayerCustomEvent(RunsafeCustomEvent event)
+	// Lookups answered by a precomputed entry as it was.
+	public long getPlayerDataHits()
 	{
-		if (event instanceof ClanEvent)
+		return playerDataHits.get();
+	}
+
+	// Lookups that found the entry stale and rebuilt it.
+	public long getPlayerDataMisses()
+	{
+		return playerDataMisses.get();
+	}
+
+	public Future<ClanPlayerData> getPlayerDataAsync(final String playerName)
+	{
+		FutureTask<ClanPlayerData> task = new FutureTask<ClanPlayerData>(new Callable<ClanPlayerData>()
 		{
-			Clan clan = ((ClanEvent) event).getClan();
-			IPlayer player = event.getPlayer();
-			if (event instanceof ClanJoinEvent)
+			@Override
+			public ClanPlayerData call()
 			{
-				joinClanChannel(player, clan.getId());
-				sendMessageToClan(clan.getId(), player.getPrettyName() + " has joined the clan.");
-			}
-			else if (event instanceof ClanLeaveEvent)
-			{
-				leaveClanChannel(player, clan.getId());
-				sendMessageToClan(clan.getId(), player.getPrettyName() + " has left the clan.");
-			}
-			else if (event instanceof ClanKickEvent)
-			{
-				leaveClanChannel(player, clan.getId());
-				sendMessageToClan(clan.getId(), player.getPrettyName() + " has been kicked from the clan by " + ((ClanKickEvent) event).getKicker().getPrettyName() + ".");
+				return getPlayerData(playerName);
 			}
+		});
+
+		if (cacheLoaded)
+		{
+			task.run(); // Everything is in memory, so this completes right away.
+			return task;
 		}
+
+		pendingPlayerData.add(task);
+
+		// The load may have finished and drained the queue between the check and the add, so drain again.
+		// A task only ever runs once, whichever thread gets to it first.
+		if (cacheLoaded)
+			RunPendingPlayerData();
+
+		return task;
 	}
 
-	@Override
-	public void OnPlayerJoinEvent(RunsafePlayerJoinEvent event)
+	private void RunPendingPlayerData()
 	{
-		if (event.isFake())
-			return;
-		IPlayer player = event.getPlayer(); // Grab the player.
-
-		// Check if we have any pending invites.
-		if (playerInvites.containsKey(player.getName()))
-			processPendingInvites(player);
+		FutureTask<ClanPlayerData> pending;
+		while ((pending = pendingPlayerData.poll()) != null)
+			pending.run();
+	}
 
-		if (playerIsInClan(player.getName()))
-			processClanMemberConnected(player);
+	public String getPlayerJoinString(IPlayer player)
+	{
+		return formatTime(getPlayerData(player.getName()).getJoined());
 	}
 
 	@Override
@@ -121,13 +249,51 @@ public class ClanHandler implements IConfigurationChanged, IPlayerDataProvider,
 			processClanMemberDisconnected(event);
 	}
 
-	public void createClan(String clanID, String playerLeader)
+	// False if the tag is taken or an import holds the tables.
+	public boolean createClan(String clanID, String playerLeader)
+	{
+		if (!beginChange())
+			return false;
+		try
+		{
+			clanID = clanID.toUpperCase(); // Make sure the clan ID is upper-case.
+			if (clanExists(clanID)) return false; // Be sure we don't have a clan with this name already.
+			Clan newClan = new Clan(clanID, playerLeader, "Welcome to " + clanID); // Create a new clan object.
+			clans.put(clanID, newClan); // Push the clan into the clan handler.
+			clanIndex.add(clanID); // Make the clan searchable.
+			long entry = journal(ClanChangeType.CLAN_CREATE, clanID, playerLeader, newClan.getMotd());
+			clanRepository.persistClan(newClan); // Persist the clan in the database.
+			recordChange(ClanChangeType.CLAN_CREATE, clanID, playerLeader);
+			commitJournal(entry);
+			return true;
+		}
+		finally
+		{
+			endChange();
+		}
+	}
+
+	// Creates the clan and adds its founders as one change, so an import can never leave it half formed.
+	// Returns the founders who could not join, or null if the clan was not created.
+	public List<String> foundClan(String clanID, String playerLeader, List<String> founders)
 	{
-		clanID = clanID.toUpperCase(); // Make sure the clan ID is upper-case.
-		if (clanExists(clanID)) return; // Be sure we don't have a clan with this name already.
-		Clan newClan = new Clan(clanID, playerLeader, "Welcome to " + clanID); // Create a new clan object.
-		clans.put(clanID, newClan); // Push the clan into the clan handler.
-		clanRepository.persistClan(newClan); // Persist the clan in the database.
+		if (!beginChange())
+			return null;
+		try
+		{
+			if (!createClan(clanID, playerLeader))
+				return null;
+
+			List<String> refused = new ArrayList<String>(0);
+			for (String founder : founders)
+				if (playerIsInClan(founder) || !addClanMember(clanID, founder))
+					refused.add(founder);
+			return refused;
+		}
+		finally
+		{
+			endChange();
+		}
 	}
 
 	public boolean isInvalidClanName(String clanID)
@@ -141,53 +307,132 @@ public class ClanHandler implements IConfigurationChanged, IPlayerDataProvider,
 		return clans.containsKey(clanID); // Do we have a clan with this name?
 	}
 
-	public void addClanMember(String clanID, String playerName)
+	public boolean addClanMember(String clanID, String playerName)
 	{
-		removeAllPendingInvites(playerName); // Remove all pending invites.
-		Clan clan = clans.get(clanID);
-		clan.addMember(playerName); // Add to cache.
-		playerClanIndex.put(playerName, clanID); // Add to index.
-		memberRepository.addClanMember(clan.getId(), playerName);
-		new ClanJoinEvent(server.getPlayerExact(playerName), clan).Fire(); // Fire a join event.
+		if (!beginChange())
+			return false;
+		try
+		{
+			removeAllPendingInvites(playerName); // Remove all pending invites.
+			Clan clan = clans.get(clanID);
+			long entry = journal(ClanChangeType.MEMBER_JOIN, clanID, playerName, null);
+			if (!memberRepository.addClanMember(clan.getId(), playerName))
+			{
+				commitJournal(entry);
+				console.logWarning("%s could not join %s, they already joined %s elsewhere.", playerName, clanID, memberRepository.getMemberClan(playerName));
+				return false;
+			}
+			clan.addMember(playerName); // Add to cache.
+			playerClanIndex.put(playerName, clanID); // Add to index.
+			memberIndex.add(playerName); // Make the member searchable.
+			playerData.put(playerName, buildPlayerData(clanID, DateTime.now())); // Precompute the player data.
+			recordChange(ClanChangeType.MEMBER_JOIN, clanID, playerName);
+			commitJournal(entry);
+			publishEvent(ClanEventType.JOIN, playerName, clan, null); // Fire a join event.
+			return true;
+		}
+		finally
+		{
+			endChange();
+		}
 	}
 
-	public void kickClanMember(IPlayer player, IPlayer kicker)
+	public boolean kickClanMember(IPlayer player, IPlayer kicker)
 	{
-		Clan playerClan = getPlayerClan(player.getName());
-
-		if (playerClan != null)
+		if (!beginChange())
+			return false;
+		try
 		{
+			Clan playerClan = getPlayerClan(player.getName());
+			if (playerClan == null)
+				return false;
+
 			removeClanMember(playerClan, player);
-			new ClanKickEvent(player, playerClan, kicker).Fire();
+			publishEvent(ClanEventType.KICK, player.getName(), playerClan, kicker.getName());
+			return true;
+		}
+		finally
+		{
+			endChange();
 		}
 	}
 
-	public void removeClanMember(IPlayer player)
+	public boolean removeClanMember(IPlayer player)
 	{
-		Clan playerClan = getPlayerClan(player.getName());
-
-		if (playerClan != null)
+		if (!beginChange())
+			return false;
+		try
 		{
+			Clan playerClan = getPlayerClan(player.getName());
+			if (playerClan == null)
+				return false;
+
 			removeClanMember(playerClan, player);
-			new ClanLeaveEvent(player, playerClan).Fire();
+			publishEvent(ClanEventType.LEAVE, player.getName(), playerClan, null);
+			return true;
+		}
+		finally
+		{
+			endChange();
 		}
 	}
 
 	private void removeClanMember(Clan clan, IPlayer player)
 	{
 		String playerName = player.getName();
+		synchronized (statisticsLock)
+		{
+			// Save the other members' stats before the slot is reused, the leaver starts from scratch if they rejoin.
+			memberStatsRepository.addStatistics(withoutMember(clan.drainPendingStatistics(), playerName));
+			memberStatsRepository.removeMemberStatistics(clan.getId(), playerName);
+			commitMemberStatistics(takeMemberStatisticEntries(clan.getId()));
+		}
 		clans.get(clan.getId()).removeMember(playerName); // Remove from cache.
 		playerClanIndex.remove(playerName); // Remove from index.
+		memberIndex.remove(playerName); // Remove from the search index.
+		playerData.remove(playerName); // Drop the player data.
+		long entry = journal(ClanChangeType.MEMBER_LEAVE, clan.getId(), playerName, null);
 		memberRepository.removeClanMemberByName(player.getName());
-		new ClanLeaveEvent(player, clan).Fire(); // Fire a leave event.
+		recordChange(ClanChangeType.MEMBER_LEAVE, clan.getId(), playerName);
+		commitJournal(entry);
+		publishEvent(ClanEventType.LEAVE, playerName, clan, null); // Fire a leave event.
 	}
 
-	public void changeClanLeader(String clanID, IPlayer newLeader)
+	public boolean changeClanLeader(String clanID, String currentLeader, IPlayer newLeader)
 	{
-		String playerName = newLeader.getName();
-		clans.get(clanID).setLeader(playerName);
-		clanRepository.changeClanLeader(clanID, newLeader);
-		sendMessageToClan(clanID, newLeader.getPrettyName() + " has been given leadership of the clan.");
+		if (!beginChange())
+			return false;
+		try
+		{
+			String playerName = newLeader.getName();
+			for (int attempt = 0; attempt < UPDATE_ATTEMPTS; attempt++)
+			{
+				Clan clan = getClan(clanID);
+				if (clan == null || !clan.getLeader().equals(currentLeader))
+					return false; // Someone else changed the leadership first.
+
+				int version = clan.getVersion();
+				long entry = journal(ClanChangeType.LEADER, clanID, playerName, null, version);
+				boolean updated = clanRepository.changeClanLeader(clanID, playerName, version);
+				commitJournal(entry);
+				if (updated)
+				{
+					clan.setLeader(playerName);
+					clan.setVersion(version + 1);
+					recordChange(ClanChangeType.LEADER, clanID, playerName);
+					sendMessageToClan(clanID, newLeader.getPrettyName() + " has been given leadership of the clan.");
+					mailbox.notifyOfflineMembers(clan, ClanMailType.LEADER, formatClanMessage(clanID, playerName + " has been given leadership of the clan."));
+					return true;
+				}
+				refreshClan(clanID); // Version conflict, pick up the other write and try again.
+			}
+			console.logError("Unable to change leader of clan %s due to concurrent updates.", clanID);
+			return false;
+		}
+		finally
+		{
+			endChange();
+		}
 	}
 
 	public boolean playerIsInClan(String playerName)
@@ -205,60 +450,139 @@ public class ClanHandler implements IConfigurationChanged, IPlayerDataProvider,
 		return playerClanIndex.containsKey(playerName) ? getClan(playerClanIndex.get(playerName)) : null;
 	}
 
+	public String getPlayerClanID(String playerName)
+	{
+		return playerClanIndex.get(playerName);
+	}
+
 	public Clan getClan(String clanID)
 	{
 		return clans.containsKey(clanID) ? clans.get(clanID) : null;
 	}
 
+	public List<String> findClans(String prefix, int limit)
+	{
+		return clanIndex.find(prefix, limit);
+	}
+
+	public List<String> findMembers(String prefix, int limit)
+	{
+		return memberIndex.find(prefix, limit);
+	}
+
+	public String getMemberName(String playerName)
+	{
+		return memberIndex.getExact(playerName);
+	}
+
 	public boolean playerIsClanLeader(String playerName)
 	{
 		Clan playerClan = getPlayerClan(playerName);
 		return playerClan != null && playerClan.getLeader().equals(playerName);
 	}
 
+	public List<String> getPendingInvites(String playerName)
+	{
+		return playerInvites.get(playerName);
+	}
+
 	public boolean playerHasPendingInvite(String clanID, String playerName)
 	{
 		return playerInvites.containsKey(playerName) && playerInvites.get(playerName).contains(clanID);
 	}
 
-	public void invitePlayerToClan(String clanID, IPlayer player)
+	public boolean invitePlayersToClan(String clanID, List<IPlayer> players)
 	{
-		String playerName = player.getName();
-		if (!playerInvites.containsKey(playerName))
-			playerInvites.put(playerName, new ArrayList<String>(1));
+		if (!beginChange())
+			return false;
+		try
+		{
+			if (players.isEmpty())
+				return true;
+
+			List<String> playerNames = new ArrayList<String>(players.size());
+			for (IPlayer player : players)
+			{
+				String playerName = player.getName();
+				if (!playerInvites.containsKey(playerName))
+					playerInvites.put(playerName, new ArrayList<String>(1));
 
-		playerInvites.get(playerName).add(clanID); // Add clan invite to the player.
-		inviteRepository.addInvite(playerName, clanID);
+				playerInvites.get(playerName).add(clanID); // Add clan invite to the player.
+				playerNames.add(playerName);
+			}
+
+			// One insert for all the invites, and one for their change log rows.
+			inviteRepository.addInvites(clanID, playerNames);
+			if (syncEnabled)
+				changeRepository.recordChanges(ClanChangeType.INVITE_ADD, clanID, playerNames);
 
-		NotifyNewInvite(clanID, player);
+			NotifyNewInvites(clanID, playerNames);
+			return true;
+		}
+		finally
+		{
+			endChange();
+		}
 	}
 
-	public void removeAllPendingInvites(String playerName)
+	public boolean removeAllPendingInvites(String playerName)
 	{
-		playerInvites.remove(playerName); // Remove all pending invites.
-		inviteRepository.clearAllPendingInvites(playerName); // Persist the change in database.
+		if (!beginChange())
+			return false;
+		try
+		{
+			playerInvites.remove(playerName); // Remove all pending invites.
+			inviteRepository.clearAllPendingInvites(playerName); // Persist the change in database.
+			recordChange(ClanChangeType.INVITE_CLEAR, null, playerName);
+			return true;
+		}
+		finally
+		{
+			endChange();
+		}
 	}
 
-	public void removePendingInvite(IPlayer player, String clanName)
+	public boolean removePendingInvite(IPlayer player, String clanName)
 	{
-		String playerName = player.getName();
-		if (playerInvites.containsKey(playerName))
-			playerInvites.get(playerName).remove(clanName);
+		if (!beginChange())
+			return false;
+		try
+		{
+			String playerName = player.getName();
+			if (playerInvites.containsKey(playerName))
+				playerInvites.get(playerName).remove(clanName);
 
-		inviteRepository.clearPendingInvite(playerName, clanName);
+			inviteRepository.clearPendingInvite(playerName, clanName);
+			recordChange(ClanChangeType.INVITE_REMOVE, clanName, playerName);
+			return true;
+		}
+		finally
+		{
+			endChange();
+		}
 	}
 
-	public void acceptClanInvite(String clanID, IPlayer player)
+	// False if the player did not join, because the invite is gone, they joined elsewhere or an import holds the tables.
+	public boolean acceptClanInvite(String clanID, IPlayer player)
 	{
-		String playerName = player.getName();
-
-		// Make sure the player has a pending invite we can accept.
-		if (playerHasPendingInvite(clanID, playerName))
+		if (!beginChange())
+			return false;
+		try
 		{
-			addClanMember(clanID, playerName); // Add the member to the clan.
+			String playerName = player.getName();
+
+			// Make sure the player has a pending invite we can accept.
+			if (!playerHasPendingInvite(clanID, playerName) || !addClanMember(clanID, playerName))
+				return false;
+
 			Clan playerClan = getPlayerClan(playerName);
 			if (playerClan != null)
 				sendMessageOfTheDay(player, playerClan);
+			return true;
+		}
+		finally
+		{
+			endChange();
 		}
 	}
 
@@ -267,7 +591,13 @@ public class ClanHandler implements IConfigurationChanged, IPlayerDataProvider,
 		Clan clan = getClan(clanID); // Grab the clan.
 		// Make sure said clan exists.
 		if (clan != null)
-			channelManager.getChannelByName(clanID).SendSystem(formatClanMessage(clanID, message));
+		{
+			IChatChannel clanChannel = channelManager.getChannelByName(clanID);
+			if (clanChannel != null)
+				clanChannel.SendSystem(formatClanMessage(clanID, message));
+			else
+				chatHistory.record(clanID, formatClanMessage(clanID, message)); // Nobody is online to hear it, keep it for when they log in.
+		}
 	}
 
 	public String formatClanMessage(String clanID, String message)
@@ -280,61 +610,151 @@ public class ClanHandler implements IConfigurationChanged, IPlayerDataProvider,
 		return "Message of the Day: " + message;
 	}
 
-	public void setClanMotd(String clanID, String message)
+	public boolean setClanMotd(String clanID, String message)
 	{
-		clans.get(clanID).setMotd(message);
-		clanRepository.updateMotd(clanID, message);
-		sendMessageToClan(clanID, formatMotd(message));
-	}
-
-	public void disbandClan(Clan clan)
-	{
-		String clanID = clan.getId();
-		sendMessageToClan(clanID, "The clan is being disbanded by the leader.");
-		PurgePendingInvites(clanID);
-		PurgeMembers(clan, clanID);
-		PurgeClan(clanID);
+		if (!beginChange())
+			return false;
+		try
+		{
+			for (int attempt = 0; attempt < UPDATE_ATTEMPTS; attempt++)
+			{
+				Clan clan = getClan(clanID);
+				if (clan == null)
+					return false;
+
+				int version = clan.getVersion();
+				long entry = journal(ClanChangeType.MOTD, clanID, null, message, version);
+				boolean updated = clanRepository.updateMotd(clanID, message, version);
+				commitJournal(entry);
+				if (updated)
+				{
+					clan.setMotd(message);
+					clan.setVersion(version + 1);
+					recordChange(ClanChangeType.MOTD, clanID, null);
+					sendMessageToClan(clanID, formatMotd(message));
+					return true;
+				}
+				refreshClan(clanID); // Version conflict, pick up the other write and try again.
+			}
+			console.logError("Unable to update MOTD of clan %s due to concurrent updates.", clanID);
+			return false;
+		}
+		finally
+		{
+			endChange();
+		}
 	}
 
-	public void clanChat(IPlayer player, String message)
+	public boolean disbandClan(Clan clan)
 	{
-		Clan playerClan = getPlayerClan(player.getName());
-		if (playerClan != null)
+		if (!beginChange())
+			return false;
+		try
 		{
-			IChatChannel channel = channelManager.getChannelByName(playerClan.getId());
-			channel.Send(new InternalRealChatEvent(player, message));
+			String clanID = clan.getId();
+			sendMessageToClan(clanID, "The clan is being disbanded by the leader.");
+			long entry = journal(ClanChangeType.CLAN_DISBAND, clanID, null, null);
+			PurgePendingInvites(clanID);
+			PurgeMembers(clan, clanID);
+			PurgeClan(clanID);
+			chatHistory.remove(clanID);
+			recordChange(ClanChangeType.CLAN_DISBAND, clanID, null);
+			commitJournal(entry);
+			return true;
+		}
+		finally
+		{
+			endChange();
 		}
 	}
 
 	public void addClanKill(String playerName)
 	{
-		Clan clan = getPlayerClan(playerName);
-		if (clan != null)
+		if (!beginChange())
 		{
-			clan.addClanKills(1);
-			clanRepository.updateStatistic(clan.getId(), "clanKills", clan.getClanKills());
+			deferStatistic(playerName, ClanStatistic.KILLS);
+			return;
+		}
+		try
+		{
+			Clan clan = getPlayerClan(playerName);
+			if (clan != null)
+			{
+				clan.addClanKills(1);
+				addMemberStatistic(clan, playerName, ClanStatistic.KILLS);
+				persistStatistic(clan, ClanStatistic.KILLS, playerName);
+			}
+		}
+		finally
+		{
+			endChange();
 		}
 	}
 
 	public void addClanDeath(String playerName)
 	{
-		Clan clan = getPlayerClan(playerName);
-		if (clan != null)
+		if (!beginChange())
+		{
+			deferStatistic(playerName, ClanStatistic.DEATHS);
+			return;
+		}
+		try
 		{
-			clan.addClanDeaths(1);
-			clanRepository.updateStatistic(clan.getId(), "clanDeaths", clan.getClanDeaths());
+			Clan clan = getPlayerClan(playerName);
+			if (clan != null)
+			{
+				clan.addClanDeaths(1);
+				addMemberStatistic(clan, playerName, ClanStatistic.DEATHS);
+				persistStatistic(clan, ClanStatistic.DEATHS, playerName);
+			}
+		}
+		finally
+		{
+			endChange();
 		}
 	}
 
 	public void addDergonKill(String playerName)
 	{
-		Clan clan = getPlayerClan(playerName);
-		if (clan != null)
+		if (!beginChange())
 		{
-			String clanID = clan.getId();
-			clan.addDergonKills(1);
-			clanRepository.updateStatistic(clanID, "dergonKills", clan.getDergonKills());
-			sendMessageToClan(clanID, "The clan has slain a dergon!");
+			deferStatistic(playerName, ClanStatistic.DERGON_KILLS);
+			return;
+		}
+		try
+		{
+			Clan clan = getPlayerClan(playerName);
+			if (clan != null)
+			{
+				String clanID = clan.getId();
+				clan.addDergonKills(1);
+				addMemberStatistic(clan, playerName, ClanStatistic.DERGON_KILLS);
+				persistStatistic(clan, ClanStatistic.DERGON_KILLS, playerName);
+				sendMessageToClan(clanID, "The clan has slain a dergon!");
+			}
+		}
+		finally
+		{
+			endChange();
+		}
+	}
+
+	public void addClanAssist(String playerName)
+	{
+		if (!beginChange())
+		{
+			deferStatistic(playerName, ClanStatistic.ASSISTS);
+			return;
+		}
+		try
+		{
+			Clan clan = getPlayerClan(playerName);
+			if (clan != null)
+				addMemberStatistic(clan, playerName, ClanStatistic.ASSISTS); // Saved with the next flush.
+		}
+		finally
+		{
+			endChange();
 		}
 	}
 
@@ -353,12 +773,24 @@ public class ClanHandler implements IConfigurationChanged, IPlayerDataProvider,
 		IChatChannel clanChannel = channelManager.getChannelByName(id);
 		if (clanChannel == null)
 		{
-			clanChannel = new ClanChannel(console, channelManager, id, this);
+			clanChannel = new ClanChannel(console, channelManager, id, this, chatHistory);
 			channelManager.registerChannel(clanChannel);
 		}
 		clanChannel.Join(player);
 	}
 
+	public void joinClanChannel(Iterable<IPlayer> players, String id)
+	{
+		IChatChannel clanChannel = channelManager.getChannelByName(id);
+		if (clanChannel == null)
+		{
+			clanChannel = new ClanChannel(console, channelManager, id, this, chatHistory);
+			channelManager.registerChannel(clanChannel);
+		}
+		for (IPlayer player : players)
+			clanChannel.Join(player);
+	}
+
 	public void leaveClanChannel(IPlayer player, String id)
 	{
 		IChatChannel clanChannel = channelManager.getChannelByName(id);
@@ -366,6 +798,412 @@ public class ClanHandler implements IConfigurationChanged, IPlayerDataProvider,
 			clanChannel.Leave(player);
 	}
 
+	public boolean isSyncEnabled()
+	{
+		return syncEnabled;
+	}
+
+	public void reloadCaches()
+	{
+		FlushMemberStatistics(); // Anything unsaved would be lost when the clans are rebuilt.
+		LoadRostersIntoCache(clanRepository.getClans(), memberRepository.getClanRosters(), memberRepository.getClanMemberJoinDates(), memberStatsRepository.getMemberStatistics());
+		LoadInvitesIntoCache(inviteRepository.getPendingInvites());
+	}
+
+	// Waits for changes already in flight, every change after that is refused until the import ends.
+	public void beginImport()
+	{
+		importLock.writeLock().lock();
+	}
+
+	public void endImport()
+	{
+		importLock.writeLock().unlock();
+
+		// Stats earned during the import are counted on the main thread, where they would have been in the first place.
+		scheduler.startSyncTask(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				ApplyDeferredStatistics();
+			}
+		}, 0);
+	}
+
+	public boolean isImporting()
+	{
+		return importLock.isWriteLocked();
+	}
+
+	public long getChangeCursor()
+	{
+		return changeCursor;
+	}
+
+	public void applyRemoteChange(ClanChange change)
+	{
+		applyRemoteChanges(Collections.singletonList(change));
+	}
+
+	// Called off the main thread, the database is read here and the caches are changed on the main thread.
+	public void applyRemoteChanges(final List<ClanChange> changes)
+	{
+		final Map<String, Clan> stored = new HashMap<String, Clan>(0);
+		final Map<Long, ClanRelation> storedRelations = new HashMap<Long, ClanRelation>(0);
+		for (ClanChange change : changes)
+		{
+			if (needsRefresh(change.getType()))
+				stored.put(change.getClanID(), clanRepository.getClan(change.getClanID()));
+			else if (change.getType() == ClanChangeType.RELATION)
+				storedRelations.put(change.getId(), relationRepository.getRelation(change.getClanID(), change.getPlayer()));
+		}
+
+		scheduler.startSyncTask(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				for (ClanChange change : changes)
+					ApplyRemoteChange(change, stored.get(change.getClanID()), storedRelations.get(change.getId()));
+			}
+		}, 0);
+	}
+
+	private static boolean needsRefresh(ClanChangeType type)
+	{
+		return type == ClanChangeType.CLAN_CREATE || type == ClanChangeType.LEADER || type == ClanChangeType.MOTD || type == ClanChangeType.STATISTICS;
+	}
+
+	private void ApplyRemoteChange(ClanChange change, Clan stored, ClanRelation storedRelation)
+	{
+		String clanID = change.getClanID();
+		String playerName = change.getPlayer();
+		Clan clan = getClan(clanID);
+
+		switch (change.getType())
+		{
+			case CLAN_CREATE:
+			case LEADER:
+			case MOTD:
+			case STATISTICS:
+				applyStoredClan(clanID, stored);
+				break;
+
+			case CLAN_DISBAND:
+				if (clan != null)
+				{
+					synchronized (statisticsLock)
+					{
+						clan.drainPendingStatistics(); // The disbanding server removed the stats, they must not come back.
+						commitMemberStatistics(takeMemberStatisticEntries(clanID));
+					}
+					for (String clanMember : clan.getMembers())
+						removeMemberFromCache(clanMember);
+					clans.remove(clanID);
+					clanIndex.remove(clanID);
+				}
+				PurgeRelations(clanID);
+				PurgeRivalries(clanID);
+				chatHistory.remove(clanID); // A new clan with the same tag must not be shown this one's chat.
+				for (List<String> invites : playerInvites.values())
+					invites.remove(clanID);
+				break;
+
+			case MEMBER_JOIN:
+				playerInvites.remove(playerName); // Joining a clan clears all pending invites.
+				if (clan != null && !playerIsInClan(playerName, clanID))
+				{
+					clan.addMember(playerName);
+					playerClanIndex.put(playerName, clanID);
+					memberIndex.add(playerName);
+					playerData.put(playerName, buildPlayerData(clanID, DateTime.now()));
+				}
+				break;
+
+			case MEMBER_LEAVE:
+				if (clan != null && playerIsInClan(playerName, clanID))
+				{
+					// The leaving server resets the member's stats, only the others are kept.
+					final List<Object[]> pending;
+					final Collection<Long> entries;
+					synchronized (statisticsLock)
+					{
+						pending = withoutMember(clan.drainPendingStatistics(), playerName);
+						entries = takeMemberStatisticEntries(clanID);
+					}
+					if (!pending.isEmpty() || !entries.isEmpty())
+						scheduler.startAsyncTask(new Runnable()
+						{
+							@Override
+							public void run()
+							{
+								synchronized (statisticsLock)
+								{
+									memberStatsRepository.addStatistics(pending);
+									commitMemberStatistics(entries);
+								}
+							}
+						}, 0);
+
+					clan.removeMember(playerName);
+					removeMemberFromCache(playerName);
+				}
+				break;
+
+			case INVITE_ADD:
+				if (clan != null && !playerHasPendingInvite(clanID, playerName))
+				{
+					if (!playerInvites.containsKey(playerName))
+						playerInvites.put(playerName, new ArrayList<String>(1));
+					playerInvites.get(playerName).add(clanID);
+				}
+				break;
+
+			case INVITE_REMOVE:
+				if (playerInvites.containsKey(playerName))
+					playerInvites.get(playerName).remove(clanID);
+				break;
+
+			case INVITE_CLEAR:
+				playerInvites.remove(playerName);
+				break;
+
+			case RELATION:
+				relations.set(clanID, playerName, storedRelation); // The relation as stored now, a later change may have replaced the one recorded.
+				break;
+		}
+	}
+
+	private void refreshClan(String clanID)
+	{
+		applyStoredClan(clanID, clanRepository.getClan(clanID));
+	}
+
+	private void applyStoredClan(String clanID, Clan stored)
+	{
+		if (stored == null)
+			return;
+
+		Clan clan = getClan(clanID);
+		if (clan == null)
+		{
+			clans.put(clanID, stored);
+			clanIndex.add(clanID);
+			return;
+		}
+
+		clan.setLeader(stored.getLeader());
+		clan.setMotd(stored.getMotd());
+		clan.setVersion(stored.getVersion());
+		clan.addClanKills(stored.getClanKills() - clan.getClanKills());
+		clan.addClanDeaths(stored.getClanDeaths() - clan.getClanDeaths());
+		clan.addDergonKills(stored.getDergonKills() - clan.getDergonKills());
+	}
+
+	private void removeMemberFromCache(String playerName)
+	{
+		playerClanIndex.remove(playerName);
+		memberIndex.remove(playerName);
+		playerData.remove(playerName);
+	}
+
+	private void publishEvent(ClanEventType type, String playerName, Clan clan, String actor)
+	{
+		updateClanChannel(type, playerName, clan, actor); // Our own channels change along with the membership.
+		// Other listeners run on the event bus, so they never hold up the change itself.
+		eventBus.publish(new ClanEventRecord(type, playerName, clan.getId(), clan.getLeader(), actor));
+	}
+
+	private void updateClanChannel(ClanEventType type, String playerName, Clan clan, String actor)
+	{
+		IPlayer player = server.getPlayerExact(playerName);
+		if (player == null)
+			return;
+
+		switch (type)
+		{
+			case JOIN:
+				joinClanChannel(player, clan.getId());
+				sendMessageToClan(clan.getId(), player.getPrettyName() + " has joined the clan.");
+				break;
+
+			case LEAVE:
+				leaveClanChannel(player, clan.getId());
+				sendMessageToClan(clan.getId(), player.getPrettyName() + " has left the clan.");
+				break;
+
+			case KICK:
+				IPlayer kicker = server.getPlayerExact(actor);
+				leaveClanChannel(player, clan.getId());
+				sendMessageToClan(clan.getId(), player.getPrettyName() + " has been kicked from the clan by " + (kicker == null ? actor : kicker.getPrettyName()) + ".");
+				break;
+		}
+	}
+
+	private ClanPlayerData buildPlayerData(String clanID, DateTime joined)
+	{
+		return new ClanPlayerData(clanID, joined, formatTime(joined), System.currentTimeMillis());
+	}
+
+	private void persistStatistic(Clan clan, ClanStatistic statistic, String playerName)
+	{
+		// The journal keeps the clan total rather than the increment, so a replay can never count it twice.
+		String clanID = clan.getId();
+		long entry = journal(ClanChangeType.STATISTICS, clanID, playerName, statistic.name(), getClanStatistic(clan, statistic));
+		clanRepository.incrementStatistic(clanID, statistic, 1);
+		recordChange(ClanChangeType.STATISTICS, clanID, playerName);
+		commitJournal(entry);
+	}
+
+	public ClanJournal getJournal()
+	{
+		return journal;
+	}
+
+	private void OpenJournal(IConfiguration config)
+	{
+		try
+		{
+			journal = new ClanJournal(
+				new File(config.getConfigValueAsString("journal.path")),
+				config.getConfigValueAsInt("journal.size") * 1024,
+				config.getConfigValueAsInt("journal.maxSize") * 1024
+			);
+		}
+		catch (IOException e)
+		{
+			console.logException(e);
+			return;
+		}
+
+		List<JournalEntry> entries = journal.recover();
+		for (JournalEntry entry : entries)
+			ReplayJournalEntry(entry);
+		journal.reset();
+
+		if (!entries.isEmpty())
+			console.logInformation("Replayed %s interrupted clan changes from the journal.", entries.size());
+	}
+
+	private void CloseJournal()
+	{
+		if (compactionTimer != null)
+			scheduler.cancelTask(compactionTimer);
+		compactionTimer = null;
+
+		if (journal == null)
+			return;
+
+		try
+		{
+			journal.close();
+		}
+		catch (IOException e)
+		{
+			console.logException(e);
+		}
+		journal = null;
+	}
+
+	// Every replayed write sets an absolute state or is checked against a version, so replaying an entry that did reach the database is harmless.
+	private void ReplayJournalEntry(JournalEntry entry)
+	{
+		String clanID = entry.getClanID();
+		String playerName = entry.getPlayer();
+		switch (entry.getType())
+		{
+			case CLAN_CREATE:
+				clanRepository.persistClan(new Clan(clanID, playerName, entry.getValue()));
+				break;
+
+			case CLAN_DISBAND:
+				inviteRepository.clearAllPendingInvitesForClan(clanID);
+				memberRepository.removeAllClanMembers(clanID);
+				memberStatsRepository.removeClanStatistics(clanID);
+				relationRepository.removeRelations(clanID);
+				rivalryRepository.removeClan(clanID);
+				clanRepository.deleteClan(clanID);
+				break;
+
+			case MEMBER_JOIN:
+				inviteRepository.clearAllPendingInvites(playerName);
+				memberRepository.addClanMember(clanID, playerName);
+				break;
+
+			case MEMBER_LEAVE:
+				memberRepository.removeClanMemberByName(playerName);
+				memberStatsRepository.removeMemberStatistics(clanID, playerName);
+				break;
+
+			// Journaled with the version they were based on, so they only land if neither they nor anyone else got there first.
+			case LEADER:
+				clanRepository.changeClanLeader(clanID, playerName, entry.getAmount());
+				break;
+
+			case MOTD:
+				clanRepository.updateMotd(clanID, entry.getValue(), entry.getAmount());
+				break;
+
+			case STATISTICS:
+				clanRepository.restoreStatistic(clanID, ClanStatistic.valueOf(entry.getValue()), entry.getAmount());
+				break;
+
+			case MEMBER_STATISTICS:
+				memberStatsRepository.restoreMemberStatistic(clanID, playerName, ClanStatistic.valueOf(entry.getValue()), entry.getAmount());
+				break;
+		}
+	}
+
+	private long journal(ClanChangeType type, String clanID, String playerName, String value)
+	{
+		return journal(type, clanID, playerName, value, 0);
+	}
+
+	private long journal(ClanChangeType type, String clanID, String playerName, String value, int amount)
+	{
+		if (journal == null)
+			return -1;
+
+		long entry = journal.append(type, clanID, playerName, value, amount);
+		if (entry < 0)
+			console.logError("Clan journal is full at %s bytes, %s change to %s is not crash-safe.", journal.getUsage(), type, clanID);
+		return entry;
+	}
+
+	private static int getClanStatistic(Clan clan, ClanStatistic statistic)
+	{
+		switch (statistic)
+		{
+			case KILLS:
+				return clan.getClanKills();
+			case DEATHS:
+				return clan.getClanDeaths();
+			case DERGON_KILLS:
+				return clan.getDergonKills();
+			default:
+				return 0;
+		}
+	}
+
+	private void commitJournal(long entry)
+	{
+		if (journal != null)
+			journal.commit(entry);
+	}
+
+	// Called by RelationHandler, which owns the relation but not the change log.
+	public void recordRelationChange(String clanID, String targetID)
+	{
+		recordChange(ClanChangeType.RELATION, clanID, targetID);
+	}
+
+	private void recordChange(ClanChangeType type, String clanID, String playerName)
+	{
+		if (syncEnabled)
+			changeRepository.recordChange(type, clanID, playerName);
+	}
+
 	private String formatTime(DateTime time)
 	{
 		if (time == null)
@@ -381,13 +1219,139 @@ public class ClanHandler implements IConfigurationChanged, IPlayerDataProvider,
 		leaveClanChannel(event.getPlayer(), playerClan.getId());
 	}
 
-	private void LoadInvitesIntoCache()
+	private boolean LoadSnapshotIntoCache()
+	{
+		if (!snapshotFile.exists())
+			return false;
+
+		try
+		{
+			ClanSnapshot snapshot = ClanSnapshot.read(snapshotFile);
+			if (snapshot == null || snapshot.getChecksum() != getDatabaseChecksum())
+			{
+				console.logInformation("Clan snapshot is stale, loading clans from the database.");
+				return false;
+			}
+
+			LoadRostersIntoCache(snapshot.getClans(), snapshot.getRosters(), snapshot.getJoinDates(), memberStatsRepository.getMemberStatistics());
+			LoadInvitesIntoCache(snapshot.getInvites());
+			return true;
+		}
+		catch (IOException e)
+		{
+			console.logException(e);
+			return false;
+		}
+		finally
+		{
+			// A snapshot is only trusted once, a crash later on must not bring back an old one.
+			if (!snapshotFile.delete())
+				console.logWarning("Unable to remove clan snapshot %s.", snapshotFile);
+		}
+	}
+
+	private long getDatabaseChecksum()
+	{
+		return ClanSnapshot.combine(clanRepository.getChecksum(), memberRepository.getChecksum(), inviteRepository.getChecksum());
+	}
+
+	private Map<String, List<String>> getRosters()
+	{
+		Map<String, List<String>> rosters = new HashMap<String, List<String>>(clans.size());
+		for (Clan clan : clans.values())
+			rosters.put(clan.getId(), clan.getMembers());
+		return rosters;
+	}
+
+	private Map<String, DateTime> getJoinDates()
+	{
+		Map<String, DateTime> joinDates = new HashMap<String, DateTime>(playerData.size());
+		for (Map.Entry<String, ClanPlayerData> data : playerData.entrySet())
+			joinDates.put(data.getKey(), data.getValue().getJoined());
+		return joinDates;
+	}
+
+	private static void LoadMemberStatisticsIntoCache(Map<String, Clan> clans, Map<String, Map<String, int[]>> statistics)
+	{
+		for (Map.Entry<String, Map<String, int[]>> clanStatistics : statistics.entrySet())
+		{
+			Clan clan = clans.get(clanStatistics.getKey());
+			if (clan == null)
+				continue;
+
+			for (Map.Entry<String, int[]> member : clanStatistics.getValue().entrySet())
+				clan.loadMemberStatistics(member.getKey(), member.getValue()); // Former members are skipped.
+		}
+	}
+
+	private void FlushMemberStatistics()
+	{
+		// Held through the write, so a disband can never delete the rows before a drained flush lands them again.
+		synchronized (statisticsLock)
+		{
+			List<Object[]> rows = new ArrayList<Object[]>(0);
+			for (Clan clan : clans.values())
+				rows.addAll(clan.drainPendingStatistics());
+
+			memberStatsRepository.addStatistics(rows); // One multi-row upsert per hundred members.
+			for (Map<String, Long> entries : memberStatisticEntries.values())
+				commitMemberStatistics(entries.values());
+			memberStatisticEntries.clear();
+		}
+	}
+
+	private void addMemberStatistic(Clan clan, String playerName, ClanStatistic statistic)
+	{
+		// Journaled until the flush saves it, like persistStatistic the entry keeps the member total rather than the increment.
+		synchronized (statisticsLock)
+		{
+			clan.addMemberStatistic(playerName, statistic, 1);
+			int total = clan.getMemberStatistic(playerName, statistic);
+			if (total == 0)
+				return; // Not a member any more, nothing was counted.
+
+			String clanID = clan.getId();
+			long entry = journal(ClanChangeType.MEMBER_STATISTICS, clanID, playerName, statistic.name(), total);
+			if (entry < 0)
+				return;
+
+			if (!memberStatisticEntries.containsKey(clanID))
+				memberStatisticEntries.put(clanID, new HashMap<String, Long>(1));
+
+			// The newer total covers the older one, so each member only keeps one open entry per statistic.
+			Long replaced = memberStatisticEntries.get(clanID).put(playerName + ':' + statistic.name(), entry);
+			if (replaced != null)
+				commitJournal(replaced);
+		}
+	}
+
+	private Collection<Long> takeMemberStatisticEntries(String clanID)
+	{
+		Map<String, Long> entries = memberStatisticEntries.remove(clanID);
+		return entries == null ? Collections.<Long>emptyList() : entries.values();
+	}
+
+	private void commitMemberStatistics(Collection<Long> entries)
+	{
+		for (long entry : entries)
+			commitJournal(entry);
+	}
+
+	private static List<Object[]> withoutMember(List<Object[]> rows, String playerName)
 	{
-		playerInvites.clear();
-		playerInvites.putAll(inviteRepository.getPendingInvites()); // Grab pending invites from the database.
-		List<String> invalidClans = new ArrayList<String>(0);
+		List<Object[]> kept = new ArrayList<Object[]>(rows.size());
+		for (Object[] row : rows)
+			if (!playerName.equals(row[1]))
+				kept.add(row);
+		return kept;
+	}
 
-		for (Map.Entry<String, List<String>> inviteNode : playerInvites.entrySet())
+	private void LoadInvitesIntoCache(Map<String, List<String>> invites)
+	{
+		Map<String, List<String>> loadedInvites = new ConcurrentHashMap<String, List<String>>(invites); // Grab pending invites.
+		Set<String> invalidClans = new HashSet<String>(0);
+
+		for (Map.Entry<String, List<String>> inviteNode : loadedInvites.entrySet())
 		{
 			for (String clanName : inviteNode.getValue()) // Loop through all the invites and check they are valid.
 			{
@@ -400,20 +1364,28 @@ public class ClanHandler implements IConfigurationChanged, IPlayerDataProvider,
 		}
 
 		// Process invalid clans found in invites and purge!
-		for (String invalidClan : invalidClans)
-			inviteRepository.clearAllPendingInvitesForClan(invalidClan);
+		if (!invalidClans.isEmpty())
+			inviteRepository.clearAllPendingInvitesForClans(invalidClans);
 
-		for (Map.Entry<String, List<String>> inviteNode : playerInvites.entrySet())
+		for (Map.Entry<String, List<String>> inviteNode : loadedInvites.entrySet())
 			inviteNode.getValue().removeAll(invalidClans);
+
+		playerInvites = loadedInvites;
 	}
 
-	private void LoadRostersIntoCache()
+	private void LoadRostersIntoCache(Map<String, Clan> loadedClans, Map<String, List<String>> rosters, Map<String, DateTime> joinDates, Map<String, Map<String, int[]>> statistics)
 	{
 		int memberCount = 0; // Keep track of how many members we have.
-		clans.clear();
-		clans.putAll(clanRepository.getClans()); // Populate a list of clans.
-		playerClanIndex.clear(); // Clear the index.
-		Map<String, List<String>> rosters = memberRepository.getClanRosters(); // Get rosters.
+		// Everything is built aside and swapped in at the end, so lookups never see a half loaded cache.
+		Map<String, Clan> clans = new ConcurrentHashMap<String, Clan>(loadedClans); // Populate a list of clans.
+		Map<String, String> playerClanIndex = new ConcurrentHashMap<String, String>(0);
+		PrefixIndex clanIndex = new PrefixIndex();
+		PrefixIndex memberIndex = new PrefixIndex();
+		Map<String, ClanPlayerData> playerData = new ConcurrentHashMap<String, ClanPlayerData>(0);
+		for (String clanName : clans.keySet())
+			clanIndex.add(clanName); // Index the clan for searching.
+
+		Set<String> invalidClans = new HashSet<String>(0);
 
 		// Process the clan rosters into the handler.
 		for (Map.Entry<String, List<String>> roster : rosters.entrySet())
@@ -425,6 +1397,8 @@ public class ClanHandler implements IConfigurationChanged, IPlayerDataProvider,
 				for (String clanMember : roster.getValue())
 				{
 					playerClanIndex.put(clanMember, clanName); // Map the player to the clan index.
+					memberIndex.add(clanMember); // Index the member for searching.
+					playerData.put(clanMember, buildPlayerData(clanName, joinDates.get(clanMember))); // Precompute the player data.
 					clans.get(clanName).addMember(clanMember); // Add the member to the clan.
 					memberCount++; // Increase our counter.
 				}
@@ -432,87 +1406,138 @@ public class ClanHandler implements IConfigurationChanged, IPlayerDataProvider,
 			else
 			{
 				// We have clan members for a non-existent clan, remove them.
-				memberRepository.removeAllClanMembers(clanName);
+				invalidClans.add(clanName);
 				console.logError("Purging %s members from invalid clan: %s", roster.getValue().size(), clanName);
 			}
 		}
 
+		if (!invalidClans.isEmpty())
+			memberRepository.removeAllClanMembers(invalidClans); // One round trip for all invalid clans.
+
+		LoadMemberStatisticsIntoCache(clans, statistics);
+
+		this.clans = clans;
+		this.playerClanIndex = playerClanIndex;
+		this.clanIndex = clanIndex;
+		this.memberIndex = memberIndex;
+		this.playerData = playerData;
+
 		// Output some statistics from our clan loading.
 		console.logInformation("Loaded %s clans with %s members.", clans.size(), memberCount);
 	}
 
-	private void processClanMemberConnected(final IPlayer player)
+	private void sendMessageOfTheDay(IPlayer player, Clan playerClan)
+	{
+		player.sendColouredMessage(formatClanMessage(playerClan.getId(), formatMotd(playerClan.getMotd())));
+	}
+
+	private void NotifyNewInvites(final String clanID, final List<String> playerNames)
 	{
-		final Clan playerClan = getPlayerClan(player.getName());
-		if (playerClan != null)
+		// Sent together in a single task, so the command returns without waiting on each player.
+		scheduler.startAsyncTask(new Runnable()
 		{
-			scheduler.startAsyncTask(new Runnable()
+			@Override
+			public void run()
 			{
-				@Override
-				public void run()
-				{
-					if (player.isOnline())
-					{
-						joinClanChannel(player, playerClan.getId());
-						sendMessageOfTheDay(player, playerClan);
-					}
-				}
-			}, 3);
-		}
+				String message = String.format("&aYou have been invited to join the '%1$s' clan. Use \"/clan join %1$s\" to join!", clanID);
+				for (String playerName : playerNames)
+					mailbox.notify(playerName, ClanMailType.INVITE, clanID, message); // Offline players get it in their mailbox instead.
+			}
+		}, 0);
 	}
 
-	private void sendMessageOfTheDay(IPlayer player, Clan playerClan)
+	private void PurgeClan(String clanID)
 	{
-		player.sendColouredMessage(formatClanMessage(playerClan.getId(), formatMotd(playerClan.getMotd())));
+		clanRepository.deleteClan(clanID); // Delete the clan from the database.
+		clans.remove(clanID); // Delete the clan from the cache.
+		clanIndex.remove(clanID); // Remove the clan from the search index.
+		PurgeRelations(clanID);
+		PurgeRivalries(clanID);
 	}
 
-	private void processPendingInvites(final IPlayer player)
+	// Changes never wait on an import, they are refused while one holds the tables and the caller is told so.
+	// Gameplay stats can't be refused, those are deferred until the import ends instead.
+	private boolean beginChange()
 	{
-		final List<String> invites = playerInvites.get(player.getName());
+		return importLock.readLock().tryLock();
+	}
 
-		if (invites.isEmpty())
-			playerInvites.remove(player.getName());
-		else
-			scheduler.startAsyncTask(new Runnable()
-			{
-				@Override
-				public void run()
-				{
-					NotifyPendingInvites(player, invites);
-				}
-			}, 3);
+	private void endChange()
+	{
+		importLock.readLock().unlock();
 	}
 
-	private void NotifyNewInvite(String clanID, IPlayer player)
+	private void deferStatistic(String playerName, ClanStatistic statistic)
 	{
-		if (player.isOnline()) // If the player is online, inform them about the invite!
-			player.sendColouredMessage("&aYou have been invited to join the '%1$s' clan. Use \"/clan join %1$s\" to join!", clanID);
+		deferredStatistics.add(new Object[]{playerName, statistic});
+		if (!isImporting())
+			ApplyDeferredStatistics(); // The import ended while this was being queued.
 	}
 
-	private void NotifyPendingInvites(IPlayer player, List<String> invites)
+	// Counted for the clan the player is in after the import.
+	private void ApplyDeferredStatistics()
 	{
-		if (player.isOnline())
+		// Taken off the queue first, anything deferred again by a new import waits for that one to end.
+		List<Object[]> deferred = new ArrayList<Object[]>(0);
+		Object[] statistic;
+		while ((statistic = deferredStatistics.poll()) != null)
+			deferred.add(statistic);
+
+		for (Object[] entry : deferred)
 		{
-			player.sendColouredMessage("&aYou have %d pending clan invite(s): %s", invites.size(), StringUtils.join(invites, ", "));
-			player.sendColouredMessage("&aUse \"/clan join <clanTag>\" to join one of them!");
+			String playerName = (String) entry[0];
+			switch ((ClanStatistic) entry[1])
+			{
+				case KILLS:
+					addClanKill(playerName);
+					break;
+
+				case DEATHS:
+					addClanDeath(playerName);
+					break;
+
+				case DERGON_KILLS:
+					addDergonKill(playerName);
+					break;
+
+				case ASSISTS:
+					addClanAssist(playerName);
+					break;
+			}
 		}
 	}
 
-	private void PurgeClan(String clanID)
+	private void PurgeRivalries(String clanID)
 	{
-		clanRepository.deleteClan(clanID); // Delete the clan from the database.
-		clans.remove(clanID); // Delete the clan from the cache.
+		// RivalryHandler flushes under the same lock, so its drained kills can't bring the rows back.
+		synchronized (rivalryRepository)
+		{
+			rivalries.remove(clanID); // A new clan with the same tag must not inherit them.
+			rivalryRepository.removeClan(clanID);
+		}
+	}
+
+	private void PurgeRelations(String clanID)
+	{
+		relationRepository.removeRelations(clanID); // A new clan with the same tag must not inherit them.
+		relations.remove(clanID);
 	}
 
 	private void PurgeMembers(Clan clan, String clanID)
 	{
-		memberRepository.removeAllClanMembers(clanID); // Wipe the roster.
+		memberRepository.removeAllClanMembers(clanID); // Wipe the roster in one statement.
+		synchronized (statisticsLock)
+		{
+			clan.drainPendingStatistics(); // Unsaved stats would otherwise be flushed into a new clan with the same tag.
+			memberStatsRepository.removeClanStatistics(clanID); // A new clan with the same tag starts from scratch.
+			commitMemberStatistics(takeMemberStatisticEntries(clanID));
+		}
 		for (String clanMember : clan.getMembers())
 		{
-			IPlayer player = server.getPlayerExact(clanMember);
 			playerClanIndex.remove(clanMember); // Remove the players clan index.
-			memberRepository.removeClanMemberByName(clanMember);
-			new ClanLeaveEvent(player, clan).Fire(); // Fire a leave event.
+			memberIndex.remove(clanMember); // Remove the player from the search index.
+			playerData.remove(clanMember); // Drop the player data.
+			publishEvent(ClanEventType.LEAVE, clanMember, clan, null); // Fire a leave event.
 		}
 	}
 
@@ -525,16 +1550,45 @@ public class ClanHandler implements IConfigurationChanged, IPlayerDataProvider,
 				playerInvites.get(invite.getKey()).remove(clanID); // Remove the invite from deleted clan.
 	}
 
+	private static final int UPDATE_ATTEMPTS = 3;
+	private static final long PLAYER_DATA_REFRESH = 60000;
 	private String clanTagFormat;
-	private final Map<String, Clan> clans = new ConcurrentHashMap<String, Clan>(0);
-	private final Map<String, String> playerClanIndex = new ConcurrentHashMap<String, String>(0);
-	private final Map<String, List<String>> playerInvites = new ConcurrentHashMap<String, List<String>>(0);
+	private File snapshotFile;
+	private ClanJournal journal;
+	private volatile boolean cacheLoaded = false; // Read by getPlayerDataAsync from any thread.
+	private boolean syncEnabled;
+	private volatile long changeCursor;
+	private Integer statisticsFlushTimer;
+	private Integer compactionTimer;
+	private volatile Map<String, Clan> clans = new ConcurrentHashMap<String, Clan>(0);
+	private volatile Map<String, String> playerClanIndex = new ConcurrentHashMap<String, String>(0);
+	private volatile PrefixIndex clanIndex = new PrefixIndex();
+	private volatile PrefixIndex memberIndex = new PrefixIndex();
+	private volatile Map<String, ClanPlayerData> playerData = new ConcurrentHashMap<String, ClanPlayerData>(0);
+	private final ClanPlayerData noClanData = new ClanPlayerData(null, null, "null", Long.MAX_VALUE);
+	private final Queue<FutureTask<ClanPlayerData>> pendingPlayerData = new ConcurrentLinkedQueue<FutureTask<ClanPlayerData>>();
+	private volatile Map<String, List<String>> playerInvites = new ConcurrentHashMap<String, List<String>>(0);
 	private final IConsole console;
 	private final IServer server;
 	private final IScheduler scheduler;
 	private final ClanRepository clanRepository;
 	private final ClanMemberRepository memberRepository;
 	private final ClanInviteRepository inviteRepository;
+	private final ClanChangeRepository changeRepository;
+	private final ClanMemberStatsRepository memberStatsRepository;
+	private final ClanRelationRepository relationRepository;
+	private final ClanRelations relations;
+	private final ClanRivalryRepository rivalryRepository;
+	private final RivalryMatrix rivalries;
+	private final Object statisticsLock = new Object();
+	private final AtomicLong playerDataHits = new AtomicLong();
+	private final AtomicLong playerDataMisses = new AtomicLong();
+	private final Map<String, Map<String, Long>> memberStatisticEntries = new HashMap<String, Map<String, Long>>(0); // Guarded by statisticsLock.
+	private final ReentrantReadWriteLock importLock = new ReentrantReadWriteLock();
+	private final Queue<Object[]> deferredStatistics = new ConcurrentLinkedQueue<Object[]>();
+	private final ClanEventBus eventBus;
+	private final ClanMailbox mailbox;
+	private final ClanChatHistory chatHistory;
 	private final Pattern clanNamePattern = Pattern.compile("^[A-Z]{3}$");
 	private final PeriodType output_format = PeriodType.standard().withMillisRemoved().withSecondsRemoved();
 	private final IChannelManager channelManager;
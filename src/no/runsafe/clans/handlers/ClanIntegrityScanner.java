@@ -0,0 +1,292 @@
+package no.runsafe.clans.handlers;
+
+import no.runsafe.clans.Clan;
+import no.runsafe.clans.database.ClanChange;
+import no.runsafe.clans.database.ClanChangeType;
+import no.runsafe.clans.database.ClanInviteRepository;
+import no.runsafe.clans.database.ClanMemberRepository;
+import no.runsafe.clans.database.ClanRepository;
+import no.runsafe.clans.database.ClanTransferQueries;
+import no.runsafe.framework.api.IConfiguration;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.event.plugin.IConfigurationChanged;
+import no.runsafe.framework.api.log.IConsole;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Walks the clan tables a chunk at a time in the background, checking each row against the caches.
+public class ClanIntegrityScanner implements IConfigurationChanged
+{
+	public ClanIntegrityScanner(IConsole console, IScheduler scheduler, ClanHandler clanHandler, ClanRepository clanRepository, ClanMemberRepository memberRepository, ClanInviteRepository inviteRepository, ClanTransferQueries queries)
+	{
+		this.console = console;
+		this.scheduler = scheduler;
+		this.clanHandler = clanHandler;
+		this.clanRepository = clanRepository;
+		this.memberRepository = memberRepository;
+		this.inviteRepository = inviteRepository;
+		this.queries = queries;
+	}
+
+	@Override
+	public void OnConfigurationChanged(IConfiguration config)
+	{
+		chunkSize = config.getConfigValueAsInt("integrity.chunkSize");
+		repair = config.getConfigValueAsBoolean("integrity.repair");
+
+		if (scanTimer != null)
+			scheduler.cancelTask(scanTimer);
+
+		// The I/O budget is one chunk of rows per interval.
+		int interval = config.getConfigValueAsInt("integrity.interval");
+		scanTimer = scheduler.startAsyncRepeatingTask(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				scanChunk();
+			}
+		}, interval, interval);
+	}
+
+	public long getScannedRows()
+	{
+		return scannedRows.get();
+	}
+
+	public long getIssues()
+	{
+		return issues.get();
+	}
+
+	public long getRepairs()
+	{
+		return repairs.get();
+	}
+
+	public long getCycles()
+	{
+		return cycles.get();
+	}
+
+	private synchronized void scanChunk()
+	{
+		if (phase == SCAN_CLANS)
+			scanClans();
+		else if (phase == SCAN_MEMBERS)
+			scanMembers();
+		else
+			scanInvites();
+	}
+
+	private void scanClans()
+	{
+		List<Object[]> page = queries.getClanPage(lastKey, chunkSize);
+		for (Object[] row : page)
+		{
+			String clanID = (String) row[0];
+			String leader = (String) row[1];
+			String motd = (String) row[3];
+			seen.add(clanID);
+
+			Clan clan = clanHandler.getClan(clanID);
+			if (differs(clan, leader, motd))
+			{
+				report("Clan %s differs from the cache.", clanID);
+				if (repair)
+				{
+					// The page may be stale by now, so only a difference that is still there gets repaired.
+					Clan stored = clanRepository.getClan(clanID);
+					if (stored != null && differs(clanHandler.getClan(clanID), stored.getLeader(), stored.getMotd()))
+						repairCache(ClanChangeType.CLAN_CREATE, clanID, null); // Refreshes the clan from its row.
+				}
+				continue;
+			}
+
+			if (!clanID.equals(clanHandler.getPlayerClanID(leader)))
+				report("Leader %s of clan %s is not a member of it.", leader, clanID);
+
+			if (clan.getMemberCount() == 0)
+				report("Clan %s has no members.", clanID);
+		}
+		scannedRows.addAndGet(page.size());
+
+		if (page.size() < chunkSize)
+		{
+			// Anything cached that the walk never saw may have been removed from the table.
+			for (String clanID : clanHandler.getClans().keySet())
+			{
+				if (!seen.contains(clanID) && clanRepository.getClan(clanID) == null)
+				{
+					report("Clan %s is cached but not stored.", clanID);
+					if (repair && clanHandler.clanExists(clanID))
+						repairCache(ClanChangeType.CLAN_DISBAND, clanID, null);
+				}
+			}
+			nextPhase(SCAN_MEMBERS);
+		}
+		else
+			lastKey = (String) page.get(page.size() - 1)[0];
+	}
+
+	private void scanMembers()
+	{
+		List<Object[]> page = queries.getMemberPage(lastKey, chunkSize);
+		for (Object[] row : page)
+		{
+			String clanID = (String) row[0];
+			String member = (String) row[1];
+
+			// The unique member index already keeps a player to one clan.
+			seen.add(member);
+
+			if (!clanHandler.clanExists(clanID) && clanRepository.getClan(clanID) == null)
+			{
+				report("Player %s is a member of missing clan %s.", member, clanID);
+				if (repair && clanID.equals(memberRepository.getMemberClan(member)) && !clanHandler.clanExists(clanID))
+				{
+					memberRepository.removeClanMemberByName(member);
+					repairs.incrementAndGet();
+				}
+				continue;
+			}
+
+			String cachedClan = clanHandler.getPlayerClanID(member);
+			if (!clanID.equals(cachedClan))
+			{
+				report("Player %s is stored in clan %s but cached in %s.", member, clanID, cachedClan);
+				if (repair)
+				{
+					// Re-read both sides, the player may have moved since the page was read.
+					String storedClan = memberRepository.getMemberClan(member);
+					cachedClan = clanHandler.getPlayerClanID(member);
+					if (storedClan != null && !storedClan.equals(cachedClan))
+					{
+						if (cachedClan != null)
+							repairCache(ClanChangeType.MEMBER_LEAVE, cachedClan, member);
+						repairCache(ClanChangeType.MEMBER_JOIN, storedClan, member);
+					}
+				}
+			}
+		}
+		scannedRows.addAndGet(page.size());
+
+		if (page.size() < chunkSize)
+		{
+			for (Clan clan : clanHandler.getClans().values())
+			{
+				for (String member : clan.getMembers().toArray(new String[0]))
+				{
+					if (!seen.contains(member) && memberRepository.getMemberClan(member) == null)
+					{
+						report("Player %s is cached in clan %s but not stored.", member, clan.getId());
+						if (repair && clanHandler.playerIsInClan(member, clan.getId()))
+							repairCache(ClanChangeType.MEMBER_LEAVE, clan.getId(), member);
+					}
+				}
+			}
+			nextPhase(SCAN_INVITES);
+		}
+		else
+			lastKey = (String) page.get(page.size() - 1)[1];
+	}
+
+	private void scanInvites()
+	{
+		List<Object[]> page = queries.getInvitePage(lastKey, lastPlayer, chunkSize);
+		for (Object[] row : page)
+		{
+			String clanID = (String) row[0];
+			String player = (String) row[1];
+
+			if (!clanHandler.clanExists(clanID) && clanRepository.getClan(clanID) == null)
+			{
+				report("Player %s has an invite to missing clan %s.", player, clanID);
+				if (repair && !clanHandler.clanExists(clanID) && clanRepository.getClan(clanID) == null)
+				{
+					inviteRepository.clearPendingInvite(player, clanID);
+					repairCache(ClanChangeType.INVITE_REMOVE, clanID, player);
+				}
+			}
+			else if (clanHandler.playerIsInClan(player))
+			{
+				report("Player %s is already in a clan but still invited to %s.", player, clanID);
+				if (repair && memberRepository.getMemberClan(player) != null)
+				{
+					inviteRepository.clearPendingInvite(player, clanID);
+					repairCache(ClanChangeType.INVITE_REMOVE, clanID, player);
+				}
+			}
+			else if (!clanHandler.playerHasPendingInvite(clanID, player))
+			{
+				report("Invite of %s to clan %s is missing from the cache.", player, clanID);
+				if (repair && inviteRepository.hasPendingInvite(player, clanID) && !clanHandler.playerHasPendingInvite(clanID, player))
+					repairCache(ClanChangeType.INVITE_ADD, clanID, player);
+			}
+		}
+		scannedRows.addAndGet(page.size());
+
+		if (page.size() < chunkSize)
+		{
+			nextPhase(SCAN_CLANS);
+			cycles.incrementAndGet();
+		}
+		else
+		{
+			Object[] last = page.get(page.size() - 1);
+			lastKey = (String) last[0];
+			lastPlayer = (String) last[1];
+		}
+	}
+
+	private static boolean differs(Clan clan, String leader, String motd)
+	{
+		return clan == null || !clan.getLeader().equals(leader) || !clan.getMotd().equals(motd);
+	}
+
+	private void nextPhase(int next)
+	{
+		phase = next;
+		lastKey = "";
+		lastPlayer = "";
+		seen.clear();
+	}
+
+	// Cache repairs go through the same path as changes made on other nodes.
+	private void repairCache(ClanChangeType type, String clanID, String playerName)
+	{
+		clanHandler.applyRemoteChange(new ClanChange(0, null, type, clanID, playerName));
+		repairs.incrementAndGet();
+	}
+
+	private void report(String message, Object... parameters)
+	{
+		issues.incrementAndGet();
+		console.logWarning("Clan integrity: " + message, parameters);
+	}
+
+	private static final int SCAN_CLANS = 0;
+	private static final int SCAN_MEMBERS = 1;
+	private static final int SCAN_INVITES = 2;
+	private final IConsole console;
+	private final IScheduler scheduler;
+	private final ClanHandler clanHandler;
+	private final ClanRepository clanRepository;
+	private final ClanMemberRepository memberRepository;
+	private final ClanInviteRepository inviteRepository;
+	private final ClanTransferQueries queries;
+	private final Set<String> seen = new HashSet<String>(0);
+	private final AtomicLong scannedRows = new AtomicLong();
+	private final AtomicLong issues = new AtomicLong();
+	private final AtomicLong repairs = new AtomicLong();
+	private final AtomicLong cycles = new AtomicLong();
+	private int phase = SCAN_CLANS;
+	private String lastKey = "";
+	private String lastPlayer = "";
+	private Integer scanTimer;
+	private int chunkSize;
+	private boolean repair;
+}
@@ -0,0 +1,126 @@
+package no.runsafe.clans.handlers;
+
+import no.runsafe.clans.Clan;
+import no.runsafe.clans.ClanMemberPosition;
+import no.runsafe.clans.ClanPlayerData;
+import no.runsafe.clans.ClanPositionGrid;
+import no.runsafe.clans.database.ClanStatistic;
+import no.runsafe.clans.storage.StaticFileWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+// JSON views of the cached clan state, shared by the static export and the stats endpoint. Never touches the database.
+public class ClanJsonViews
+{
+	public ClanJsonViews(ClanHandler clanHandler, RankingHandler rankingHandler, ClanLocator locator)
+	{
+		this.clanHandler = clanHandler;
+		this.rankingHandler = rankingHandler;
+		this.locator = locator;
+	}
+
+	// Clans in ranking order, leaving out any whose tag would not make a safe file name or path.
+	public List<String> getRankedClans()
+	{
+		List<String> ranking = rankingHandler.getRankingRoster();
+		List<String> ranked = new ArrayList<String>(ranking.size());
+		for (String clanID : ranking)
+			if (VALID_TAG.matcher(clanID).matches() && clanHandler.getClan(clanID) != null)
+				ranked.add(clanID);
+		return ranked;
+	}
+
+	public String renderRankings(List<String> rankedClans)
+	{
+		StringBuilder json = new StringBuilder("{\"clans\":[");
+		int rank = 0;
+		for (String clanID : rankedClans)
+		{
+			Clan clan = clanHandler.getClan(clanID);
+			if (clan == null)
+				continue; // Disbanded since the ranking was taken.
+
+			if (rank > 0)
+				json.append(',');
+			json.append("{\"rank\":").append(++rank)
+				.append(",\"id\":").append(StaticFileWriter.quote(clanID))
+				.append(",\"leader\":").append(StaticFileWriter.quote(clan.getLeader()))
+				.append(",\"score\":").append(rankingHandler.getScore(clan))
+				.append(",\"members\":").append(clan.getMemberCount())
+				.append(",\"kills\":").append(clan.getClanKills())
+				.append(",\"deaths\":").append(clan.getClanDeaths())
+				.append(",\"dergonKills\":").append(clan.getDergonKills())
+				.append('}');
+		}
+		return json.append("]}").toString();
+	}
+
+	public String renderClan(Clan clan)
+	{
+		StringBuilder json = new StringBuilder(256)
+			.append("{\"id\":").append(StaticFileWriter.quote(clan.getId()))
+			.append(",\"leader\":").append(StaticFileWriter.quote(clan.getLeader()))
+			.append(",\"motd\":").append(StaticFileWriter.quote(clan.getMotd()))
+			.append(",\"kills\":").append(clan.getClanKills())
+			.append(",\"deaths\":").append(clan.getClanDeaths())
+			.append(",\"dergonKills\":").append(clan.getDergonKills())
+			.append(",\"members\":[");
+
+		List<String> members = clan.getMemberSnapshot();
+		for (int i = 0; i < members.size(); i++)
+		{
+			String member = members.get(i);
+			ClanPlayerData data = clanHandler.getPlayerData(member);
+			if (i > 0)
+				json.append(',');
+			json.append("{\"name\":").append(StaticFileWriter.quote(member))
+				.append(",\"joined\":").append(data.getJoined() == null ? "null" : StaticFileWriter.quote(data.getJoined().toString()))
+				.append(",\"kills\":").append(clan.getMemberStatistic(member, ClanStatistic.KILLS))
+				.append(",\"deaths\":").append(clan.getMemberStatistic(member, ClanStatistic.DEATHS))
+				.append(",\"assists\":").append(clan.getMemberStatistic(member, ClanStatistic.ASSISTS))
+				.append(",\"dergonKills\":").append(clan.getMemberStatistic(member, ClanStatistic.DERGON_KILLS))
+				.append('}');
+		}
+		return json.append("]}").toString();
+	}
+
+	// Online members per clan, as of the locator's last position sample.
+	public String renderOnline()
+	{
+		Map<String, Integer> online = new TreeMap<String, Integer>();
+		int total = 0;
+		ClanPositionGrid positions = locator.getPositions();
+		for (String clanID : clanHandler.getClans().keySet())
+		{
+			int visible = 0;
+			for (ClanMemberPosition member : positions.getClanMembers(clanID))
+				if (!member.isVanished()) // Vanished members are only in the sample so they still get flares.
+					visible++;
+			if (visible == 0)
+				continue;
+
+			online.put(clanID, visible);
+			total += visible;
+		}
+
+		StringBuilder json = new StringBuilder("{\"total\":").append(total).append(",\"clans\":{");
+		boolean first = true;
+		for (Map.Entry<String, Integer> clan : online.entrySet())
+		{
+			if (!first)
+				json.append(',');
+			json.append(StaticFileWriter.quote(clan.getKey())).append(':').append(clan.getValue());
+			first = false;
+		}
+		return json.append("}}").toString();
+	}
+
+	private static final Pattern VALID_TAG = Pattern.compile("[A-Za-z0-9_-]+");
+	private final ClanHandler clanHandler;
+	private final RankingHandler rankingHandler;
+	private final ClanLocator locator;
+}
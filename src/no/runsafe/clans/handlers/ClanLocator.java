@@ -0,0 +1,141 @@
+package no.runsafe.clans.handlers;
+
+import no.runsafe.clans.ClanMemberPosition;
+import no.runsafe.clans.ClanPositionGrid;
+import no.runsafe.clans.events.ClanJoinEvent;
+import no.runsafe.framework.api.IConfiguration;
+import no.runsafe.framework.api.ILocation;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.IServer;
+import no.runsafe.framework.api.event.player.IPlayerCustomEvent;
+import no.runsafe.framework.api.event.player.IPlayerJoinEvent;
+import no.runsafe.framework.api.event.player.IPlayerQuitEvent;
+import no.runsafe.framework.api.event.plugin.IConfigurationChanged;
+import no.runsafe.framework.api.player.IPlayer;
+import no.runsafe.framework.minecraft.event.player.RunsafeCustomEvent;
+import no.runsafe.framework.minecraft.event.player.RunsafePlayerJoinEvent;
+import no.runsafe.framework.minecraft.event.player.RunsafePlayerQuitEvent;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ClanLocator implements IPlayerJoinEvent, IPlayerQuitEvent, IPlayerCustomEvent, IConfigurationChanged
+{
+	public ClanLocator(IServer server, IScheduler scheduler, ClanHandler clanHandler)
+	{
+		this.server = server;
+		this.scheduler = scheduler;
+		this.clanHandler = clanHandler;
+	}
+
+	@Override
+	public void OnConfigurationChanged(IConfiguration config)
+	{
+		cellSize = config.getConfigValueAsInt("flare.cellSize");
+		playerCooldown = config.getConfigValueAsInt("flare.playerCooldown") * 1000L;
+		clanCooldown = config.getConfigValueAsInt("flare.clanCooldown") * 1000L;
+
+		if (sampleTimer != null)
+			scheduler.cancelTask(sampleTimer);
+		else
+		{
+			// Pick up anyone already online when the plugin loads, after that joins and quits keep track.
+			for (IPlayer player : server.getOnlinePlayers())
+				if (clanHandler.playerIsInClan(player.getName()))
+					onlineMembers.put(player.getName(), player);
+		}
+
+		// Locations have to be read on the main thread.
+		int interval = config.getConfigValueAsInt("flare.sampleInterval");
+		sampleTimer = scheduler.startSyncRepeatingTask(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				sample();
+			}
+		}, interval, interval);
+	}
+
+	@Override
+	public void OnPlayerJoinEvent(RunsafePlayerJoinEvent event)
+	{
+		IPlayer player = event.getPlayer();
+		if (!event.isFake() && clanHandler.playerIsInClan(player.getName()))
+			onlineMembers.put(player.getName(), player);
+	}
+
+	@Override
+	public void OnPlayerQuit(RunsafePlayerQuitEvent event)
+	{
+		onlineMembers.remove(event.getPlayer().getName());
+	}
+
+	@Override
+	public void OnPlayerCustomEvent(RunsafeCustomEvent event)
+	{
+		// Leavers are dropped by the next sample, joiners have to be picked up here.
+		if (event instanceof ClanJoinEvent && event.getPlayer() != null && event.getPlayer().isOnline())
+			onlineMembers.put(event.getPlayer().getName(), event.getPlayer());
+	}
+
+	public ClanPositionGrid getPositions()
+	{
+		return positions;
+	}
+
+	// Seconds left before the player may send another flare, or zero.
+	public long getFlareCooldown(String playerName, String clanID)
+	{
+		long now = System.currentTimeMillis();
+		long remaining = Math.max(getRemaining(playerFlares, playerName, playerCooldown, now), getRemaining(clanFlares, clanID, clanCooldown, now));
+		return (remaining + 999) / 1000;
+	}
+
+	public void recordFlare(String playerName, String clanID)
+	{
+		long now = System.currentTimeMillis();
+		playerFlares.put(playerName, now);
+		clanFlares.put(clanID, now);
+	}
+
+	private void sample()
+	{
+		ClanPositionGrid grid = new ClanPositionGrid(cellSize);
+		Iterator<IPlayer> members = onlineMembers.values().iterator();
+		while (members.hasNext())
+		{
+			IPlayer player = members.next();
+			String clanID = clanHandler.getPlayerClanID(player.getName());
+			if (clanID == null || !player.isOnline())
+			{
+				members.remove();
+				continue;
+			}
+
+			ILocation location = player.getLocation();
+			if (location != null)
+				grid.add(new ClanMemberPosition(player, clanID, location.getWorld().getName(), location.getX(), location.getY(), location.getZ(), player.isVanished()));
+		}
+		positions = grid; // Readers always see a whole sample.
+	}
+
+	private static long getRemaining(Map<String, Long> flares, String key, long cooldown, long now)
+	{
+		Long last = flares.get(key);
+		return last == null ? 0 : Math.max(0, last + cooldown - now);
+	}
+
+	private final IServer server;
+	private final IScheduler scheduler;
+	private final ClanHandler clanHandler;
+	private final Map<String, IPlayer> onlineMembers = new ConcurrentHashMap<String, IPlayer>(0);
+	private final Map<String, Long> playerFlares = new ConcurrentHashMap<String, Long>(0);
+	private final Map<String, Long> clanFlares = new ConcurrentHashMap<String, Long>(0);
+	private volatile ClanPositionGrid positions = new ClanPositionGrid(64);
+	private Integer sampleTimer;
+	private int cellSize;
+	private long playerCooldown;
+	private long clanCooldown;
+}
@@ -0,0 +1,150 @@
+package no.runsafe.clans.handlers;
+
+import no.runsafe.clans.Clan;
+import no.runsafe.clans.ClanMail;
+import no.runsafe.clans.database.ClanMailType;
+import no.runsafe.framework.api.IConfiguration;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.event.player.IPlayerJoinEvent;
+import no.runsafe.framework.api.event.plugin.IConfigurationChanged;
+import no.runsafe.framework.api.player.IPlayer;
+import no.runsafe.framework.minecraft.event.player.RunsafePlayerJoinEvent;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class ClanLoginQueue implements IPlayerJoinEvent, IConfigurationChanged
+{
+	public ClanLoginQueue(IScheduler scheduler, ClanHandler clanHandler, ClanMailbox mailbox, ClanChatHistory chatHistory)
+	{
+		this.scheduler = scheduler;
+		this.clanHandler = clanHandler;
+		this.mailbox = mailbox;
+		this.chatHistory = chatHistory;
+	}
+
+	@Override
+	public void OnConfigurationChanged(IConfiguration config)
+	{
+		batchSize = config.getConfigValueAsInt("login.batchSize");
+		if (drainTimer > -1)
+			scheduler.cancelTask(drainTimer);
+
+		int interval = config.getConfigValueAsInt("login.interval");
+		drainTimer = scheduler.startAsyncRepeatingTask(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				drain();
+			}
+		}, interval, interval);
+	}
+
+	@Override
+	public void OnPlayerJoinEvent(RunsafePlayerJoinEvent event)
+	{
+		if (event.isFake())
+			return;
+
+		String playerName = event.getPlayer().getName();
+		List<String> invites = clanHandler.getPendingInvites(playerName);
+		if ((invites != null && !invites.isEmpty()) || clanHandler.playerIsInClan(playerName) || mailbox.hasMail(playerName))
+			queue.add(event.getPlayer()); // Handled with the rest of the login burst.
+	}
+
+	public int getQueueSize()
+	{
+		return queue.size();
+	}
+
+	private void drain()
+	{
+		// Group this ticks logins by clan, so each clan channel and MOTD is handled once.
+		Map<Clan, List<IPlayer>> members = new HashMap<Clan, List<IPlayer>>(0);
+		List<IPlayer> invited = new ArrayList<IPlayer>(0);
+		List<String> playerNames = new ArrayList<String>(0);
+		IPlayer player;
+		int processed = 0;
+		while (processed < batchSize && (player = queue.poll()) != null)
+		{
+			processed++;
+			if (!player.isOnline())
+				continue;
+
+			playerNames.add(player.getName());
+
+			Clan clan = clanHandler.getPlayerClan(player.getName());
+			if (clan != null)
+			{
+				if (!members.containsKey(clan))
+					members.put(clan, new ArrayList<IPlayer>(1));
+				members.get(clan).add(player);
+			}
+			else
+				invited.add(player);
+		}
+
+		// One mailbox read for the whole batch rather than one per player.
+		Map<String, List<ClanMail>> mail = mailbox.takeMail(playerNames);
+
+		for (Map.Entry<Clan, List<IPlayer>> clanNode : members.entrySet())
+		{
+			Clan clan = clanNode.getKey();
+			clanHandler.joinClanChannel(clanNode.getValue(), clan.getId());
+
+			String motd = clanHandler.formatClanMessage(clan.getId(), clanHandler.formatMotd(clan.getMotd()));
+			for (IPlayer member : clanNode.getValue())
+			{
+				member.sendColouredMessage(motd);
+				chatHistory.replay(member, clan.getId());
+				sendBundle(member, mail.get(member.getName()), null);
+			}
+		}
+
+		for (IPlayer invitedPlayer : invited)
+		{
+			List<String> invites = clanHandler.getPendingInvites(invitedPlayer.getName());
+			sendBundle(invitedPlayer, mail.get(invitedPlayer.getName()), invites);
+		}
+	}
+
+	// Everything the player missed goes out as a single message, together with their invite reminder.
+	private void sendBundle(IPlayer player, List<ClanMail> mail, List<String> invites)
+	{
+		if (invites == null)
+			invites = Collections.emptyList();
+
+		List<String> lines = new ArrayList<String>(0);
+		if (mail != null)
+			for (ClanMail item : mail)
+				if (item.getType() != ClanMailType.INVITE || invites.contains(item.getClanID())) // Skip invites that have since been withdrawn.
+					lines.add(item.getMessage());
+
+		if (!lines.isEmpty())
+			lines.add(0, "&3While you were away:");
+
+		if (!invites.isEmpty())
+			lines.add(String.format(
+				"&aYou have %d pending clan invite(s): %s\n&aUse \"/clan join <clanTag>\" to join one of them!",
+				invites.size(), StringUtils.join(invites, ", ")
+			));
+
+		if (!lines.isEmpty())
+			player.sendColouredMessage(StringUtils.join(lines, "\n"));
+	}
+
+	private final IScheduler scheduler;
+	private final ClanHandler clanHandler;
+	private final ClanMailbox mailbox;
+	private final ClanChatHistory chatHistory;
+	private final Queue<IPlayer> queue = new ConcurrentLinkedQueue<IPlayer>();
+	private int batchSize;
+	private int drainTimer = -1;
+}
@@ -0,0 +1,159 @@
+package no.runsafe.clans.handlers;
+
+import no.runsafe.clans.Clan;
+import no.runsafe.clans.ClanMail;
+import no.runsafe.clans.database.ClanMailRepository;
+import no.runsafe.clans.database.ClanMailType;
+import no.runsafe.framework.api.IConfiguration;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.IServer;
+import no.runsafe.framework.api.event.plugin.IConfigurationChanged;
+import no.runsafe.framework.api.event.plugin.IPluginDisabled;
+import no.runsafe.framework.api.player.IPlayer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Holds notifications for players who were offline when they happened, until their next login.
+public class ClanMailbox implements IConfigurationChanged, IPluginDisabled
+{
+	public ClanMailbox(IServer server, IScheduler scheduler, ClanMailRepository mailRepository)
+	{
+		this.server = server;
+		this.scheduler = scheduler;
+		this.mailRepository = mailRepository;
+	}
+
+	@Override
+	public void OnConfigurationChanged(IConfiguration config)
+	{
+		cap = config.getConfigValueAsInt("mailbox.cap");
+
+		flush();
+		recipients.clear();
+		recipients.addAll(mailRepository.getRecipients());
+
+		if (flushTimer != null)
+			scheduler.cancelTask(flushTimer);
+
+		int interval = config.getConfigValueAsInt("mailbox.flushInterval");
+		flushTimer = scheduler.startAsyncRepeatingTask(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				flush();
+			}
+		}, interval, interval);
+	}
+
+	@Override
+	public void OnPluginDisabled()
+	{
+		flush();
+	}
+
+	// Sends the message straight away if the player is online, otherwise keeps it for their next login.
+	public void notify(String playerName, ClanMailType type, String clanID, String message)
+	{
+		IPlayer player = server.getPlayerExact(playerName);
+		if (player != null && player.isOnline())
+			player.sendColouredMessage(message);
+		else
+			post(playerName, type, clanID, message);
+	}
+
+	public void notifyOfflineMembers(Clan clan, ClanMailType type, String message)
+	{
+		for (String member : clan.getMembers().toArray(new String[0]))
+		{
+			IPlayer player = server.getPlayerExact(member);
+			if (player == null || !player.isOnline())
+				post(member, type, clan.getId(), message);
+		}
+	}
+
+	public boolean hasMail(String playerName)
+	{
+		return recipients.contains(playerName);
+	}
+
+	// Takes everything waiting for the players, with repeated notices about the same thing folded into the newest one.
+	public Map<String, List<ClanMail>> takeMail(List<String> playerNames)
+	{
+		List<String> withMail = new ArrayList<String>(playerNames.size());
+		for (String playerName : playerNames)
+			if (recipients.remove(playerName))
+				withMail.add(playerName);
+
+		if (withMail.isEmpty())
+			return Collections.emptyMap();
+
+		flush(); // Anything still queued has to be in the table before it is read back.
+		Map<String, List<ClanMail>> stored = mailRepository.getMail(withMail);
+		List<String> read = new ArrayList<String>(0);
+		for (List<ClanMail> playerMail : stored.values())
+			for (ClanMail item : playerMail)
+				read.add(String.valueOf(item.getId()));
+		mailRepository.deleteMail(read);
+
+		Map<String, List<ClanMail>> mail = new LinkedHashMap<String, List<ClanMail>>(stored.size());
+		for (Map.Entry<String, List<ClanMail>> playerMail : stored.entrySet())
+			mail.put(playerMail.getKey(), coalesce(playerMail.getValue()));
+		return mail;
+	}
+
+	private void post(String playerName, ClanMailType type, String clanID, String message)
+	{
+		pending.add(new Object[]{playerName, type.name(), clanID, message});
+		recipients.add(playerName);
+	}
+
+	private synchronized void flush()
+	{
+		List<Object[]> rows = new ArrayList<Object[]>(0);
+		Set<String> players = new LinkedHashSet<String>(0);
+		Object[] row;
+		while ((row = pending.poll()) != null)
+		{
+			rows.add(row);
+			players.add((String) row[0]);
+		}
+
+		if (rows.isEmpty())
+			return;
+
+		mailRepository.addMail(rows);
+		mailRepository.trimMail(new ArrayList<String>(players), cap); // Only the newest mail is kept, and only those who just got some can be over.
+	}
+
+	private List<ClanMail> coalesce(List<ClanMail> mail)
+	{
+		// Keyed on type and clan, re-inserting moves a key to the end so the bundle stays in order of the latest notice.
+		LinkedHashMap<String, ClanMail> latest = new LinkedHashMap<String, ClanMail>(mail.size());
+		for (ClanMail item : mail)
+		{
+			String key = item.getType().name() + ':' + item.getClanID();
+			latest.remove(key);
+			latest.put(key, item);
+		}
+		List<ClanMail> coalesced = new ArrayList<ClanMail>(latest.values());
+		return coalesced.size() > cap ? coalesced.subList(coalesced.size() - cap, coalesced.size()) : coalesced;
+	}
+
+	private final IServer server;
+	private final IScheduler scheduler;
+	private final ClanMailRepository mailRepository;
+	private final Set<String> recipients = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>(0));
+	private final Queue<Object[]> pending = new ConcurrentLinkedQueue<Object[]>();
+	private Integer flushTimer;
+	private int cap;
+}
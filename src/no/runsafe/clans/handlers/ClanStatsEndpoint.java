@@ -0,0 +1,226 @@
+package no.runsafe.clans.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import no.runsafe.clans.Clan;
+import no.runsafe.framework.api.IConfiguration;
+import no.runsafe.framework.api.event.plugin.IConfigurationChanged;
+import no.runsafe.framework.api.event.plugin.IPluginDisabled;
+import no.runsafe.framework.api.log.IConsole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+// A small read-only HTTP endpoint for dashboards and bots, answered from the cached clan state on its own threads.
+public class ClanStatsEndpoint implements IConfigurationChanged, IPluginDisabled, HttpHandler
+{
+	public ClanStatsEndpoint(IConsole console, ClanHandler clanHandler, ClanJsonViews views)
+	{
+		this.console = console;
+		this.clanHandler = clanHandler;
+		this.jsonViews = views;
+	}
+
+	@Override
+	public synchronized void OnConfigurationChanged(IConfiguration config)
+	{
+		maxAge = config.getConfigValueAsInt("http.maxAge") * 1000L;
+		cache.clear();
+
+		String newAddress = config.getConfigValueAsBoolean("http.enabled")
+			? config.getConfigValueAsString("http.bind") + ":" + config.getConfigValueAsInt("http.port")
+			: null;
+		if (newAddress == null ? address == null : newAddress.equals(address))
+			return; // Nothing about the listener changed.
+
+		stop();
+		if (newAddress == null)
+			return;
+
+		try
+		{
+			server = HttpServer.create(new InetSocketAddress(config.getConfigValueAsString("http.bind"), config.getConfigValueAsInt("http.port")), 0);
+		}
+		catch (IOException e)
+		{
+			console.logError("Unable to start the clan stats endpoint on %s: %s", newAddress, e.getMessage());
+			return;
+		}
+
+		// Requests never run on the server thread, a slow client only ties up one of these.
+		executor = Executors.newFixedThreadPool(config.getConfigValueAsInt("http.threads"), new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "RunsafeClans-http-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		server.setExecutor(executor);
+		server.createContext("/", this);
+		server.start();
+		address = newAddress;
+		console.logInformation("Clan stats endpoint listening on %s.", address);
+	}
+
+	@Override
+	public synchronized void OnPluginDisabled()
+	{
+		stop();
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException
+	{
+		try
+		{
+			requests.incrementAndGet();
+			String method = exchange.getRequestMethod();
+			if (!method.equals("GET") && !method.equals("HEAD"))
+			{
+				exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+
+			View view = getView(exchange.getRequestURI().getPath());
+			if (view == null)
+			{
+				exchange.sendResponseHeaders(404, -1);
+				return;
+			}
+
+			exchange.getResponseHeaders().set("ETag", view.etag);
+			exchange.getResponseHeaders().set("Cache-Control", "max-age=" + maxAge / 1000);
+			String match = exchange.getRequestHeaders().getFirst("If-None-Match");
+			if (match != null && (match.equals(view.etag) || match.equals("*")))
+			{
+				notModified.incrementAndGet();
+				exchange.sendResponseHeaders(304, -1);
+				return;
+			}
+
+			exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+			if (method.equals("HEAD"))
+			{
+				exchange.sendResponseHeaders(200, -1);
+				return;
+			}
+
+			exchange.sendResponseHeaders(200, view.body.length);
+			OutputStream body = exchange.getResponseBody();
+			body.write(view.body);
+			body.close();
+		}
+		catch (RuntimeException e)
+		{
+			console.logException(e);
+			exchange.sendResponseHeaders(500, -1);
+		}
+		finally
+		{
+			exchange.close();
+		}
+	}
+
+	public String getAddress()
+	{
+		return address;
+	}
+
+	public long getRequests()
+	{
+		return requests.get();
+	}
+
+	public long getNotModified()
+	{
+		return notModified.get();
+	}
+
+	private View getView(String path)
+	{
+		Clan clan = null;
+		if (path.startsWith("/clans/"))
+		{
+			path = "/clans/" + path.substring(7).toUpperCase(); // Tags are upper case, one cache entry per clan.
+			clan = clanHandler.getClan(path.substring(7));
+			if (clan == null)
+			{
+				cache.remove(path); // Disbanded, or never existed, so neither a stale view nor its entry is kept.
+				return null;
+			}
+		}
+
+		// Pollers asking in the same instant share one rendering instead of each sorting the rankings.
+		View view = cache.get(path);
+		if (view != null && System.currentTimeMillis() - view.built < maxAge)
+			return view;
+
+		String json;
+		if (path.equals("/rankings"))
+			json = jsonViews.renderRankings(jsonViews.getRankedClans());
+		else if (path.equals("/online"))
+			json = jsonViews.renderOnline();
+		else if (clan != null)
+			json = jsonViews.renderClan(clan);
+		else
+			return null;
+
+		view = new View(json);
+		cache.put(path, view);
+		return view;
+	}
+
+	private void stop()
+	{
+		if (server != null)
+			server.stop(0);
+		if (executor != null)
+			executor.shutdown();
+		server = null;
+		executor = null;
+		address = null;
+	}
+
+	private static final class View
+	{
+		View(String json)
+		{
+			body = json.getBytes(UTF8);
+			CRC32 crc = new CRC32();
+			crc.update(body);
+			etag = "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(body.length) + "\"";
+			built = System.currentTimeMillis();
+		}
+
+		final byte[] body;
+		final String etag;
+		final long built;
+	}
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private final IConsole console;
+	private final ClanHandler clanHandler;
+	private final ClanJsonViews jsonViews;
+	private final ConcurrentHashMap<String, View> cache = new ConcurrentHashMap<String, View>(0);
+	private final AtomicInteger threadCount = new AtomicInteger();
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong notModified = new AtomicLong();
+	private HttpServer server;
+	private ExecutorService executor;
+	private volatile String address;
+	private long maxAge;
+}
@@ -0,0 +1,131 @@
+package no.runsafe.clans.handlers;
+
+import no.runsafe.clans.database.ClanChange;
+import no.runsafe.clans.database.ClanChangeRepository;
+import no.runsafe.framework.api.IConfiguration;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.event.plugin.IConfigurationChanged;
+import no.runsafe.framework.api.log.IConsole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+public class ClanSyncHandler implements IConfigurationChanged
+{
+	public ClanSyncHandler(IConsole console, IScheduler scheduler, ClanHandler clanHandler, ClanChangeRepository changeRepository)
+	{
+		this.console = console;
+		this.scheduler = scheduler;
+		this.clanHandler = clanHandler;
+		this.changeRepository = changeRepository;
+	}
+
+	@Override
+	public void OnConfigurationChanged(IConfiguration config)
+	{
+		if (pollTimer > -1)
+			scheduler.cancelTask(pollTimer);
+		pollTimer = -1;
+
+		if (!config.getConfigValueAsBoolean("sync.enabled"))
+			return;
+
+		retentionHours = config.getConfigValueAsInt("sync.retention");
+		gapTimeout = config.getConfigValueAsInt("sync.gapTimeout") * 1000L;
+		synchronized (this)
+		{
+			// Taken before the caches were loaded, so nothing committed during the load is missed.
+			lastChange = clanHandler.getChangeCursor();
+			missing.clear();
+		}
+		pollTimer = scheduler.startAsyncRepeatingTask(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				poll();
+			}
+		}, config.getConfigValueAsInt("sync.interval"), config.getConfigValueAsInt("sync.interval"));
+	}
+
+	public synchronized int poll()
+	{
+		long now = System.currentTimeMillis();
+		List<ClanChange> remote = new ArrayList<ClanChange>(0);
+
+		// Ids skipped over earlier may belong to transactions that committed after higher ids were read.
+		if (!missing.isEmpty())
+		{
+			for (ClanChange change : changeRepository.getChanges(missing.keySet()))
+			{
+				missing.remove(change.getId());
+				collect(change, remote);
+			}
+
+			// Past the timeout the id is taken to be a rollback or an auto increment jump, and never coming.
+			Iterator<Long> noticed = missing.values().iterator();
+			while (noticed.hasNext())
+				if (now - noticed.next() > gapTimeout)
+					noticed.remove();
+		}
+
+		List<ClanChange> changes;
+		do
+		{
+			changes = changeRepository.getChangesSince(lastChange, BATCH_SIZE);
+			for (ClanChange change : changes)
+			{
+				for (long id = Math.max(lastChange + 1, change.getId() - MAX_GAP); id < change.getId(); id++)
+					missing.put(id, now);
+
+				lastChange = change.getId();
+				collect(change, remote);
+			}
+		}
+		while (changes.size() == BATCH_SIZE);
+
+		if (++pollCount % PURGE_INTERVAL == 0)
+			changeRepository.purgeChanges(retentionHours);
+
+		if (!remote.isEmpty())
+		{
+			clanHandler.applyRemoteChanges(remote);
+			console.logInformation("Applying %s clan changes from other servers.", remote.size());
+		}
+
+		return remote.size();
+	}
+
+	public synchronized int getMissingCount()
+	{
+		return missing.size();
+	}
+
+	private void collect(ClanChange change, List<ClanChange> remote)
+	{
+		if (!change.getNode().equals(changeRepository.getNodeID()))
+			remote.add(change); // Our own changes are already in the caches.
+	}
+
+	public long getLastChange()
+	{
+		return lastChange;
+	}
+
+	private static final int BATCH_SIZE = 500;
+	private static final int PURGE_INTERVAL = 100;
+	private static final int MAX_GAP = 1000;
+	private final IConsole console;
+	private final IScheduler scheduler;
+	private final ClanHandler clanHandler;
+	private final ClanChangeRepository changeRepository;
+	private int pollTimer = -1;
+	private int pollCount = 0;
+	private int retentionHours;
+	private long lastChange;
+	private long gapTimeout;
+	private final Map<Long, Long> missing = new HashMap<Long, Long>(0); // Change id to when the gap was noticed.
+}
@@ -0,0 +1,265 @@
+package no.runsafe.clans.handlers;
+
+import no.runsafe.clans.Clan;
+import no.runsafe.clans.events.ClanEventOverflow;
+import no.runsafe.clans.events.ClanEventRecord;
+import no.runsafe.clans.events.IClanEventSubscriber;
+import no.runsafe.clans.storage.ClanTraceReader;
+import no.runsafe.clans.storage.ClanTraceWriter;
+import no.runsafe.framework.api.IConfiguration;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.event.player.IPlayerJoinEvent;
+import no.runsafe.framework.api.event.player.IPlayerQuitEvent;
+import no.runsafe.framework.api.event.plugin.IConfigurationChanged;
+import no.runsafe.framework.api.event.plugin.IPluginDisabled;
+import no.runsafe.framework.api.log.IConsole;
+import no.runsafe.framework.minecraft.event.player.RunsafePlayerJoinEvent;
+import no.runsafe.framework.minecraft.event.player.RunsafePlayerQuitEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Records the inputs that drive clan state into a trace file, for ClanTraceReplayer to play back later.
+public class ClanTraceRecorder implements IPlayerJoinEvent, IPlayerQuitEvent, IClanEventSubscriber, IConfigurationChanged, IPluginDisabled
+{
+	public ClanTraceRecorder(IConsole console, IScheduler scheduler, ClanHandler clanHandler, ClanEventBus eventBus)
+	{
+		this.console = console;
+		this.scheduler = scheduler;
+		this.clanHandler = clanHandler;
+		this.eventBus = eventBus;
+	}
+
+	@Override
+	public void OnConfigurationChanged(IConfiguration config)
+	{
+		folder = new File(config.getConfigValueAsString("trace.path"));
+		capacity = config.getConfigValueAsInt("trace.capacity");
+
+		if (!subscribed)
+			eventBus.subscribe(this, capacity, ClanEventOverflow.DROP_NEWEST);
+		subscribed = true;
+
+		if (writeTimer != null)
+			scheduler.cancelTask(writeTimer);
+
+		int interval = config.getConfigValueAsInt("trace.writeInterval");
+		writeTimer = scheduler.startAsyncRepeatingTask(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				write(false);
+			}
+		}, interval, interval);
+	}
+
+	@Override
+	public void OnPluginDisabled()
+	{
+		stop();
+	}
+
+	@Override
+	public void OnPlayerJoinEvent(RunsafePlayerJoinEvent event)
+	{
+		if (!event.isFake())
+			record(ClanTraceReader.JOIN, event.getPlayer().getName(), null);
+	}
+
+	@Override
+	public void OnPlayerQuit(RunsafePlayerQuitEvent event)
+	{
+		if (!event.isFake())
+			record(ClanTraceReader.QUIT, event.getPlayer().getName(), null);
+	}
+
+	@Override
+	public String getSubscriberName()
+	{
+		return "Trace recorder";
+	}
+
+	@Override
+	public void OnClanEvent(ClanEventRecord event)
+	{
+		// Backstabs and mutinies are left out, the replay works them out again from the damage and deaths.
+		// Stamped with when the change was made rather than when the bus got it here, so it lands between the right hits.
+		switch (event.getType())
+		{
+			case JOIN:
+				record(ClanTraceReader.CLAN_JOIN, event.getTime(), event.getPlayer(), event.getClanID());
+				break;
+
+			case LEAVE:
+				record(ClanTraceReader.CLAN_LEAVE, event.getTime(), event.getPlayer(), event.getClanID());
+				break;
+
+			case KICK:
+				record(ClanTraceReader.CLAN_KICK, event.getTime(), event.getPlayer(), event.getClanID());
+				break;
+		}
+	}
+
+	public void recordDamage(String victimName, String attackerName)
+	{
+		record(ClanTraceReader.DAMAGE, victimName, attackerName);
+	}
+
+	public void recordDeath(String playerName)
+	{
+		record(ClanTraceReader.DEATH, playerName, null);
+	}
+
+	public boolean isValidFileName(String name)
+	{
+		return name.matches("[a-zA-Z0-9._-]+");
+	}
+
+	public File getFile(String name)
+	{
+		return new File(folder, name);
+	}
+
+	public synchronized String start(String name) throws IOException
+	{
+		if (writer != null)
+			return "&cA trace is already being recorded.";
+
+		writer = new ClanTraceWriter(getFile(name));
+		started = System.currentTimeMillis();
+		queued.set(0);
+		dropped.set(0);
+		recorded = 0;
+		lastTime = 0;
+
+		// The replay starts from the rosters as they are now.
+		for (Clan clan : clanHandler.getClans().values())
+		{
+			writer.write(ClanTraceReader.CLAN, 0, clan.getId(), clan.getLeader());
+			for (String member : clan.getMembers().toArray(new String[0]))
+				writer.write(ClanTraceReader.MEMBER, 0, clan.getId(), member);
+		}
+		recording = true;
+		return "&aRecording clan trace to " + name + ".";
+	}
+
+	public synchronized String stop()
+	{
+		if (writer == null)
+			return "&cNo trace is being recorded.";
+
+		recording = false;
+		write(true);
+		try
+		{
+			writer.close();
+		}
+		catch (IOException e)
+		{
+			console.logException(e);
+		}
+		writer = null;
+		return String.format("&aTrace stopped after %d events, %d dropped.", recorded, dropped.get());
+	}
+
+	public boolean isRecording()
+	{
+		return recording;
+	}
+
+	private void record(int type, String first, String second)
+	{
+		record(type, System.currentTimeMillis(), first, second);
+	}
+
+	private void record(int type, long time, String first, String second)
+	{
+		if (!recording)
+			return;
+
+		// Never let a slow disk back up into the event threads, a trace with a gap is better than lag.
+		if (queued.incrementAndGet() > capacity)
+		{
+			queued.decrementAndGet();
+			dropped.incrementAndGet();
+			return;
+		}
+		pending.add(new Object[]{type, (int) (time - started), first, second});
+	}
+
+	// Membership changes arrive through the event bus after the hits around them, so records wait SETTLE_TIME to be put in order.
+	// Unless the trace is ending, then everything goes.
+	private synchronized void write(boolean all)
+	{
+		if (writer == null)
+			return;
+
+		Object[] event;
+		while ((event = pending.poll()) != null)
+			ordered.add(event);
+		Collections.sort(ordered, BY_TIME); // Stable, so records made at the same time keep their order.
+
+		int horizon = all ? Integer.MAX_VALUE : (int) (System.currentTimeMillis() - started) - SETTLE_TIME;
+		int written = 0;
+		try
+		{
+			for (Object[] record : ordered)
+			{
+				int time = (Integer) record[1];
+				if (time > horizon)
+					break;
+
+				// Anything that took longer than that goes in at the end of what was written, so the file stays in order.
+				lastTime = Math.max(lastTime, time);
+				writer.write((Integer) record[0], lastTime, (String) record[2], (String) record[3]);
+				written++;
+			}
+			writer.flush();
+		}
+		catch (IOException e)
+		{
+			console.logException(e);
+		}
+		finally
+		{
+			ordered.subList(0, written).clear();
+			queued.addAndGet(-written);
+			recorded += written;
+		}
+	}
+
+	private static final int SETTLE_TIME = 5000;
+	private static final Comparator<Object[]> BY_TIME = new Comparator<Object[]>()
+	{
+		@Override
+		public int compare(Object[] one, Object[] two)
+		{
+			return ((Integer) one[1]).compareTo((Integer) two[1]);
+		}
+	};
+	private final IConsole console;
+	private final IScheduler scheduler;
+	private final ClanHandler clanHandler;
+	private final ClanEventBus eventBus;
+	private final Queue<Object[]> pending = new ConcurrentLinkedQueue<Object[]>();
+	private final List<Object[]> ordered = new ArrayList<Object[]>(0);
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicInteger dropped = new AtomicInteger();
+	private File folder;
+	private int capacity;
+	private Integer writeTimer;
+	private boolean subscribed = false;
+	private volatile boolean recording = false;
+	private ClanTraceWriter writer;
+	private long started;
+	private int recorded;
+	private int lastTime;
+}
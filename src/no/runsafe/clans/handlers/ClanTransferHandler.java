@@ -0,0 +1,228 @@
+package no.runsafe.clans.handlers;
+
+import no.runsafe.clans.database.ClanTransferQueries;
+import no.runsafe.clans.storage.ClanExportReader;
+import no.runsafe.clans.storage.ClanExportWriter;
+import no.runsafe.framework.api.IConfiguration;
+import no.runsafe.framework.api.event.plugin.IConfigurationChanged;
+import no.runsafe.framework.api.log.IConsole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+public class ClanTransferHandler implements IConfigurationChanged
+{
+	public ClanTransferHandler(IConsole console, ClanHandler clanHandler, ClanTransferQueries queries)
+	{
+		this.console = console;
+		this.clanHandler = clanHandler;
+		this.queries = queries;
+	}
+
+	@Override
+	public void OnConfigurationChanged(IConfiguration config)
+	{
+		folder = new File(config.getConfigValueAsString("transfer.path"));
+		pageSize = config.getConfigValueAsInt("transfer.pageSize");
+	}
+
+	public boolean isValidFileName(String name)
+	{
+		return fileNamePattern.matcher(name).matches();
+	}
+
+	public String exportClans(String name) throws IOException
+	{
+		if (!running.compareAndSet(false, true))
+			return "&cA clan transfer is already running.";
+
+		try
+		{
+			long started = System.currentTimeMillis();
+			int[] counts = new int[3];
+			ClanExportWriter writer = new ClanExportWriter(new File(folder, name));
+			try
+			{
+				// Only one page per table is held at a time, however many rows there are.
+				List<Object[]> page;
+				String lastClan = "";
+				while (!(page = queries.getClanPage(lastClan, pageSize)).isEmpty())
+				{
+					for (Object[] row : page)
+						writer.writeClan(row);
+					lastClan = (String) page.get(page.size() - 1)[0];
+					counts[0] += page.size();
+				}
+
+				String lastMember = "";
+				while (!(page = queries.getMemberPage(lastMember, pageSize)).isEmpty())
+				{
+					for (Object[] row : page)
+						writer.writeMember(row);
+					lastMember = (String) page.get(page.size() - 1)[1];
+					counts[1] += page.size();
+				}
+
+				String lastInviteClan = "";
+				String lastInvitePlayer = "";
+				while (!(page = queries.getInvitePage(lastInviteClan, lastInvitePlayer, pageSize)).isEmpty())
+				{
+					for (Object[] row : page)
+						writer.writeInvite(row);
+					Object[] last = page.get(page.size() - 1);
+					lastInviteClan = (String) last[0];
+					lastInvitePlayer = (String) last[1];
+					counts[2] += page.size();
+				}
+				writer.finish();
+			}
+			finally
+			{
+				writer.close(); // Discards the partial file if the export failed.
+			}
+			return report("Exported", counts, started);
+		}
+		finally
+		{
+			running.set(false);
+		}
+	}
+
+	public String importClans(String name) throws IOException
+	{
+		if (!running.compareAndSet(false, true))
+			return "&cA clan transfer is already running.";
+
+		try
+		{
+			long started = System.currentTimeMillis();
+			File file = new File(folder, name);
+			validate(file); // A damaged file is refused before anything is touched.
+
+			clanHandler.beginImport();
+			try
+			{
+				queries.createStaging();
+				int[] counts = load(file);
+				queries.swapStaging();
+				clanHandler.reloadCaches(); // Swaps the imported clans in as a whole.
+				return report("Imported", counts, started);
+			}
+			finally
+			{
+				queries.dropStaging();
+				clanHandler.endImport();
+			}
+		}
+		finally
+		{
+			running.set(false);
+		}
+	}
+
+	// Reads the whole file up to its end marker, and checks every member and invite belongs to a clan in it.
+	private static void validate(File file) throws IOException
+	{
+		Set<String> clanIDs = new HashSet<String>(0);
+		ClanExportReader reader = new ClanExportReader(file);
+		try
+		{
+			int type;
+			while ((type = reader.next()) != ClanExportReader.END)
+			{
+				String clanID = (String) reader.getRow()[0];
+				if (type == ClanExportReader.CLAN)
+					clanIDs.add(clanID);
+				else if (!clanIDs.contains(clanID))
+					throw new IOException(file.getName() + " refers to clan " + clanID + " before it is defined.");
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	private int[] load(File file) throws IOException
+	{
+		int[] counts = new int[3];
+		ClanExportReader reader = new ClanExportReader(file);
+		try
+		{
+			List<Object[]> clans = new ArrayList<Object[]>(pageSize);
+			List<Object[]> members = new ArrayList<Object[]>(pageSize);
+			List<Object[]> invites = new ArrayList<Object[]>(pageSize);
+			int type;
+			while ((type = reader.next()) != ClanExportReader.END)
+			{
+				switch (type)
+				{
+					case ClanExportReader.CLAN:
+						clans.add(reader.getRow());
+						if (clans.size() >= pageSize)
+							counts[0] += flush(clans, ClanExportReader.CLAN);
+						break;
+
+					case ClanExportReader.MEMBER:
+						members.add(reader.getRow());
+						if (members.size() >= pageSize)
+							counts[1] += flush(members, ClanExportReader.MEMBER);
+						break;
+
+					case ClanExportReader.INVITE:
+						invites.add(reader.getRow());
+						if (invites.size() >= pageSize)
+							counts[2] += flush(invites, ClanExportReader.INVITE);
+						break;
+				}
+			}
+			counts[0] += flush(clans, ClanExportReader.CLAN);
+			counts[1] += flush(members, ClanExportReader.MEMBER);
+			counts[2] += flush(invites, ClanExportReader.INVITE);
+		}
+		finally
+		{
+			reader.close();
+		}
+		return counts;
+	}
+
+	private int flush(List<Object[]> rows, int type)
+	{
+		int size = rows.size();
+		if (type == ClanExportReader.CLAN)
+			queries.insertClans(rows);
+		else if (type == ClanExportReader.MEMBER)
+			queries.insertMembers(rows);
+		else
+			queries.insertInvites(rows);
+		rows.clear();
+		return size;
+	}
+
+	private String report(String action, int[] counts, long started)
+	{
+		long elapsed = Math.max(1, System.currentTimeMillis() - started);
+		int rows = counts[0] + counts[1] + counts[2];
+		String report = String.format(
+			"%s %s clans, %s members and %s invites in %.2f seconds (%s rows per second).",
+			action, counts[0], counts[1], counts[2], elapsed / 1000.0, rows * 1000L / elapsed
+		);
+		console.logInformation(report);
+		return "&a" + report;
+	}
+
+	private final IConsole console;
+	private final ClanHandler clanHandler;
+	private final ClanTransferQueries queries;
+	private final AtomicBoolean running = new AtomicBoolean(false);
+	private final Pattern fileNamePattern = Pattern.compile("^[A-Za-z0-9_.-]+$");
+	private File folder;
+	private int pageSize;
+}
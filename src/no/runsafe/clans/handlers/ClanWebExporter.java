@@ -0,0 +1,129 @@
+package no.runsafe.clans.handlers;
+
+import no.runsafe.clans.Clan;
+import no.runsafe.clans.storage.StaticFileWriter;
+import no.runsafe.framework.api.IConfiguration;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.event.plugin.IConfigurationChanged;
+import no.runsafe.framework.api.event.plugin.IPluginDisabled;
+import no.runsafe.framework.api.log.IConsole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Publishes the rankings and every clan's roster as static JSON files, so the website never has to query the database.
+public class ClanWebExporter implements IConfigurationChanged, IPluginDisabled
+{
+	public ClanWebExporter(IConsole console, IScheduler scheduler, ClanHandler clanHandler, ClanJsonViews views)
+	{
+		this.console = console;
+		this.scheduler = scheduler;
+		this.clanHandler = clanHandler;
+		this.views = views;
+	}
+
+	@Override
+	public void OnConfigurationChanged(IConfiguration config)
+	{
+		if (exportTimer != null)
+			scheduler.cancelTask(exportTimer);
+		exportTimer = null;
+
+		enabled = config.getConfigValueAsBoolean("web.enabled");
+		if (!enabled)
+			return;
+
+		File newFolder = new File(config.getConfigValueAsString("web.path"));
+		if (!newFolder.equals(folder))
+			published.clear(); // Everything has to be written to a new location.
+		folder = newFolder;
+
+		int interval = config.getConfigValueAsInt("web.interval");
+		exportTimer = scheduler.startAsyncRepeatingTask(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				export();
+			}
+		}, interval, interval);
+	}
+
+	@Override
+	public void OnPluginDisabled()
+	{
+		if (enabled)
+			export();
+	}
+
+	public int getPublishedCount()
+	{
+		return published.size();
+	}
+
+	public int getLastWritten()
+	{
+		return lastWritten;
+	}
+
+	private synchronized void export()
+	{
+		// Changes are picked up by comparing against what was last published, a clan that didn't change is not written.
+		// The rankings are only in the index, so a clan moving up or down doesn't rewrite its own file.
+		int written = 0;
+		try
+		{
+			List<String> ranked = views.getRankedClans();
+			for (String clanID : ranked)
+			{
+				Clan clan = clanHandler.getClan(clanID);
+				if (clan != null)
+					written += publish(clanID, "clans/" + clanID + ".json", views.renderClan(clan));
+			}
+			written += publish(INDEX, "index.json", views.renderRankings(ranked));
+
+			// Clans that were disbanded since the last run.
+			Set<String> current = new HashSet<String>(ranked);
+			for (String clanID : new HashSet<String>(published.keySet()))
+			{
+				if (clanID.equals(INDEX) || current.contains(clanID))
+					continue;
+
+				File file = new File(folder, "clans/" + clanID + ".json");
+				if (!file.exists() || file.delete())
+					published.remove(clanID);
+			}
+		}
+		catch (IOException e)
+		{
+			console.logException(e);
+		}
+		lastWritten = written;
+	}
+
+	private int publish(String key, String path, String content) throws IOException
+	{
+		if (content.equals(published.get(key)))
+			return 0;
+
+		StaticFileWriter.write(new File(folder, path), content);
+		published.put(key, content);
+		return 1;
+	}
+
+	private static final String INDEX = "";
+	private final IConsole console;
+	private final IScheduler scheduler;
+	private final ClanHandler clanHandler;
+	private final ClanJsonViews views;
+	private final Map<String, String> published = new HashMap<String, String>(0);
+	private Integer exportTimer;
+	private boolean enabled;
+	private File folder;
+	private volatile int lastWritten;
+}
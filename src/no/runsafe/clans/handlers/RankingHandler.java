@@ -21,8 +21,7 @@ public class RankingHandler implements IConfigurationChanged
 		for (Map.Entry<String, Clan> clanNode : clanMap.entrySet())
 		{
 			Clan clan = clanNode.getValue();
-			int score = ((clan.getMemberCount() * clanMemberScore) + (clan.getClanKills() * clanKillScore)) - (clan.getClanDeaths() * (clanKillScore / 2)) + (clan.getDergonKills() * clanDergonKillScore);
-			roster.put(clan.getId(), score);
+			roster.put(clan.getId(), getScore(clan));
 		}
 
 		LinkedHashMap<String, Integer> sorted = sortByValues(roster); // Sort the stuff!
@@ -35,6 +34,11 @@ public class RankingHandler implements IConfigurationChanged
 		return ordered;
 	}
 
+	public int getScore(Clan clan)
+	{
+		return ((clan.getMemberCount() * clanMemberScore) + (clan.getClanKills() * clanKillScore)) - (clan.getClanDeaths() * (clanKillScore / 2)) + (clan.getDergonKills() * clanDergonKillScore);
+	}
+
 	public static <K extends Comparable,V extends Comparable> LinkedHashMap<K,V> sortByValues(Map<K,V> map)
 	{
 		List<Map.Entry<K,V>> entries = new LinkedList<Map.Entry<K,V>>(map.entrySet());
@@ -0,0 +1,86 @@
+package no.runsafe.clans.handlers;
+
+import no.runsafe.clans.ClanRelations;
+import no.runsafe.clans.database.ClanRelation;
+import no.runsafe.clans.database.ClanRelationRepository;
+import no.runsafe.framework.api.IConfiguration;
+import no.runsafe.framework.api.event.plugin.IConfigurationChanged;
+
+import java.util.List;
+
+public class RelationHandler implements IConfigurationChanged
+{
+	public RelationHandler(ClanHandler clanHandler, ClanRelationRepository relationRepository, ClanRelations relations)
+	{
+		this.clanHandler = clanHandler;
+		this.relationRepository = relationRepository;
+		this.relations = relations;
+	}
+
+	@Override
+	public void OnConfigurationChanged(IConfiguration config)
+	{
+		suppressFriendlyFire = config.getConfigValueAsBoolean("combat.suppressFriendlyFire");
+		relationRepository.purgeDisbandedClans();
+		relations.replace(relationRepository.getRelations());
+	}
+
+	public void setRelation(String clanID, String targetID, ClanRelation relation)
+	{
+		relationRepository.setRelation(clanID, targetID, relation);
+		relations.set(clanID, targetID, relation); // Only the one bit for this pair changes.
+		clanHandler.recordRelationChange(clanID, targetID);
+
+		if (relation == ClanRelation.ALLY && relations.isAllied(clanID, targetID))
+		{
+			clanHandler.sendMessageToClan(clanID, "The clan is now allied with " + targetID + ".");
+			clanHandler.sendMessageToClan(targetID, "The clan is now allied with " + clanID + ".");
+		}
+		else if (relation == ClanRelation.ALLY)
+		{
+			clanHandler.sendMessageToClan(clanID, "The clan has offered an alliance to " + targetID + ".");
+			clanHandler.sendMessageToClan(targetID, clanID + " has offered the clan an alliance.");
+		}
+		else if (relation == ClanRelation.ENEMY)
+		{
+			clanHandler.sendMessageToClan(clanID, "The clan has declared " + targetID + " an enemy.");
+			clanHandler.sendMessageToClan(targetID, clanID + " has declared the clan an enemy.");
+		}
+		else
+			clanHandler.sendMessageToClan(clanID, "The clan is now neutral towards " + targetID + ".");
+	}
+
+	public ClanRelation getRelation(String clanID, String targetID)
+	{
+		return relations.get(clanID, targetID);
+	}
+
+	public boolean isAllied(String clanID, String targetID)
+	{
+		return relations.isAllied(clanID, targetID);
+	}
+
+	public List<String> getDeclared(String clanID, ClanRelation relation)
+	{
+		return relations.getDeclared(clanID, relation);
+	}
+
+	// Runs for every hit between players, so it sticks to map and bit set lookups.
+	public boolean isFriendlyFire(String victimName, String attackerName)
+	{
+		if (!suppressFriendlyFire)
+			return false;
+
+		String victimClan = clanHandler.getPlayerClanID(victimName);
+		if (victimClan == null)
+			return false;
+
+		String attackerClan = clanHandler.getPlayerClanID(attackerName);
+		return attackerClan != null && (attackerClan.equals(victimClan) || relations.isAllied(victimClan, attackerClan));
+	}
+
+	private final ClanHandler clanHandler;
+	private final ClanRelationRepository relationRepository;
+	private final ClanRelations relations;
+	private boolean suppressFriendlyFire;
+}
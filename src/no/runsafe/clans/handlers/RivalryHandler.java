@@ -0,0 +1,90 @@
+package no.runsafe.clans.handlers;
+
+import no.runsafe.clans.ClanRival;
+import no.runsafe.clans.RivalryMatrix;
+import no.runsafe.clans.database.ClanRivalryRepository;
+import no.runsafe.framework.api.IConfiguration;
+import no.runsafe.framework.api.IScheduler;
+import no.runsafe.framework.api.event.plugin.IConfigurationChanged;
+import no.runsafe.framework.api.event.plugin.IPluginDisabled;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RivalryHandler implements IConfigurationChanged, IPluginDisabled
+{
+	public RivalryHandler(IScheduler scheduler, ClanHandler clanHandler, ClanRivalryRepository rivalryRepository, RivalryMatrix rivalries)
+	{
+		this.scheduler = scheduler;
+		this.clanHandler = clanHandler;
+		this.rivalryRepository = rivalryRepository;
+		this.rivalries = rivalries;
+	}
+
+	@Override
+	public void OnConfigurationChanged(IConfiguration config)
+	{
+		FlushRivalries(); // Anything unsaved would be lost when the matrix is reloaded.
+		rivalryRepository.purgeDisbandedClans();
+		rivalries.replace(rivalryRepository.getRivalries());
+
+		if (flushTimer != null)
+			scheduler.cancelTask(flushTimer);
+
+		int flushInterval = config.getConfigValueAsInt("rivalries.flushInterval");
+		flushTimer = scheduler.startAsyncRepeatingTask(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				FlushRivalries();
+			}
+		}, flushInterval, flushInterval);
+	}
+
+	@Override
+	public void OnPluginDisabled()
+	{
+		FlushRivalries();
+	}
+
+	public void recordKill(String killerClan, String victimClan)
+	{
+		rivalries.addKill(killerClan, victimClan);
+	}
+
+	public List<ClanRival> getRivals(String clanID, int limit)
+	{
+		List<ClanRival> rivals = new ArrayList<ClanRival>(0);
+		for (ClanRival rival : rivalries.getRivals(clanID))
+		{
+			if (rivals.size() >= limit)
+				break;
+
+			// ClanHandler drops disbanded clans, this only catches one disbanded by a server we don't sync with.
+			if (clanHandler.clanExists(rival.getClanID()))
+				rivals.add(rival);
+		}
+		return rivals;
+	}
+
+	public int getPairCount()
+	{
+		return rivalries.size();
+	}
+
+	private void FlushRivalries()
+	{
+		// Takes turns with ClanHandler purging a disbanded clan, so kills drained before the purge can't be saved after it.
+		synchronized (rivalryRepository)
+		{
+			rivalryRepository.addKills(rivalries.drainPending()); // One multi-row upsert per hundred pairs.
+		}
+	}
+
+	private final IScheduler scheduler;
+	private final ClanHandler clanHandler;
+	private final ClanRivalryRepository rivalryRepository;
+	private final RivalryMatrix rivalries;
+	private Integer flushTimer;
+}
@@ -1,9 +1,7 @@
 package no.runsafe.clans.monitors;
 
-import no.runsafe.clans.Clan;
-import no.runsafe.clans.events.BackstabberEvent;
-import no.runsafe.clans.events.MutinyEvent;
-import no.runsafe.clans.handlers.ClanHandler;
+import no.runsafe.clans.handlers.ClanTraceRecorder;
+import no.runsafe.clans.handlers.RelationHandler;
 import no.runsafe.framework.api.IConfiguration;
 import no.runsafe.framework.api.IScheduler;
 import no.runsafe.framework.api.IServer;
@@ -27,11 +25,13 @@ import java.util.concurrent.ConcurrentHashMap;
 
 public class CombatMonitor implements IEntityDamageByEntityEvent, IPlayerDeathEvent, IConfigurationChanged
 {
-	public CombatMonitor(IServer server, IScheduler scheduler, ClanHandler clanHandler)
+	public CombatMonitor(IServer server, IScheduler scheduler, RelationHandler relationHandler, CombatResolver resolver, ClanTraceRecorder traceRecorder)
 	{
 		this.server = server;
 		this.scheduler = scheduler;
-		this.clanHandler = clanHandler;
+		this.relationHandler = relationHandler;
+		this.resolver = resolver;
+		this.traceRecorder = traceRecorder;
 	}
 
 	@Override
@@ -39,33 +39,8 @@ public class CombatMonitor implements IEntityDamageByEntityEvent, IPlayerDeathEv
 	{
 		IPlayer deadPlayer = event.getEntity();
 		String deadPlayerName = deadPlayer.getName();
-
-		// Check we tracked the player getting hit and they are in a clan!
-		if (track.containsKey(deadPlayerName) && clanHandler.playerIsInClan(deadPlayerName))
-		{
-			String killerName = track.get(deadPlayerName).getAttacker(); // Grab the name of the last player to hit them.
-			if (clanHandler.playerIsInClan(killerName))
-			{
-				Clan deadPlayerClan = clanHandler.getPlayerClan(deadPlayerName); // Dead players clan.
-
-				if (clanHandler.playerIsInClan(killerName, deadPlayerClan.getId()))
-				{
-					IPlayer thePlayer = server.getPlayerExact(killerName);
-
-					if (thePlayer != null)
-					{
-						new BackstabberEvent(thePlayer).Fire();
-						if (clanHandler.playerIsClanLeader(deadPlayerName))
-							new MutinyEvent(thePlayer).Fire();
-					}
-				}
-				else
-				{
-					clanHandler.addClanKill(killerName); // Stat the kill
-					clanHandler.addClanDeath(deadPlayerName); // Stat the death
-				}
-			}
-		}
+		traceRecorder.recordDeath(deadPlayerName);
+		resolver.resolveDeath(deadPlayerName, track.get(deadPlayerName));
 	}
 
 	@Override
@@ -95,6 +70,13 @@ public class CombatMonitor implements IEntityDamageByEntityEvent, IPlayerDeathEv
 				if (source == null || source.isVanished() || source.shouldNotSee(victim) || isSamePlayer(victim, source))
 					return;
 
+				if (relationHandler.isFriendlyFire(victim.getName(), source.getName()))
+				{
+					event.cancel(); // Clan mates and allies don't hurt each other.
+					return;
+				}
+
+				traceRecorder.recordDamage(victim.getName(), source.getName());
 				registerHit(victim, source); // Register the hit!
 			}
 		}
@@ -145,7 +127,9 @@ public class CombatMonitor implements IEntityDamageByEntityEvent, IPlayerDeathEv
 
 	private final IServer server;
 	private final IScheduler scheduler;
-	private final ClanHandler clanHandler;
+	private final RelationHandler relationHandler;
+	private final CombatResolver resolver;
+	private final ClanTraceRecorder traceRecorder;
 	private List<String> clanUniverses = new ArrayList<String>(0);
 	private final ConcurrentHashMap<String, CombatTrackingNode> track = new ConcurrentHashMap<String, CombatTrackingNode>(0);
 }
@@ -0,0 +1,58 @@
+package no.runsafe.clans.monitors;
+
+import no.runsafe.clans.Clan;
+import no.runsafe.clans.events.ClanEventRecord;
+import no.runsafe.clans.events.ClanEventType;
+import no.runsafe.clans.handlers.ClanEventBus;
+import no.runsafe.clans.handlers.ClanHandler;
+import no.runsafe.clans.handlers.RivalryHandler;
+
+// Works out who gets the kill, death and assist for a tracked death.
+// Shared by CombatMonitor and the trace replayer in the harness, so a replay measures the same code the server runs.
+public class CombatResolver
+{
+	public CombatResolver(ClanHandler clanHandler, RivalryHandler rivalryHandler, ClanEventBus eventBus)
+	{
+		this.clanHandler = clanHandler;
+		this.rivalryHandler = rivalryHandler;
+		this.eventBus = eventBus;
+	}
+
+	public void resolveDeath(String deadPlayerName, CombatTrackingNode node)
+	{
+		// Check we tracked the player getting hit!
+		if (node == null)
+			return;
+
+		// Each clan is looked up once, either player may leave between two lookups.
+		String killerName = node.getAttacker(); // Grab the name of the last player to hit them.
+		Clan deadPlayerClan = clanHandler.getPlayerClan(deadPlayerName); // Dead players clan.
+		Clan killerClan = clanHandler.getPlayerClan(killerName);
+		if (deadPlayerClan == null || killerClan == null)
+			return;
+
+		if (killerClan.getId().equals(deadPlayerClan.getId()))
+		{
+			// Published to the event bus, so listeners don't slow down the death handling.
+			String clanID = deadPlayerClan.getId();
+			String leader = deadPlayerClan.getLeader();
+			eventBus.publish(new ClanEventRecord(ClanEventType.BACKSTABBER, killerName, clanID, leader, deadPlayerName));
+			if (leader.equals(deadPlayerName))
+				eventBus.publish(new ClanEventRecord(ClanEventType.MUTINY, killerName, clanID, leader, deadPlayerName));
+			return;
+		}
+
+		clanHandler.addClanKill(killerName); // Stat the kill
+		clanHandler.addClanDeath(deadPlayerName); // Stat the death
+		rivalryHandler.recordKill(killerClan.getId(), deadPlayerClan.getId()); // Stat the rivalry
+
+		// Whoever hit them before the killer gets an assist, as long as they are not on the victim's side.
+		String assistName = node.getPreviousAttacker();
+		if (assistName != null && !assistName.equals(killerName) && clanHandler.playerIsInClan(assistName) && !clanHandler.playerIsInClan(assistName, deadPlayerClan.getId()))
+			clanHandler.addClanAssist(assistName);
+	}
+
+	private final ClanHandler clanHandler;
+	private final RivalryHandler rivalryHandler;
+	private final ClanEventBus eventBus;
+}
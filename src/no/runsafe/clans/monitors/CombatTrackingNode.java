@@ -7,8 +7,17 @@ public class CombatTrackingNode
 		return attacker;
 	}
 
+	public String getPreviousAttacker()
+	{
+		return previousAttacker;
+	}
+
 	public CombatTrackingNode setAttacker(String attacker)
 	{
+		// Keep whoever hit before this attacker, they may be owed an assist.
+		if (this.attacker != null && !this.attacker.equals(attacker))
+			previousAttacker = this.attacker;
+
 		this.attacker = attacker;
 		return this;
 	}
@@ -25,5 +34,6 @@ public class CombatTrackingNode
 	}
 
 	private String attacker;
+	private String previousAttacker;
 	private int timerID;
 }
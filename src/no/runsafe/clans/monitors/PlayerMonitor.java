@@ -1,5 +1,6 @@
 package no.runsafe.clans.monitors;
 
+import no.runsafe.clans.Charter;
 import no.runsafe.clans.handlers.CharterHandler;
 import no.runsafe.clans.handlers.ClanHandler;
 import no.runsafe.framework.api.block.IBlock;
@@ -8,6 +9,7 @@ import no.runsafe.framework.api.player.IPlayer;
 import no.runsafe.framework.minecraft.Item;
 import no.runsafe.framework.minecraft.item.meta.RunsafeMeta;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class PlayerMonitor implements IPlayerRightClick
@@ -22,7 +24,8 @@ public class PlayerMonitor implements IPlayerRightClick
 	public boolean OnPlayerRightClick(IPlayer player, RunsafeMeta usingItem, IBlock targetBlock)
 	{
 		// Check we are holding a charter.
-		if (usingItem != null && usingItem.is(Item.Special.Crafted.WrittenBook) && charterHandler.itemIsCharter(usingItem))
+		Charter charter = usingItem != null && usingItem.is(Item.Special.Crafted.WrittenBook) ? charterHandler.getCharter(usingItem) : null;
+		if (charter != null)
 		{
 			String playerName = player.getName(); // Name of the player using the book.
 			if (clanHandler.playerIsInClan(playerName))
@@ -32,7 +35,7 @@ public class PlayerMonitor implements IPlayerRightClick
 				return false;
 			}
 
-			String clanName = charterHandler.getClanName(usingItem); // Grab the clan name from the book.
+			String clanName = charter.getClanID(); // Grab the clan name from the registry.
 
 			// Check we have been given a valid clan name.
 			if (clanHandler.isInvalidClanName(clanName))
@@ -45,14 +48,13 @@ public class PlayerMonitor implements IPlayerRightClick
 			// If the clan already exists, just tell them it can't happen.
 			if (clanHandler.clanExists(clanName))
 			{
+				charterHandler.removeCharter(charter); // The charter can never be used now.
 				player.sendColouredMessage(String.format("&cA clan named '%s' already exists.", clanName));
 				player.closeInventory();
 				return false;
 			}
 
-			List<String> charterSigns = charterHandler.getCharterSigns(usingItem);
-
-			if (charterSigns.contains(playerName))
+			if (charter.hasSigned(playerName))
 			{
 				player.sendColouredMessage("&cYou have already signed this charter.");
 				player.closeInventory();
@@ -60,15 +62,15 @@ public class PlayerMonitor implements IPlayerRightClick
 			}
 
 			// If we have less than 2 signs on the charter, we should sign it!
-			if (charterSigns.size() < 2)
+			if (charter.getSigners().size() < 2)
 			{
-				charterHandler.addCharterSign(usingItem, playerName);
+				charterHandler.signCharter(charter, usingItem, playerName);
 				player.sendColouredMessage("&aYou have signed the charter!");
 			}
 			else
 			{
 				// Make sure all signs are valid.
-				for (String signedPlayer : charterSigns)
+				for (String signedPlayer : charter.getSigners())
 				{
 					if (clanHandler.playerIsInClan(signedPlayer))
 					{
@@ -85,14 +87,21 @@ public class PlayerMonitor implements IPlayerRightClick
 					return false;
 				}
 
-				clanHandler.createClan(clanName, charterHandler.getLeaderName(usingItem)); // Forge the clan!
-
-				// Add all players on the charter to the clan if they are not already in a clan.
-				for (String signedPlayer : charterSigns)
-					if (!clanHandler.playerIsInClan(signedPlayer))
-						clanHandler.addClanMember(clanName, signedPlayer);
+				// Add all players on the charter to the clan if they are not already in a clan, the signing player too.
+				List<String> founders = new ArrayList<String>(charter.getSigners());
+				founders.add(playerName);
+				List<String> refused = clanHandler.foundClan(clanName, charter.getLeader(), founders); // Forge the clan!
+				if (refused == null)
+				{
+					// Nothing happened, so the charter is kept for another try.
+					player.sendColouredMessage(clanHandler.isImporting() ? "&cClans are being imported, try again in a moment." : "&cA clan with that tag already exists.");
+					player.closeInventory();
+					return false;
+				}
+				charterHandler.removeCharter(charter); // Consume the charter, copies of the book become worthless.
 
-				clanHandler.addClanMember(clanName, player.getName()); // Add the signing player to the clan.
+				if (refused.contains(playerName))
+					player.sendColouredMessage("&cYou have already joined a clan on another server.");
 				clanHandler.sendMessageToClan(clanName, "Your clan has been formed!");
 				player.removeExactItem(usingItem); // Remove the charter.
 			}
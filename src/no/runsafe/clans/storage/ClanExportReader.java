@@ -0,0 +1,83 @@
+package no.runsafe.clans.storage;
+
+import java.io.*;
+import java.sql.Timestamp;
+
+// Export files are a header followed by typed records, each one row of clans, clan_members or clan_invites.
+public class ClanExportReader implements Closeable
+{
+	public ClanExportReader(File file) throws IOException
+	{
+		input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+		if (input.readInt() != MAGIC || input.readInt() != FORMAT)
+		{
+			input.close();
+			throw new IOException(file + " is not a clan export.");
+		}
+	}
+
+	// Reads the next record into the row and returns its type, or END once the file is done.
+	public int next() throws IOException
+	{
+		int type;
+		try
+		{
+			type = input.readByte();
+		}
+		catch (EOFException e)
+		{
+			throw new IOException("The clan export was cut short.");
+		}
+
+		switch (type)
+		{
+			case CLAN:
+				row = new Object[]{
+					input.readUTF(),
+					input.readUTF(),
+					new Timestamp(input.readLong()),
+					input.readUTF(),
+					input.readInt(),
+					input.readInt(),
+					input.readInt()
+				};
+				break;
+
+			case MEMBER:
+				row = new Object[]{input.readUTF(), input.readUTF(), new Timestamp(input.readLong())};
+				break;
+
+			case INVITE:
+				row = new Object[]{input.readUTF(), input.readUTF()};
+				break;
+
+			case END:
+				row = null;
+				break;
+
+			default:
+				throw new IOException("Unknown record type " + type + " in clan export.");
+		}
+		return type;
+	}
+
+	public Object[] getRow()
+	{
+		return row;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		input.close();
+	}
+
+	static final int MAGIC = 0x52534358; // RSCX
+	static final int FORMAT = 1;
+	public static final int END = 0;
+	public static final int CLAN = 1;
+	public static final int MEMBER = 2;
+	public static final int INVITE = 3;
+	private final DataInputStream input;
+	private Object[] row;
+}
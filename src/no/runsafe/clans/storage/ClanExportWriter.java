@@ -0,0 +1,81 @@
+package no.runsafe.clans.storage;
+
+import java.io.*;
+import java.sql.Timestamp;
+
+// Streams clan rows into an export file one record at a time, see ClanExportReader for the layout.
+public class ClanExportWriter implements Closeable
+{
+	public ClanExportWriter(File file) throws IOException
+	{
+		this.file = file;
+		temp = new File(file.getPath() + ".tmp");
+		File folder = temp.getAbsoluteFile().getParentFile();
+		if (folder != null && !folder.exists() && !folder.mkdirs())
+			throw new IOException("Unable to create " + folder);
+
+		output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 65536));
+		output.writeInt(ClanExportReader.MAGIC);
+		output.writeInt(ClanExportReader.FORMAT);
+	}
+
+	// {clanID, leader, created, motd, clanKills, clanDeaths, dergonKills}
+	public void writeClan(Object[] row) throws IOException
+	{
+		output.writeByte(ClanExportReader.CLAN);
+		output.writeUTF((String) row[0]);
+		output.writeUTF((String) row[1]);
+		output.writeLong(((Timestamp) row[2]).getTime());
+		output.writeUTF((String) row[3]);
+		output.writeInt((Integer) row[4]);
+		output.writeInt((Integer) row[5]);
+		output.writeInt((Integer) row[6]);
+	}
+
+	// {clanID, member, joined}
+	public void writeMember(Object[] row) throws IOException
+	{
+		output.writeByte(ClanExportReader.MEMBER);
+		output.writeUTF((String) row[0]);
+		output.writeUTF((String) row[1]);
+		output.writeLong(((Timestamp) row[2]).getTime());
+	}
+
+	// {clanID, player}
+	public void writeInvite(Object[] row) throws IOException
+	{
+		output.writeByte(ClanExportReader.INVITE);
+		output.writeUTF((String) row[0]);
+		output.writeUTF((String) row[1]);
+	}
+
+	// Only a complete export gets the end marker and is moved to its real name.
+	public void finish() throws IOException
+	{
+		output.writeByte(ClanExportReader.END); // A file without the end marker was cut short.
+		output.close();
+		finished = true;
+
+		if (file.exists() && !file.delete())
+			throw new IOException("Unable to replace " + file);
+		if (!temp.renameTo(file))
+			throw new IOException("Unable to move " + temp + " to " + file);
+	}
+
+	// An export that failed part way leaves nothing behind.
+	@Override
+	public void close() throws IOException
+	{
+		if (finished)
+			return;
+
+		output.close();
+		if (!temp.delete())
+			throw new IOException("Unable to remove " + temp);
+	}
+
+	private final File file;
+	private final File temp;
+	private final DataOutputStream output;
+	private boolean finished;
+}
@@ -0,0 +1,226 @@
+package no.runsafe.clans.storage;
+
+import no.runsafe.clans.database.ClanChangeType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ClanJournal
+{
+	public ClanJournal(File file, int capacity, int maxCapacity) throws IOException
+	{
+		this.maxCapacity = Math.max(capacity, maxCapacity);
+		File folder = file.getAbsoluteFile().getParentFile();
+		if (folder != null && !folder.exists() && !folder.mkdirs())
+			throw new IOException("Unable to create " + folder);
+
+		this.file = new RandomAccessFile(file, "rw");
+		// A log that grew before a crash is mapped whole, so its tail can still be recovered.
+		long size = Math.max(capacity, Math.min(this.file.length(), this.maxCapacity));
+		buffer = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		if (buffer.getInt(0) != MAGIC)
+		{
+			buffer.putInt(0, MAGIC);
+			buffer.put(HEADER_SIZE, END);
+		}
+		buffer.position(HEADER_SIZE);
+	}
+
+	// Reads every mutation that was journaled but never committed, in the order they were made.
+	public synchronized List<JournalEntry> recover()
+	{
+		Map<Long, JournalEntry> uncommitted = new LinkedHashMap<Long, JournalEntry>();
+		buffer.position(HEADER_SIZE);
+		try
+		{
+			while (buffer.remaining() > 0)
+			{
+				int start = buffer.position();
+				byte type = buffer.get();
+				if (type == END)
+				{
+					buffer.position(start);
+					break;
+				}
+
+				long sequence = buffer.getLong();
+				nextSequence = Math.max(nextSequence, sequence + 1);
+				if (type == COMMIT)
+					uncommitted.remove(sequence);
+				else
+					uncommitted.put(sequence, new JournalEntry(
+						sequence, ClanChangeType.values()[type - 1], readString(), readString(), readString(), buffer.getInt()
+					));
+			}
+		}
+		catch (BufferUnderflowException e)
+		{
+			// A torn record at the tail, everything before it is still valid.
+		}
+		catch (ArrayIndexOutOfBoundsException e)
+		{
+			// Garbage where a record type should be, stop reading here.
+		}
+		return new ArrayList<JournalEntry>(uncommitted.values());
+	}
+
+	public synchronized long append(ClanChangeType type, String clanID, String player, String value, int amount)
+	{
+		byte[] clanBytes = getBytes(clanID);
+		byte[] playerBytes = getBytes(player);
+		byte[] valueBytes = getBytes(value);
+		int size = 1 + 8 + stringSize(clanBytes) + stringSize(playerBytes) + stringSize(valueBytes) + 4;
+		if (!ensureCapacity(size + COMMIT_SIZE * (pending + 1))) // Always leave room to commit what is pending.
+			return -1;
+
+		long sequence = nextSequence++;
+		int start = buffer.position();
+		buffer.position(start + 1); // Write the type last so a half-written record is never read.
+		buffer.putLong(sequence);
+		writeString(clanBytes);
+		writeString(playerBytes);
+		writeString(valueBytes);
+		buffer.putInt(amount);
+		terminate();
+		buffer.put(start, (byte) (type.ordinal() + 1));
+		pending++;
+		return sequence;
+	}
+
+	public synchronized void commit(long sequence)
+	{
+		if (sequence < 0)
+			return;
+
+		int start = buffer.position();
+		buffer.position(start + 1);
+		buffer.putLong(sequence);
+		terminate();
+		buffer.put(start, COMMIT);
+		pending--;
+	}
+
+	// Once every journaled mutation has been committed, the log can start over from the top.
+	public synchronized boolean compact()
+	{
+		if (pending > 0 || buffer.position() == HEADER_SIZE)
+			return false;
+
+		buffer.put(HEADER_SIZE, END);
+		buffer.position(HEADER_SIZE);
+		buffer.force();
+		return true;
+	}
+
+	public synchronized void reset()
+	{
+		pending = 0;
+		buffer.put(HEADER_SIZE, END);
+		buffer.position(HEADER_SIZE);
+		buffer.force();
+	}
+
+	public synchronized int getUsage()
+	{
+		return buffer.position();
+	}
+
+	public synchronized int getPending()
+	{
+		return pending;
+	}
+
+	public synchronized void close() throws IOException
+	{
+		buffer.force();
+		file.close();
+	}
+
+	private boolean ensureCapacity(int size)
+	{
+		// Keep a byte spare for the end marker.
+		if (buffer.remaining() > size || (compact() && buffer.remaining() > size))
+			return true;
+
+		// Changes are still waiting on their commit, so the log has to grow instead.
+		int capacity = buffer.capacity();
+		while (capacity - buffer.position() <= size && capacity < maxCapacity)
+			capacity = (int) Math.min((long) capacity * 2, maxCapacity);
+		if (capacity - buffer.position() <= size)
+			return false;
+
+		try
+		{
+			int position = buffer.position();
+			buffer.force();
+			buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+			buffer.position(position);
+			buffer.put(position, END);
+			return true;
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+	}
+
+	private void terminate()
+	{
+		if (buffer.remaining() > 0)
+			buffer.put(buffer.position(), END);
+	}
+
+	private void writeString(byte[] bytes)
+	{
+		if (bytes == null)
+		{
+			buffer.putShort(NULL_LENGTH);
+			return;
+		}
+		buffer.putShort((short) bytes.length);
+		buffer.put(bytes);
+	}
+
+	private String readString()
+	{
+		short length = buffer.getShort();
+		if (length == NULL_LENGTH)
+			return null;
+
+		byte[] bytes = new byte[length & 0xFFFF];
+		buffer.get(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	private static byte[] getBytes(String value)
+	{
+		return value == null ? null : value.getBytes(UTF8);
+	}
+
+	private static int stringSize(byte[] bytes)
+	{
+		return 2 + (bytes == null ? 0 : bytes.length);
+	}
+
+	private static final int MAGIC = 0x52534A31; // RSJ1
+	private static final int HEADER_SIZE = 4;
+	private static final int COMMIT_SIZE = 1 + 8;
+	private static final byte END = 0;
+	private static final byte COMMIT = 127;
+	private static final short NULL_LENGTH = -1;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private final RandomAccessFile file;
+	private final int maxCapacity;
+	private MappedByteBuffer buffer;
+	private long nextSequence = 1;
+	private int pending = 0;
+}
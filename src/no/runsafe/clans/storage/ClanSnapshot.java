@@ -0,0 +1,231 @@
+package no.runsafe.clans.storage;
+
+import no.runsafe.clans.Clan;
+import org.joda.time.DateTime;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+public class ClanSnapshot
+{
+	public ClanSnapshot(Map<String, Clan> clans, Map<String, List<String>> rosters, Map<String, DateTime> joinDates, Map<String, List<String>> invites)
+	{
+		this.clans = clans;
+		this.rosters = rosters;
+		this.joinDates = joinDates;
+		this.invites = invites;
+	}
+
+	// Mirrors the CHECKSUM queries in the repositories, so the payload can be compared with the tables directly.
+	public long getChecksum()
+	{
+		long clanSum = 0;
+		long memberSum = 0;
+		long inviteSum = 0;
+		for (Clan clan : clans.values())
+		{
+			clanSum += 1 + crc(clan.getId(), clan.getLeader(), clan.getMotd(), clan.getClanKills(), clan.getClanDeaths(), clan.getDergonKills(), clan.getVersion());
+			List<String> members = rosters.get(clan.getId());
+			if (members != null)
+				for (String member : members)
+					memberSum += 1 + crc(clan.getId(), member);
+		}
+		for (Map.Entry<String, List<String>> invite : invites.entrySet())
+			for (String clanID : invite.getValue())
+				inviteSum += 1 + crc(clanID, invite.getKey());
+		return combine(clanSum, memberSum, inviteSum);
+	}
+
+	public static long combine(long clanChecksum, long memberChecksum, long inviteChecksum)
+	{
+		return clanChecksum * 31 * 31 + memberChecksum * 31 + inviteChecksum;
+	}
+
+	public Map<String, Clan> getClans()
+	{
+		return clans;
+	}
+
+	public Map<String, List<String>> getRosters()
+	{
+		return rosters;
+	}
+
+	public Map<String, DateTime> getJoinDates()
+	{
+		return joinDates;
+	}
+
+	public Map<String, List<String>> getInvites()
+	{
+		return invites;
+	}
+
+	public void write(File file) throws IOException
+	{
+		File temp = new File(file.getPath() + ".tmp");
+		File folder = temp.getAbsoluteFile().getParentFile();
+		if (folder != null && !folder.exists() && !folder.mkdirs())
+			throw new IOException("Unable to create " + folder);
+
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+		try
+		{
+			output.writeInt(MAGIC);
+			output.writeInt(FORMAT);
+			output.writeLong(getChecksum());
+
+			output.writeInt(clans.size());
+			for (Clan clan : clans.values())
+			{
+				writeString(output, clan.getId());
+				writeString(output, clan.getLeader());
+				writeString(output, clan.getMotd());
+				output.writeInt(clan.getClanKills());
+				output.writeInt(clan.getClanDeaths());
+				output.writeInt(clan.getDergonKills());
+				output.writeInt(clan.getVersion());
+				writeList(output, clan.getMembers());
+			}
+
+			output.writeInt(joinDates.size());
+			for (Map.Entry<String, DateTime> joined : joinDates.entrySet())
+			{
+				writeString(output, joined.getKey());
+				output.writeLong(joined.getValue() == null ? 0 : joined.getValue().getMillis());
+			}
+
+			output.writeInt(invites.size());
+			for (Map.Entry<String, List<String>> invite : invites.entrySet())
+			{
+				writeString(output, invite.getKey());
+				writeList(output, invite.getValue());
+			}
+		}
+		finally
+		{
+			output.close();
+		}
+
+		// Swap the finished file in, so a crash mid-write never leaves a truncated snapshot behind.
+		if (file.exists() && !file.delete())
+			throw new IOException("Unable to replace " + file);
+		if (!temp.renameTo(file))
+			throw new IOException("Unable to move " + temp + " to " + file);
+	}
+
+	public static ClanSnapshot read(File file) throws IOException
+	{
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try
+		{
+			FileChannel channel = input.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT)
+				return null;
+
+			long checksum = buffer.getLong();
+
+			int clanCount = buffer.getInt();
+			Map<String, Clan> clans = new HashMap<String, Clan>(clanCount);
+			Map<String, List<String>> rosters = new HashMap<String, List<String>>(clanCount);
+			for (int i = 0; i < clanCount; i++)
+			{
+				Clan clan = new Clan(readString(buffer), readString(buffer), readString(buffer));
+				clan.addClanKills(buffer.getInt());
+				clan.addClanDeaths(buffer.getInt());
+				clan.addDergonKills(buffer.getInt());
+				clan.setVersion(buffer.getInt());
+				clans.put(clan.getId(), clan);
+				rosters.put(clan.getId(), readList(buffer));
+			}
+
+			int joinedCount = buffer.getInt();
+			Map<String, DateTime> joinDates = new HashMap<String, DateTime>(joinedCount);
+			for (int i = 0; i < joinedCount; i++)
+			{
+				String member = readString(buffer);
+				long joined = buffer.getLong();
+				joinDates.put(member, joined == 0 ? null : new DateTime(joined));
+			}
+
+			int inviteCount = buffer.getInt();
+			Map<String, List<String>> invites = new HashMap<String, List<String>>(inviteCount);
+			for (int i = 0; i < inviteCount; i++)
+				invites.put(readString(buffer), readList(buffer));
+
+			// A payload that no longer matches the checksum it was written with is damaged.
+			ClanSnapshot snapshot = new ClanSnapshot(clans, rosters, joinDates, invites);
+			return snapshot.getChecksum() == checksum ? snapshot : null;
+		}
+		finally
+		{
+			input.close();
+		}
+	}
+
+	// Same as CRC32(CONCAT_WS(',', ...)) in MySQL: null values are skipped along with their separator.
+	private static long crc(Object... values)
+	{
+		StringBuilder joined = new StringBuilder();
+		for (Object value : values)
+		{
+			if (value == null)
+				continue;
+			if (joined.length() > 0)
+				joined.append(',');
+			joined.append(value);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(joined.toString().getBytes(UTF8));
+		return crc.getValue();
+	}
+
+	private static void writeList(DataOutput output, List<String> values) throws IOException
+	{
+		output.writeShort(values.size());
+		for (String value : values)
+			writeString(output, value);
+	}
+
+	private static void writeString(DataOutput output, String value) throws IOException
+	{
+		byte[] bytes = value.getBytes(UTF8);
+		output.writeShort(bytes.length);
+		output.write(bytes);
+	}
+
+	private static List<String> readList(ByteBuffer buffer)
+	{
+		int size = buffer.getShort() & 0xFFFF;
+		List<String> values = new ArrayList<String>(size);
+		for (int i = 0; i < size; i++)
+			values.add(readString(buffer));
+		return values;
+	}
+
+	private static String readString(ByteBuffer buffer)
+	{
+		byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	private static final int MAGIC = 0x52534331; // RSC1
+	private static final int FORMAT = 3;
+	private static final int HEADER_SIZE = 16;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private final Map<String, Clan> clans;
+	private final Map<String, List<String>> rosters;
+	private final Map<String, DateTime> joinDates;
+	private final Map<String, List<String>> invites;
+}
@@ -0,0 +1,86 @@
+package no.runsafe.clans.storage;
+
+import java.io.*;
+
+// Traces are a header, the clan rosters at the time recording started, then the recorded inputs in order.
+// Every record is a type, the milliseconds since recording started and one or two names.
+public class ClanTraceReader implements Closeable
+{
+	public ClanTraceReader(File file) throws IOException
+	{
+		input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+		if (input.readInt() != MAGIC || input.readInt() != FORMAT)
+		{
+			input.close();
+			throw new IOException(file + " is not a clan trace.");
+		}
+	}
+
+	// Reads the next record and returns its type, or END once the trace is done.
+	public int next() throws IOException
+	{
+		int type;
+		try
+		{
+			type = input.readByte();
+		}
+		catch (EOFException e)
+		{
+			return END; // The server stopped before the trace was closed, replay what made it to disk.
+		}
+
+		if (type == END)
+			return END;
+
+		if (type < CLAN || type > CLAN_KICK)
+			throw new IOException("Unknown record type " + type + " in clan trace.");
+
+		time = input.readInt();
+		first = input.readUTF();
+		second = hasSecond(type) ? input.readUTF() : null;
+		return type;
+	}
+
+	public int getTime()
+	{
+		return time;
+	}
+
+	public String getFirst()
+	{
+		return first;
+	}
+
+	public String getSecond()
+	{
+		return second;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		input.close();
+	}
+
+	static boolean hasSecond(int type)
+	{
+		return type != JOIN && type != QUIT && type != DEATH;
+	}
+
+	static final int MAGIC = 0x52534354; // RSCT
+	static final int FORMAT = 1;
+	public static final int END = 0;
+	public static final int CLAN = 1; // {clanID, leader}
+	public static final int MEMBER = 2; // {clanID, player}
+	public static final int JOIN = 3; // {player}
+	public static final int QUIT = 4; // {player}
+	public static final int DAMAGE = 5; // {victim, attacker}
+	public static final int DEATH = 6; // {player}
+	public static final int CLAN_JOIN = 7; // {player, clanID}
+	public static final int CLAN_LEAVE = 8; // {player, clanID}
+	public static final int CLAN_KICK = 9; // {player, clanID}
+	private final DataInputStream input;
+	private int time;
+	private String first;
+	private String second;
+}
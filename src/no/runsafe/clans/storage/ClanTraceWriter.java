@@ -0,0 +1,42 @@
+package no.runsafe.clans.storage;
+
+import java.io.*;
+
+// Appends trace records to a file, see ClanTraceReader for the layout.
+public class ClanTraceWriter implements Closeable
+{
+	public ClanTraceWriter(File file) throws IOException
+	{
+		File folder = file.getAbsoluteFile().getParentFile();
+		if (folder != null && !folder.exists() && !folder.mkdirs())
+			throw new IOException("Unable to create " + folder);
+
+		output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+		output.writeInt(ClanTraceReader.MAGIC);
+		output.writeInt(ClanTraceReader.FORMAT);
+	}
+
+	// Records without a second value (joins, quits, deaths) pass null.
+	public void write(int type, int time, String first, String second) throws IOException
+	{
+		output.writeByte(type);
+		output.writeInt(time);
+		output.writeUTF(first);
+		if (ClanTraceReader.hasSecond(type))
+			output.writeUTF(second);
+	}
+
+	public void flush() throws IOException
+	{
+		output.flush();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		output.writeByte(ClanTraceReader.END); // A trace without the end marker was cut short.
+		output.close();
+	}
+
+	private final DataOutputStream output;
+}
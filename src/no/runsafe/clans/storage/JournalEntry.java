@@ -0,0 +1,53 @@
+package no.runsafe.clans.storage;
+
+import no.runsafe.clans.database.ClanChangeType;
+
+public class JournalEntry
+{
+	public JournalEntry(long sequence, ClanChangeType type, String clanID, String player, String value, int amount)
+	{
+		this.sequence = sequence;
+		this.type = type;
+		this.clanID = clanID;
+		this.player = player;
+		this.value = value;
+		this.amount = amount;
+	}
+
+	public long getSequence()
+	{
+		return sequence;
+	}
+
+	public ClanChangeType getType()
+	{
+		return type;
+	}
+
+	public String getClanID()
+	{
+		return clanID;
+	}
+
+	public String getPlayer()
+	{
+		return player;
+	}
+
+	public String getValue()
+	{
+		return value;
+	}
+
+	public int getAmount()
+	{
+		return amount;
+	}
+
+	private final long sequence;
+	private final ClanChangeType type;
+	private final String clanID;
+	private final String player;
+	private final String value;
+	private final int amount;
+}
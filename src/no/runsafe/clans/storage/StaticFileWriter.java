@@ -0,0 +1,69 @@
+package no.runsafe.clans.storage;
+
+import java.io.*;
+
+// Replaces files in a way readers never see half written, by writing next to the target and renaming over it.
+public final class StaticFileWriter
+{
+	private StaticFileWriter()
+	{
+	}
+
+	public static void write(File file, String content) throws IOException
+	{
+		File folder = file.getAbsoluteFile().getParentFile();
+		if (folder != null && !folder.exists() && !folder.mkdirs())
+			throw new IOException("Unable to create " + folder);
+
+		File temporary = new File(folder, file.getName() + ".tmp");
+		Writer writer = new OutputStreamWriter(new FileOutputStream(temporary), "UTF-8");
+		try
+		{
+			writer.write(content);
+		}
+		finally
+		{
+			writer.close();
+		}
+
+		// The rename replaces the target in one step on POSIX, some platforms refuse to rename over an existing file.
+		if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file)))
+			throw new IOException("Unable to replace " + file);
+	}
+
+	public static String quote(String value)
+	{
+		if (value == null)
+			return "null";
+
+		StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			switch (c)
+			{
+				case '"':
+					quoted.append("\\\"");
+					break;
+				case '\\':
+					quoted.append("\\\\");
+					break;
+				case '\n':
+					quoted.append("\\n");
+					break;
+				case '\r':
+					quoted.append("\\r");
+					break;
+				case '\t':
+					quoted.append("\\t");
+					break;
+				default:
+					if (c < 0x20)
+						quoted.append(String.format("\\u%04x", (int) c));
+					else
+						quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+}